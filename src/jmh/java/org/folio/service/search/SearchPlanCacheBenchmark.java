@@ -0,0 +1,53 @@
+package org.folio.service.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+  Compiling a query into a search plan when SearchPlanCache doesn't hold
+  it (cold) against looking it up once it does (warm)
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchPlanCacheBenchmark {
+
+  @Param({
+    "title=\"library science\"",
+    "title=\"interlending\" and author=smith and isbn=9780123456786 and publisher=\"Éditions du Seuil\""
+  })
+  public String cql;
+
+  private final SearchAPI searchAPI = new SearchAPI();
+
+  @Setup
+  public void setUp() {
+    SearchPlanCache.getInstance().clear();
+    searchAPI.compilePlan(cql);
+  }
+
+  @Benchmark
+  public SearchPlan cold() {
+    SearchPlanCache.getInstance().clear();
+    return searchAPI.compilePlan(cql);
+  }
+
+  @Benchmark
+  public SearchPlan warm() {
+    return searchAPI.compilePlan(cql);
+  }
+}
@@ -0,0 +1,60 @@
+package org.folio.service.search;
+
+import org.folio.rest.jaxrs.model.Result;
+import org.folio.rest.jaxrs.model.SearchResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+  Reading a page of search results with SearchResultReader against the
+  DOM parsing it replaced, from a small page of results up to a very
+  large one
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchResultReaderBenchmark {
+
+  @Param({ "10", "100", "1000" })
+  public int records;
+
+  private String xml;
+  private byte[] bytes;
+
+  @Setup
+  public void setUp() {
+    xml = SearchResponses.page(new Random(records), records, 100000);
+    bytes = xml.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public SearchResponse dom() {
+    return LegacySearchResponseParser.prepareResponse(xml);
+  }
+
+  @Benchmark
+  public List<Result> reader() {
+    List<Result> results = new ArrayList<>(records);
+    new SearchResultReader().read(new ByteArrayInputStream(bytes), results::add);
+    return results;
+  }
+}
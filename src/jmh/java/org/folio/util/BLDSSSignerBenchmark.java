@@ -0,0 +1,69 @@
+package org.folio.util;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+  Signing a request with BLDSSSigner against the TreeMap / URLEncoder /
+  new Mac signing it replaced, for a GET with an id parameter and for
+  order payloads of a typical and a large size
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BLDSSSignerBenchmark {
+
+  private static final String REQUEST_TIME = "1617282000000";
+  private static final String NONCE = "a1B2c3D4e5";
+
+  @Param({ "0", "1000", "10000" })
+  public int payloadSize;
+
+  private JSONObject conf;
+  private BLDSSSigner signer;
+  private HashMap<String, String> params;
+  private String payload;
+
+  @Setup
+  public void setUp() {
+    conf = new JSONObject()
+      .put("apiApplication", "app")
+      .put("apiApplicationAuth", "appSecret")
+      .put("apiKey", "key")
+      .put("apiKeyAuth", "keySecret");
+    signer = BLDSSSigner.forTenant("benchmark", conf);
+    params = new HashMap<>();
+    params.put("id", "123456789");
+    StringBuilder builder = new StringBuilder();
+    while (builder.length() < payloadSize) {
+      builder.append("<title>Proceedings of the Société, vol. 42 &amp; index</title>");
+    }
+    payload = payloadSize > 0 ? builder.substring(0, payloadSize) : null;
+  }
+
+  @Benchmark
+  public String legacy() {
+    return LegacyBLDSSAuth.getAuthorisation("POST", "/api/orders", params, payload, REQUEST_TIME, NONCE, conf);
+  }
+
+  @Benchmark
+  public String signer() {
+    return signer.sign("POST", "/api/orders", params, payload, REQUEST_TIME, NONCE, "HMAC-SHA1");
+  }
+}
@@ -0,0 +1,84 @@
+package org.folio.util;
+
+import io.vertx.core.json.JsonObject;
+import org.folio.rest.jaxrs.model.AgencyId;
+import org.folio.rest.jaxrs.model.Configs;
+import org.folio.rest.jaxrs.model.ISO18626.SamStatusInfo;
+import org.folio.rest.jaxrs.model.ISO18626.SupplyingAgencyMessage;
+import org.folio.rest.jaxrs.model.SupplyingAgencyMessageHeader;
+import org.folio.rest.jaxrs.model.SupplyingAgencyMessageInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/*
+  Decoding a mod-configuration response and encoding a supplying agency
+  message with JsonCodecs against the JsonObject mapTo / mapFrom calls
+  they replaced
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecsBenchmark {
+
+  private byte[] configs;
+  private SupplyingAgencyMessage message;
+
+  @Setup
+  public void setUp() {
+    configs = ("{\"configs\":["
+      + "{\"id\":\"0b5d1c1e-8b3a-4f5e-9a6d-0c1b2a3d4e5f\",\"module\":\"ILL_CONNECTOR_BLDSS\",\"configName\":\"apiSettings\","
+      + "\"code\":\"apiSettings\",\"enabled\":true,\"value\":\"{\\\"apiKey\\\":\\\"key\\\",\\\"apiKeyAuth\\\":\\\"secret\\\"}\"},"
+      + "{\"id\":\"9f8e7d6c-5b4a-4321-8fed-cba987654321\",\"module\":\"ILL_CONNECTOR_BLDSS\",\"configName\":\"generalSettings\","
+      + "\"code\":\"generalSettings\",\"enabled\":true,\"value\":\"{\\\"libraryPrivilege\\\":true,\\\"outsideUk\\\":false}\"}"
+      + "],\"totalRecords\":2}").getBytes(StandardCharsets.UTF_8);
+
+    message = new SupplyingAgencyMessage()
+      .withHeader(new SupplyingAgencyMessageHeader()
+        .withSupplyingAgencyId(new AgencyId().withAgencyIdType(AgencyId.AgencyIdType.ISIL).withAgencyIdValue("MY_SUPPLIER_ID"))
+        .withRequestingAgencyId(new AgencyId().withAgencyIdType(AgencyId.AgencyIdType.ISIL).withAgencyIdValue("MY_REQUESTER_ID"))
+        .withTimestamp("2012-08-07T12:32:31+0000")
+        .withRequestingAgencyRequestId("6839f2bf")
+        .withSupplyingAgencyRequestId("00001234-001"))
+      .withMessageInfo(new SupplyingAgencyMessageInfo()
+        .withReasonForMessage(SupplyingAgencyMessageInfo.ReasonForMessage.values()[0])
+        .withAnswerYesNo(SupplyingAgencyMessageInfo.AnswerYesNo.Y)
+        .withNote("9: Order confirmed Estimated despatch date: 08-08-2012"))
+      .withStatusInfo(new SamStatusInfo()
+        .withStatus(SamStatusInfo.Status.values()[0])
+        .withLastChange("2012-08-07T12:32:31+0000"));
+  }
+
+  @Benchmark
+  public Configs decodeMapTo() {
+    return new JsonObject(new String(configs, StandardCharsets.UTF_8)).mapTo(Configs.class);
+  }
+
+  @Benchmark
+  public Configs decodeCodec() {
+    return JsonCodecs.CONFIGS.decode(configs);
+  }
+
+  @Benchmark
+  public String encodeMapFrom() {
+    return JsonObject.mapFrom(message).toString();
+  }
+
+  @Benchmark
+  public String encodeCodec() {
+    return JsonCodecs.SUPPLYING_AGENCY_MESSAGE.encodeToString(message);
+  }
+}
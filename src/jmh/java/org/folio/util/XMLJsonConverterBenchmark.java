@@ -0,0 +1,58 @@
+package org.folio.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+  Converting a BLDSS reference data response to JSON with XMLJsonConverter
+  against the DOM / Transformer / XML.toJSONObject path it replaced
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XMLJsonConverterBenchmark {
+
+  @Param({ "5", "50", "500" })
+  public int formats;
+
+  private String xml;
+
+  @Setup
+  public void setUp() {
+    StringBuilder builder = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+      .append("<apiResponse><timestamp>2021-04-01 13:00:00.000 BST</timestamp><status>0</status>")
+      .append("<message>Formats</message><result><formats>");
+    for (int i = 0; i < formats; i++) {
+      builder.append("<format id=\"").append(i).append("\"><key>").append(i).append("</key>")
+        .append("<description>Format number ").append(i).append(" &amp; its Société</description>")
+        .append("<price currency=\"GBP\">").append(i).append(".50</price>")
+        .append("<deliveryModifiers><deliveryModifier id=\"01\">Standard</deliveryModifier>")
+        .append("<deliveryModifier id=\"02\">Colour</deliveryModifier></deliveryModifiers></format>");
+    }
+    xml = builder.append("</formats></result></apiResponse>").toString();
+  }
+
+  @Benchmark
+  public String legacy() {
+    return LegacyXmlJson.getJson(xml, "apiResponse", "apiResponse");
+  }
+
+  @Benchmark
+  public String converter() {
+    return XMLJsonConverter.toJson(xml, "apiResponse", "apiResponse");
+  }
+}
@@ -17,6 +17,7 @@ public class Constants {
       "ill-connector-info",
       "ill-connector-search",
       "ill-connector-action",
+      "ill-connector-action-bulk",
       "ill-connector-sa-update"
     )
   );
@@ -32,6 +33,80 @@ public class Constants {
   public static final String TENANT_CONFIGURATION_ENTRIES = "configurations/entries";
   public static final String CALLBACK_UUID = "6839f2bf-5c47-469c-a80b-29765eaa9417";
 
+  // mod-configuration cache settings
+  public static final long CONFIG_CACHE_TTL_MS = Long.getLong("config.cache.ttl.ms", 300000L);
+  public static final long CONFIG_CACHE_REFRESH_AHEAD_MS = Long.getLong("config.cache.refresh.ahead.ms", 240000L);
+  public static final int CONFIG_CACHE_MAX_ENTRIES = Integer.getInteger("config.cache.max.entries", 1000);
+
+  // Outbound HTTP client settings
+  public static final String HTTP_CLIENT_TRANSPORT = System.getProperty("http.client.transport", "webclient");
+  public static final int HTTP_CLIENT_THREADS = Integer.getInteger("http.client.threads", 4);
+  public static final int HTTP_CLIENT_POOL_SIZE = Integer.getInteger("http.client.pool.size", 20);
+  public static final int HTTP_CLIENT_KEEPALIVE_SECONDS = Integer.getInteger("http.client.keepalive.seconds", 300);
+  public static final long HTTP_CLIENT_CONNECT_TIMEOUT_MS = Long.getLong("http.client.connect.timeout.ms", 10000L);
+  public static final long HTTP_CLIENT_REQUEST_TIMEOUT_MS = Long.getLong("http.client.request.timeout.ms", 60000L);
+
+  // Inbound request deadlines, outbound calls made for a request get no
+  // longer than what's left of its deadline
+  public static final long REQUEST_DEADLINE_MS = Long.getLong("request.deadline.ms", 30000L);
+  public static final long BULK_ACTION_DEADLINE_MS = Long.getLong("bulk.action.deadline.ms", 600000L);
+
+  // BLDSS search result cache settings
+  public static final long SEARCH_CACHE_TTL_MS = Long.getLong("search.cache.ttl.ms", 600000L);
+  public static final long SEARCH_CACHE_MAX_BYTES = Long.getLong("search.cache.max.bytes", 16L * 1024 * 1024);
+  public static final int SEARCH_PLAN_CACHE_MAX_ENTRIES = Integer.getInteger("search.plan.cache.max.entries", 10000);
+
+  // BLDSS search paging settings
+  public static final int SEARCH_CHUNK_SIZE = Integer.getInteger("search.chunk.size", 50);
+  public static final int SEARCH_CHUNK_PARALLELISM = Integer.getInteger("search.chunk.parallelism", 4);
+  public static final boolean SEARCH_PREFETCH_ENABLED = Boolean.parseBoolean(System.getProperty("search.prefetch.enabled", "true"));
+
+  // BLDSS search hedging settings, when enabled a search still waiting
+  // after the tenant's recent p95 latency is sent again
+  public static final boolean SEARCH_HEDGE_ENABLED = Boolean.parseBoolean(System.getProperty("search.hedge.enabled", "false"));
+  public static final double SEARCH_HEDGE_PERCENTILE = Double.parseDouble(System.getProperty("search.hedge.percentile", "95"));
+  public static final double SEARCH_HEDGE_BUDGET_PERCENT = Double.parseDouble(System.getProperty("search.hedge.budget.percent", "5"));
+  public static final int SEARCH_HEDGE_MIN_SAMPLES = Integer.getInteger("search.hedge.min.samples", 20);
+  public static final long SEARCH_LATENCY_WINDOW_MS = Long.getLong("search.latency.window.ms", 300000L);
+
+  // BLDSS reference data (getter) cache settings
+  public static final long REFERENCE_DATA_TTL_MS = Long.getLong("reference.data.ttl.ms", 86400000L);
+  public static final long REFERENCE_DATA_REFRESH_MS = Long.getLong("reference.data.refresh.ms", 3600000L);
+
+  // BLDSS rate limiting settings, per tenant and API key
+  public static final double BLDSS_RATE_LIMIT_PER_SECOND = Double.parseDouble(System.getProperty("bldss.rate.limit.per.second", "10"));
+  public static final int BLDSS_RATE_LIMIT_BURST = Integer.getInteger("bldss.rate.limit.burst", 20);
+  public static final int BLDSS_RATE_LIMIT_QUEUE_SIZE = Integer.getInteger("bldss.rate.limit.queue.size", 200);
+  public static final long BLDSS_RATE_LIMIT_MAX_WAIT_MS = Long.getLong("bldss.rate.limit.max.wait.ms", 10000L);
+
+  // BLDSS bulkhead and circuit breaker defaults, per endpoint group
+  public static final int BULKHEAD_MAX_IN_FLIGHT = Integer.getInteger("bulkhead.max.in.flight", 16);
+  public static final int BULKHEAD_MAX_QUEUE = Integer.getInteger("bulkhead.max.queue", 64);
+  public static final int CIRCUIT_FAILURE_THRESHOLD = Integer.getInteger("circuit.failure.threshold", 5);
+  public static final long CIRCUIT_OPEN_MS = Long.getLong("circuit.open.ms", 30000L);
+
+  // Bulk action settings
+  public static final int BULK_ACTION_PARALLELISM = Integer.getInteger("bulk.action.parallelism", 8);
+  public static final int BULK_ACTION_MAX_ITEMS = Integer.getInteger("bulk.action.max.items", 500);
+
+  // RA outbox settings
+  public static final String OUTBOX_DIR = System.getProperty("outbox.dir", "outbox");
+  public static final int OUTBOX_CONCURRENCY = Integer.getInteger("outbox.concurrency", 8);
+  public static final int OUTBOX_MAX_ATTEMPTS = Integer.getInteger("outbox.max.attempts", 12);
+  public static final long OUTBOX_BACKOFF_INITIAL_MS = Long.getLong("outbox.backoff.initial.ms", 1000L);
+  public static final long OUTBOX_BACKOFF_MAX_MS = Long.getLong("outbox.backoff.max.ms", 300000L);
+
+  // BLDSS orderline update (sa-update) settings, when async is set updates
+  // are confirmed as soon as they're on disk and passed on to the RA later.
+  // Each orderline's updates are chained one after another, on a pool of
+  // SA_UPDATE_WORKERS threads shared by all orderlines
+  public static final boolean SA_UPDATE_ASYNC = Boolean.parseBoolean(System.getProperty("sa.update.async", "false"));
+  public static final int SA_UPDATE_WORKERS = Integer.getInteger("sa.update.workers", Runtime.getRuntime().availableProcessors());
+
+  // Journal settings
+  public static final boolean JOURNAL_FSYNC = Boolean.parseBoolean(System.getProperty("journal.fsync", "true"));
+  public static final int JOURNAL_COMPACT_THRESHOLD = Integer.getInteger("journal.compact.threshold", 1000);
+
   public static final String EMPTY_ARRAY = "[]";
 
   public static final AgencyId SUPPLYING_AGENCY_ID = new AgencyId()
@@ -0,0 +1,11 @@
+package org.folio.exception;
+
+// The inbound request's deadline passed before we could finish with it
+public class DeadlineExceededException extends HttpException {
+
+  private static final long serialVersionUID = 6410932576093526215L;
+
+  public DeadlineExceededException(String message) {
+    super(504, message);
+  }
+}
@@ -0,0 +1,12 @@
+package org.folio.exception;
+
+// We're deliberately not calling a BLDSS endpoint right now, because its
+// circuit is open or it already has as many requests as it can take
+public class EndpointUnavailableException extends HttpException {
+
+  private static final long serialVersionUID = -3554101735960263467L;
+
+  public EndpointUnavailableException(String message) {
+    super(503, message);
+  }
+}
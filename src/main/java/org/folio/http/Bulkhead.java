@@ -0,0 +1,88 @@
+package org.folio.http;
+
+import org.folio.exception.EndpointUnavailableException;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/*
+  Limits how many calls can be in flight at once
+
+  Calls beyond maxInFlight wait, in arrival order, in a queue of at most
+  maxQueue. Once that's full further calls fail straight away with an
+  EndpointUnavailableException.
+*/
+public class Bulkhead {
+
+  private final String name;
+  private final int maxInFlight;
+  private final int maxQueue;
+  private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+  private int inFlight;
+
+  public Bulkhead(String name, int maxInFlight, int maxQueue) {
+    this.name = name;
+    this.maxInFlight = Math.max(1, maxInFlight);
+    this.maxQueue = maxQueue;
+  }
+
+  public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    Runnable start = () -> start(call, result);
+    synchronized (this) {
+      if (inFlight < maxInFlight) {
+        inFlight++;
+      } else if (queue.size() < maxQueue) {
+        queue.add(start);
+        return result;
+      } else {
+        result.completeExceptionally(new EndpointUnavailableException(
+          "Too many requests in progress for BLDSS " + name));
+        return result;
+      }
+    }
+    start.run();
+    return result;
+  }
+
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  public synchronized int getQueued() {
+    return queue.size();
+  }
+
+  private <T> void start(Supplier<CompletableFuture<T>> call, CompletableFuture<T> result) {
+    CompletableFuture<T> future;
+    try {
+      future = call.get();
+    } catch (Exception e) {
+      future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+    }
+    future.whenComplete((value, t) -> {
+      release();
+      if (t != null) {
+        result.completeExceptionally(t);
+      } else {
+        result.complete(value);
+      }
+    });
+  }
+
+  // Hand our slot to the next queued call, if there is one
+  private void release() {
+    Runnable next;
+    synchronized (this) {
+      next = queue.poll();
+      if (next == null) {
+        inFlight--;
+      }
+    }
+    if (next != null) {
+      next.run();
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package org.folio.http;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/*
+  A consecutive failure circuit breaker
+
+  - CLOSED: calls go through, failureThreshold failures in a row open
+    the circuit
+  - OPEN: calls are refused until openMs has passed
+  - HALF_OPEN: a single trial call goes through, its success closes the
+    circuit again, its failure reopens it
+*/
+public class CircuitBreaker {
+
+  private static final Logger logger = LogManager.getLogger(CircuitBreaker.class);
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final String name;
+  private final int failureThreshold;
+  private final long openMs;
+  private State state = State.CLOSED;
+  private int consecutiveFailures;
+  private long openedAt;
+  private boolean trialInFlight;
+
+  public CircuitBreaker(String name, int failureThreshold, long openMs) {
+    this.name = name;
+    this.failureThreshold = failureThreshold;
+    this.openMs = openMs;
+  }
+
+  // Whether a call may go ahead, every call allowed must be followed by
+  // exactly one of onSuccess, onFailure or onIgnored
+  public synchronized boolean tryAcquire() {
+    switch (state) {
+      case CLOSED:
+        return true;
+      case OPEN:
+        if (System.currentTimeMillis() - openedAt < openMs) {
+          return false;
+        }
+        logger.info("Circuit {} is half open, trying a call", name);
+        state = State.HALF_OPEN;
+        trialInFlight = true;
+        return true;
+      default:
+        if (trialInFlight) {
+          return false;
+        }
+        trialInFlight = true;
+        return true;
+    }
+  }
+
+  public synchronized void onSuccess() {
+    consecutiveFailures = 0;
+    trialInFlight = false;
+    if (state != State.CLOSED) {
+      logger.info("Circuit {} is closed", name);
+      state = State.CLOSED;
+    }
+  }
+
+  public synchronized void onFailure() {
+    consecutiveFailures++;
+    trialInFlight = false;
+    if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+      logger.warn("Circuit {} is open after {} failures in a row", name, consecutiveFailures);
+      state = State.OPEN;
+      openedAt = System.currentTimeMillis();
+    }
+  }
+
+  // The call told us nothing about the endpoint's health
+  public synchronized void onIgnored() {
+    trialInFlight = false;
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+}
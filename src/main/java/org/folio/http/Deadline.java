@@ -0,0 +1,102 @@
+package org.folio.http;
+
+import org.folio.exception.DeadlineExceededException;
+import org.folio.metrics.ConnectorMetrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+  The time by which an inbound request has to be answered
+
+  The endpoint handling the request starts the deadline, which is carried
+  along in the endpoint's copy of the request's Okapi headers so every
+  outbound call made with them is given no longer than the time that's
+  left. The header isn't an x-okapi- one, so work we carry on with after
+  responding (the RA outbox, async orderline updates, cache refreshes)
+  doesn't inherit it, and OutboundRequest doesn't pass it on.
+*/
+public final class Deadline {
+
+  public static final String HEADER = "x-connector-deadline";
+
+  private static final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+    Thread thread = new Thread(runnable, "deadline");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private static final ConnectorMetrics.Counter exceeded = ConnectorMetrics.counter("request_deadline_exceeded_total");
+
+  static {
+    scheduler.setRemoveOnCancelPolicy(true);
+  }
+
+  private final long expiresAt;
+
+  private Deadline(long expiresAt) {
+    this.expiresAt = expiresAt;
+  }
+
+  // Start a deadline of timeoutMs for the request these are the headers of
+  public static Deadline start(Map<String, String> headers, long timeoutMs) {
+    Deadline deadline = new Deadline(System.currentTimeMillis() + timeoutMs);
+    headers.put(HEADER, Long.toString(deadline.expiresAt));
+    return deadline;
+  }
+
+  // The deadline of the request these are the headers of, if it has one
+  public static Deadline from(Map<String, String> headers) {
+    String value = headers != null ? headers.get(HEADER) : null;
+    if (value == null) {
+      return null;
+    }
+    try {
+      return new Deadline(Long.parseLong(value));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  // A copy of these headers without a deadline, for work that carries on
+  // after the request has been answered
+  public static Map<String, String> detach(Map<String, String> headers) {
+    Map<String, String> detached = new HashMap<>(headers);
+    detached.remove(HEADER);
+    return detached;
+  }
+
+  public long remainingMillis() {
+    return Math.max(0, expiresAt - System.currentTimeMillis());
+  }
+
+  public boolean isExpired() {
+    return remainingMillis() == 0;
+  }
+
+  // A future completing as this one does, or failing with a
+  // DeadlineExceededException if it hasn't by the deadline
+  public <T> CompletableFuture<T> bound(CompletableFuture<T> future) {
+    if (future.isDone()) {
+      return future;
+    }
+    CompletableFuture<T> result = new CompletableFuture<>();
+    ScheduledFuture<?> timer = scheduler.schedule(() -> {
+      if (result.completeExceptionally(new DeadlineExceededException("The request did not complete in time"))) {
+        exceeded.increment();
+      }
+    }, remainingMillis(), TimeUnit.MILLISECONDS);
+    future.whenComplete((value, t) -> {
+      timer.cancel(false);
+      if (t != null) {
+        result.completeExceptionally(t);
+      } else {
+        result.complete(value);
+      }
+    });
+    return result;
+  }
+}
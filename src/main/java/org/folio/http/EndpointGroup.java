@@ -0,0 +1,10 @@
+package org.folio.http;
+
+// The groups of BLDSS endpoints that are isolated from each other by an
+// EndpointGuard
+public enum EndpointGroup {
+  SEARCH,
+  ORDERS,
+  CANCELS,
+  REFERENCE
+}
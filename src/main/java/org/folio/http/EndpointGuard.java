@@ -0,0 +1,85 @@
+package org.folio.http;
+
+import org.folio.exception.EndpointUnavailableException;
+import org.folio.metrics.ConnectorMetrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import static org.folio.config.Constants.BULKHEAD_MAX_IN_FLIGHT;
+import static org.folio.config.Constants.BULKHEAD_MAX_QUEUE;
+import static org.folio.config.Constants.CIRCUIT_FAILURE_THRESHOLD;
+import static org.folio.config.Constants.CIRCUIT_OPEN_MS;
+
+/*
+  Keeps each group of BLDSS endpoints from affecting the others
+
+  Every group has its own Bulkhead and CircuitBreaker, so a slow or failing
+  group uses up its own slots and opens its own circuit while the rest
+  carry on as normal. Calls to a group whose circuit is open, or whose
+  bulkhead is full, fail straight away with an EndpointUnavailableException.
+
+  A call fails, as far as the circuit is concerned, if it throws or BLDSS
+  responds with a 5xx. The defaults can be overridden per group, e.g.
+  -Dbulkhead.orders.max.in.flight=4
+*/
+public class EndpointGuard {
+
+  private static final Map<EndpointGroup, EndpointGuard> guards = new EnumMap<>(EndpointGroup.class);
+
+  static {
+    for (EndpointGroup group : EndpointGroup.values()) {
+      guards.put(group, new EndpointGuard(group));
+    }
+  }
+
+  private final String name;
+  private final Bulkhead bulkhead;
+  private final CircuitBreaker circuitBreaker;
+  private final ConnectorMetrics.Counter circuitRejected;
+  private final ConnectorMetrics.Counter bulkheadRejected;
+
+  private EndpointGuard(EndpointGroup group) {
+    this.name = group.name().toLowerCase(Locale.ROOT);
+    this.bulkhead = new Bulkhead(name,
+      Integer.getInteger("bulkhead." + name + ".max.in.flight", BULKHEAD_MAX_IN_FLIGHT),
+      Integer.getInteger("bulkhead." + name + ".max.queue", BULKHEAD_MAX_QUEUE));
+    this.circuitBreaker = new CircuitBreaker(name,
+      Integer.getInteger("circuit." + name + ".failure.threshold", CIRCUIT_FAILURE_THRESHOLD),
+      Long.getLong("circuit." + name + ".open.ms", CIRCUIT_OPEN_MS));
+    this.circuitRejected = ConnectorMetrics.counter("circuit_rejected_total", "group", name);
+    this.bulkheadRejected = ConnectorMetrics.counter("bulkhead_rejected_total", "group", name);
+    ConnectorMetrics.gauge("circuit_state", () -> circuitBreaker.getState().ordinal(), "group", name);
+    ConnectorMetrics.gauge("bulkhead_in_flight", bulkhead::getInFlight, "group", name);
+    ConnectorMetrics.gauge("bulkhead_queued", bulkhead::getQueued, "group", name);
+  }
+
+  public static EndpointGuard forGroup(EndpointGroup group) {
+    return guards.get(group);
+  }
+
+  public CompletableFuture<OutboundResponse> call(Supplier<CompletableFuture<OutboundResponse>> call) {
+    if (!circuitBreaker.tryAcquire()) {
+      circuitRejected.increment();
+      CompletableFuture<OutboundResponse> future = new CompletableFuture<>();
+      future.completeExceptionally(new EndpointUnavailableException(
+        "BLDSS " + name + " is unavailable, try again later"));
+      return future;
+    }
+    return bulkhead.submit(call).whenComplete((response, t) -> {
+      Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+      if (cause instanceof EndpointUnavailableException) {
+        bulkheadRejected.increment();
+        circuitBreaker.onIgnored();
+      } else if (cause != null || response.statusCode() >= 500) {
+        circuitBreaker.onFailure();
+      } else {
+        circuitBreaker.onSuccess();
+      }
+    });
+  }
+}
@@ -0,0 +1,162 @@
+package org.folio.http;
+
+import org.folio.metrics.ConnectorMetrics;
+import org.folio.metrics.LatencyHistogram;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.folio.config.Constants.SEARCH_HEDGE_BUDGET_PERCENT;
+import static org.folio.config.Constants.SEARCH_HEDGE_MIN_SAMPLES;
+import static org.folio.config.Constants.SEARCH_HEDGE_PERCENTILE;
+import static org.folio.config.Constants.SEARCH_LATENCY_WINDOW_MS;
+
+/*
+  Hedges calls that are taking longer than they usually do
+
+  There is one Hedger per key (a tenant), keeping a LatencyHistogram of
+  that key's recent calls. Once it has SEARCH_HEDGE_MIN_SAMPLES, a call
+  still waiting after SEARCH_HEDGE_PERCENTILE of recent calls completed
+  is made again, and whichever attempt succeeds first is used. If one
+  attempt fails we wait for the other.
+
+  Every call adds SEARCH_HEDGE_BUDGET_PERCENT / 100 of a token to a budget,
+  and every hedge takes a whole token, so hedges add at most that
+  percentage to the calls we make. Calls the budget can't cover aren't
+  hedged.
+
+  The attempt that loses is cancelled, which means its response is
+  dropped: the transports can't abort a request once it's been sent.
+*/
+public class Hedger {
+
+  private static final double MAX_BUDGET = 10;
+
+  private static final ConcurrentHashMap<String, Hedger> hedgers = new ConcurrentHashMap<>();
+  private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "hedger");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private static final ConnectorMetrics.Counter hedges = ConnectorMetrics.counter("search_hedges_total");
+  private static final ConnectorMetrics.Counter hedgeWins = ConnectorMetrics.counter("search_hedge_wins_total");
+  private static final ConnectorMetrics.Counter overBudget = ConnectorMetrics.counter("search_hedges_over_budget_total");
+
+  private final int minSamples;
+  private final double percentile;
+  private final double budgetPercent;
+
+  private final LatencyHistogram latency = new LatencyHistogram(SEARCH_LATENCY_WINDOW_MS, 10);
+  private double budget;
+
+  Hedger(int minSamples, double percentile, double budgetPercent) {
+    this.minSamples = minSamples;
+    this.percentile = percentile;
+    this.budgetPercent = budgetPercent;
+  }
+
+  public static Hedger forKey(String key) {
+    return hedgers.computeIfAbsent(key, k -> {
+      Hedger hedger = new Hedger(SEARCH_HEDGE_MIN_SAMPLES, SEARCH_HEDGE_PERCENTILE, SEARCH_HEDGE_BUDGET_PERCENT);
+      ConnectorMetrics.gauge("search_latency_hedge_threshold_ms", hedger::getDelayMillis, "tenant", k);
+      return hedger;
+    });
+  }
+
+  // Record how long a call took, whether or not it was hedged
+  public void record(long nanos) {
+    latency.record(nanos);
+  }
+
+  // How long to wait before hedging, or -1 if we don't know yet
+  public long getDelayMillis() {
+    if (latency.count() < minSamples) {
+      return -1;
+    }
+    return latency.percentileMillis(percentile);
+  }
+
+  public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> attempt) {
+    deposit();
+    long delayMs = getDelayMillis();
+    if (delayMs < 0) {
+      return attempt.get();
+    }
+    CompletableFuture<T> result = new CompletableFuture<>();
+    AtomicReference<CompletableFuture<T>> hedge = new AtomicReference<>();
+    CompletableFuture<T> primary = start(attempt);
+    ScheduledFuture<?> timer = scheduler.schedule(() -> {
+      if (result.isDone()) {
+        return;
+      }
+      if (!withdraw()) {
+        overBudget.increment();
+        return;
+      }
+      hedges.increment();
+      CompletableFuture<T> secondary = start(attempt);
+      hedge.set(secondary);
+      // The primary may have finished while this was starting, too soon
+      // to see it and cancel it
+      if (result.isDone()) {
+        secondary.cancel(true);
+        return;
+      }
+      secondary.whenComplete((value, t) -> {
+        if (t == null) {
+          if (result.complete(value)) {
+            hedgeWins.increment();
+            primary.cancel(true);
+          }
+        } else if (primary.isCompletedExceptionally()) {
+          result.completeExceptionally(t);
+        }
+      });
+    }, delayMs, TimeUnit.MILLISECONDS);
+    primary.whenComplete((value, t) -> {
+      CompletableFuture<T> secondary = hedge.get();
+      if (t == null) {
+        result.complete(value);
+      } else if (secondary == null || secondary.isCompletedExceptionally()) {
+        result.completeExceptionally(t);
+      }
+      if (result.isDone()) {
+        timer.cancel(false);
+        // Looked up again, as the hedge may have started since
+        secondary = hedge.get();
+        if (secondary != null) {
+          secondary.cancel(true);
+        }
+      }
+    });
+    return result;
+  }
+
+  private static <T> CompletableFuture<T> start(Supplier<CompletableFuture<T>> attempt) {
+    try {
+      return attempt.get();
+    } catch (Exception e) {
+      CompletableFuture<T> future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+      return future;
+    }
+  }
+
+  private synchronized void deposit() {
+    budget = Math.min(MAX_BUDGET, budget + budgetPercent / 100);
+  }
+
+  private synchronized boolean withdraw() {
+    if (budget < 1) {
+      return false;
+    }
+    budget -= 1;
+    return true;
+  }
+}
@@ -0,0 +1,143 @@
+package org.folio.http;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.folio.config.Constants.HTTP_CLIENT_CONNECT_TIMEOUT_MS;
+import static org.folio.config.Constants.HTTP_CLIENT_KEEPALIVE_SECONDS;
+import static org.folio.config.Constants.HTTP_CLIENT_POOL_SIZE;
+import static org.folio.config.Constants.HTTP_CLIENT_THREADS;
+import static org.folio.config.Constants.HTTP_CLIENT_TRANSPORT;
+
+/*
+  One place to get outbound HTTP clients from
+
+  Clients are shared per tenant and base URL (scheme, host and port) so
+  connections, and their TLS sessions, are kept alive and reused between
+  requests rather than being set up again for every call. Clients are
+  discarded when the verticle is stopped.
+
+  Calls go through the transport() selected by HTTP_CLIENT_TRANSPORT:
+  "webclient" (the default) uses Vert.x WebClients bound to the calling
+  context, "jdk" uses JDK HttpClients sharing one executor.
+*/
+public final class HttpClientRegistry {
+
+  private static final Logger logger = LogManager.getLogger(HttpClientRegistry.class);
+
+  private static final ConcurrentHashMap<String, HttpClient> clients = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<String, WebClient> webClients = new ConcurrentHashMap<>();
+  private static ExecutorService executor;
+  private static volatile Vertx vertx;
+  private static volatile OutboundTransport transport;
+
+  private HttpClientRegistry() {
+  }
+
+  // Called when the verticle starts
+  public static synchronized void start(Vertx vertx) {
+    HttpClientRegistry.vertx = vertx;
+    if ("jdk".equalsIgnoreCase(HTTP_CLIENT_TRANSPORT)) {
+      transport = new JdkOutboundTransport();
+    } else {
+      transport = new WebClientOutboundTransport(vertx);
+    }
+    logger.info("Outbound HTTP transport: {}", transport.getClass().getSimpleName());
+    // The JDK client reads these once, so they need setting before the
+    // first client is built. Anything set on the command line wins.
+    if (System.getProperty("jdk.httpclient.connectionPoolSize") == null) {
+      System.setProperty("jdk.httpclient.connectionPoolSize", String.valueOf(HTTP_CLIENT_POOL_SIZE));
+    }
+    if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+      System.setProperty("jdk.httpclient.keepalive.timeout", String.valueOf(HTTP_CLIENT_KEEPALIVE_SECONDS));
+    }
+  }
+
+  // Called when the verticle stops
+  public static synchronized void close() {
+    clients.clear();
+    webClients.values().forEach(WebClient::close);
+    webClients.clear();
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+    logger.info("Outbound HTTP clients closed");
+  }
+
+  // Send every call through this transport instead, for tests
+  public static void use(OutboundTransport transport) {
+    HttpClientRegistry.transport = transport;
+  }
+
+  public static OutboundTransport transport() {
+    if (transport == null) {
+      throw new IllegalStateException("Outbound HTTP transport has not been started");
+    }
+    return transport;
+  }
+
+  // Get the JDK client for this tenant and the host we're about to call
+  public static HttpClient getClient(String tenant, URI uri) {
+    return clients.computeIfAbsent(tenant + "|" + baseUrl(uri), key -> {
+      logger.info("Creating outbound HTTP client for {}", key);
+      return HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .connectTimeout(Duration.ofMillis(HTTP_CLIENT_CONNECT_TIMEOUT_MS))
+        .executor(getExecutor())
+        .build();
+    });
+  }
+
+  // Get the Vert.x client for this tenant and the host we're about to call
+  public static WebClient getWebClient(String tenant, URI uri) {
+    return webClients.computeIfAbsent(tenant + "|" + baseUrl(uri), key -> {
+      logger.info("Creating outbound WebClient for {}", key);
+      WebClientOptions options = new WebClientOptions()
+        .setMaxPoolSize(HTTP_CLIENT_POOL_SIZE)
+        .setKeepAlive(true)
+        .setKeepAliveTimeout(HTTP_CLIENT_KEEPALIVE_SECONDS)
+        .setConnectTimeout((int) HTTP_CLIENT_CONNECT_TIMEOUT_MS);
+      // Negotiate HTTP/2 over TLS, falling back to HTTP/1.1 if the server
+      // doesn't offer it
+      if ("https".equalsIgnoreCase(uri.getScheme())) {
+        options.setProtocolVersion(HttpVersion.HTTP_2)
+          .setUseAlpn(true)
+          .setHttp2MaxPoolSize(HTTP_CLIENT_POOL_SIZE);
+      }
+      return WebClient.create(vertx, options);
+    });
+  }
+
+  public static int size() {
+    return clients.size() + webClients.size();
+  }
+
+  private static String baseUrl(URI uri) {
+    return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() > -1 ? ":" + uri.getPort() : "");
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      AtomicInteger count = new AtomicInteger();
+      executor = Executors.newFixedThreadPool(HTTP_CLIENT_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "outbound-http-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return executor;
+  }
+}
@@ -0,0 +1,51 @@
+package org.folio.http;
+
+import org.folio.metrics.PendingFutures;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/*
+  Sends requests with the JDK's HttpClient. Responses complete on the
+  registry's executor rather than on a Vert.x context.
+*/
+public class JdkOutboundTransport implements OutboundTransport {
+
+  @Override
+  public CompletableFuture<OutboundResponse> send(OutboundRequest request, String tenant) {
+    CompletableFuture<OutboundResponse> future = PendingFutures.track("outbound", new CompletableFuture<>());
+    if (request.getDeadline() != null && request.getDeadline().isExpired()) {
+      future.completeExceptionally(request.failure(null));
+      return future;
+    }
+    HttpRequest.Builder builder = HttpRequest.newBuilder(request.getUri())
+      .timeout(Duration.ofMillis(Math.max(1, request.getTimeoutMillis())));
+    for (Map.Entry<String, String> entry : request.getHeaders().entrySet()) {
+      builder.header(entry.getKey(), entry.getValue());
+    }
+    HttpRequest.BodyPublisher publisher = request.getBody() != null ?
+      HttpRequest.BodyPublishers.ofByteArray(request.getBody()) :
+      HttpRequest.BodyPublishers.noBody();
+    builder.method(request.getMethod(), publisher);
+
+    HttpClient client = HttpClientRegistry.getClient(tenant, request.getUri());
+    client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofByteArray())
+      .whenComplete((response, t) -> {
+        if (t != null) {
+          Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+          future.completeExceptionally(request.failure(cause));
+          return;
+        }
+        Map<String, String> headers = new HashMap<>();
+        response.headers().map().forEach((name, values) -> headers.put(name, String.join(",", values)));
+        future.complete(new OutboundResponse(response.statusCode(), headers, response.body()));
+      });
+    return future;
+  }
+}
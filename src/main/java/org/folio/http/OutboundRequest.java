@@ -0,0 +1,105 @@
+package org.folio.http;
+
+import org.folio.exception.DeadlineExceededException;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.folio.config.Constants.HTTP_CLIENT_REQUEST_TIMEOUT_MS;
+
+/*
+  A transport independent description of a call we want to make
+*/
+public class OutboundRequest {
+
+  private static final String CONTEXT_HEADER_PREFIX = "x-connector-";
+
+  private final String method;
+  private final URI uri;
+  private final Map<String, String> headers = new LinkedHashMap<>();
+  private byte[] body;
+  private Deadline deadline;
+
+  public OutboundRequest(String method, URI uri) {
+    this.method = method;
+    this.uri = uri;
+  }
+
+  public static OutboundRequest get(URI uri) {
+    return new OutboundRequest("GET", uri);
+  }
+
+  public static OutboundRequest post(URI uri, String body) {
+    return new OutboundRequest("POST", uri).body(body);
+  }
+
+  public OutboundRequest header(String name, String value) {
+    this.headers.put(name, value);
+    return this;
+  }
+
+  // Add a request's headers, leaving out the ones we carry its context
+  // in (its deadline, the endpoint that received it), which are ours
+  public OutboundRequest headers(Map<String, String> headers) {
+    headers.forEach((name, value) -> {
+      if (!name.toLowerCase(Locale.ROOT).startsWith(CONTEXT_HEADER_PREFIX)) {
+        this.headers.put(name, value);
+      }
+    });
+    return this;
+  }
+
+  public OutboundRequest body(String body) {
+    this.body = body != null ? body.getBytes(StandardCharsets.UTF_8) : null;
+    return this;
+  }
+
+  public OutboundRequest body(byte[] body) {
+    this.body = body;
+    return this;
+  }
+
+  // Give up on the call once the deadline passes, null for no deadline
+  public OutboundRequest deadline(Deadline deadline) {
+    this.deadline = deadline;
+    return this;
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  public URI getUri() {
+    return uri;
+  }
+
+  public Map<String, String> getHeaders() {
+    return headers;
+  }
+
+  public byte[] getBody() {
+    return body;
+  }
+
+  public Deadline getDeadline() {
+    return deadline;
+  }
+
+  // How long the transport should wait for a response
+  public long getTimeoutMillis() {
+    return deadline != null
+      ? Math.min(deadline.remainingMillis(), HTTP_CLIENT_REQUEST_TIMEOUT_MS)
+      : HTTP_CLIENT_REQUEST_TIMEOUT_MS;
+  }
+
+  // Why the call failed, in terms of the deadline if that's what we ran into
+  public Throwable failure(Throwable cause) {
+    if (deadline != null && deadline.isExpired()) {
+      return new DeadlineExceededException("No response from " + uri.getHost() + " in time");
+    }
+    return cause;
+  }
+}
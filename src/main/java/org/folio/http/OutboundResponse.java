@@ -0,0 +1,46 @@
+package org.folio.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/*
+  The response to an OutboundRequest, whichever transport carried it
+*/
+public class OutboundResponse {
+
+  private final int statusCode;
+  private final Map<String, String> headers;
+  private final byte[] body;
+
+  public OutboundResponse(int statusCode, Map<String, String> headers, byte[] body) {
+    this.statusCode = statusCode;
+    this.headers = headers;
+    this.body = body != null ? body : new byte[0];
+  }
+
+  public int statusCode() {
+    return statusCode;
+  }
+
+  public boolean isSuccess() {
+    return statusCode >= 200 && statusCode < 300;
+  }
+
+  public Map<String, String> headers() {
+    return headers;
+  }
+
+  public String body() {
+    return new String(body, StandardCharsets.UTF_8);
+  }
+
+  public byte[] bodyAsBytes() {
+    return body;
+  }
+
+  public InputStream bodyAsStream() {
+    return new ByteArrayInputStream(body);
+  }
+}
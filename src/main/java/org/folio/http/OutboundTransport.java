@@ -0,0 +1,16 @@
+package org.folio.http;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface OutboundTransport {
+
+  /**
+   * Send a request on behalf of a tenant
+   *
+   * @param request The request to send
+   * @param tenant The tenant the request is being made for
+   * @return A future completing with the response, or failing if the
+   * request could not be made
+   */
+  CompletableFuture<OutboundResponse> send(OutboundRequest request, String tenant);
+}
@@ -0,0 +1,208 @@
+package org.folio.http;
+
+import org.folio.exception.HttpException;
+import org.folio.metrics.ConnectorMetrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.folio.config.Constants.BLDSS_RATE_LIMIT_BURST;
+import static org.folio.config.Constants.BLDSS_RATE_LIMIT_MAX_WAIT_MS;
+import static org.folio.config.Constants.BLDSS_RATE_LIMIT_PER_SECOND;
+import static org.folio.config.Constants.BLDSS_RATE_LIMIT_QUEUE_SIZE;
+
+/*
+  Token bucket rate limiting of the calls we make to BLDSS
+
+  There is one bucket per key (a tenant, plus its API key where we have
+  one) holding up to BLDSS_RATE_LIMIT_BURST tokens, refilled at
+  BLDSS_RATE_LIMIT_PER_SECOND. A call takes a token before it's made, if
+  there isn't one it waits in the bucket's queue:
+
+  - INTERACTIVE callers are always let through before BATCH ones
+  - The queue holds at most BLDSS_RATE_LIMIT_QUEUE_SIZE callers, once it's
+    full a new INTERACTIVE caller takes the place of the most recent BATCH
+    one, otherwise the new caller is turned away
+  - A caller still waiting after BLDSS_RATE_LIMIT_MAX_WAIT_MS is turned
+    away
+
+  Callers that are turned away fail with an HttpException(429). A rate of
+  0 or less turns limiting off.
+*/
+public class RateLimiter {
+
+  public enum Priority {
+    INTERACTIVE,
+    BATCH
+  }
+
+  private static final ConcurrentHashMap<String, RateLimiter> limiters = new ConcurrentHashMap<>();
+  private static final AtomicInteger queued = new AtomicInteger();
+  private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "bldss-rate-limiter");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  static {
+    ConnectorMetrics.gauge("bldss_rate_limit_queued", queued::get);
+  }
+
+  private final double perSecond;
+  private final int burst;
+  private final int queueSize;
+  private final long maxWaitMs;
+
+  private final ArrayDeque<Waiter> interactive = new ArrayDeque<>();
+  private final ArrayDeque<Waiter> batch = new ArrayDeque<>();
+  private double tokens;
+  private long refilledAt = System.nanoTime();
+  private boolean drainScheduled;
+
+  RateLimiter(double perSecond, int burst, int queueSize, long maxWaitMs) {
+    this.perSecond = perSecond;
+    this.burst = burst;
+    this.queueSize = queueSize;
+    this.maxWaitMs = maxWaitMs;
+    this.tokens = burst;
+  }
+
+  public static RateLimiter forKey(String key) {
+    return limiters.computeIfAbsent(key, k -> new RateLimiter(BLDSS_RATE_LIMIT_PER_SECOND,
+      BLDSS_RATE_LIMIT_BURST, BLDSS_RATE_LIMIT_QUEUE_SIZE, BLDSS_RATE_LIMIT_MAX_WAIT_MS));
+  }
+
+  // Complete once the caller may make its call
+  public CompletableFuture<Void> acquire(Priority priority) {
+    if (perSecond <= 0) {
+      return CompletableFuture.completedFuture(null);
+    }
+    Waiter evicted = null;
+    Waiter waiter;
+    synchronized (this) {
+      refill(System.nanoTime());
+      if (interactive.isEmpty() && batch.isEmpty() && tokens >= 1) {
+        tokens -= 1;
+        waitTime(priority).record(0);
+        return CompletableFuture.completedFuture(null);
+      }
+      if (interactive.size() + batch.size() >= queueSize) {
+        if (priority == Priority.BATCH || batch.isEmpty()) {
+          return reject(priority, "Too many requests are waiting to be sent to BLDSS");
+        }
+        evicted = batch.pollLast();
+        queued.decrementAndGet();
+      }
+      waiter = new Waiter(priority);
+      (priority == Priority.INTERACTIVE ? interactive : batch).add(waiter);
+      queued.incrementAndGet();
+      scheduleDrain();
+    }
+    if (evicted != null) {
+      fail(evicted, "Too many requests are waiting to be sent to BLDSS");
+    }
+    return waiter.future;
+  }
+
+  private void drain() {
+    List<Waiter> granted = new ArrayList<>();
+    List<Waiter> expired = new ArrayList<>();
+    synchronized (this) {
+      drainScheduled = false;
+      long now = System.nanoTime();
+      refill(now);
+      expire(interactive, now, expired);
+      expire(batch, now, expired);
+      while (tokens >= 1 && !(interactive.isEmpty() && batch.isEmpty())) {
+        Waiter next = !interactive.isEmpty() ? interactive.poll() : batch.poll();
+        queued.decrementAndGet();
+        tokens -= 1;
+        granted.add(next);
+      }
+      if (!interactive.isEmpty() || !batch.isEmpty()) {
+        scheduleDrain();
+      }
+    }
+    for (Waiter waiter : expired) {
+      fail(waiter, "Timed out waiting to send a request to BLDSS");
+    }
+    for (Waiter waiter : granted) {
+      waitTime(waiter.priority).recordSince(waiter.queuedAt);
+      waiter.future.complete(null);
+    }
+  }
+
+  // Waiters are queued in arrival order, so the expired ones are at the front
+  private void expire(ArrayDeque<Waiter> queue, long now, List<Waiter> expired) {
+    long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+    while (!queue.isEmpty() && now - queue.peek().queuedAt > maxWaitNanos) {
+      expired.add(queue.poll());
+      queued.decrementAndGet();
+    }
+  }
+
+  private void refill(long now) {
+    double elapsedSeconds = (now - refilledAt) / 1_000_000_000d;
+    tokens = Math.min(burst, tokens + elapsedSeconds * perSecond);
+    refilledAt = now;
+  }
+
+  // Drain again once we expect the next token to be available, or the
+  // longest waiting caller to have waited too long, whichever is sooner
+  private void scheduleDrain() {
+    if (drainScheduled) {
+      return;
+    }
+    drainScheduled = true;
+    long delayMs = (long) Math.ceil(Math.max(0, 1 - tokens) / perSecond * 1000);
+    long oldest = Math.min(queuedAt(interactive), queuedAt(batch));
+    if (oldest != Long.MAX_VALUE) {
+      long expiresInMs = maxWaitMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest) + 1;
+      delayMs = Math.min(delayMs, expiresInMs);
+    }
+    scheduler.schedule(this::drain, Math.max(1, delayMs), TimeUnit.MILLISECONDS);
+  }
+
+  private static long queuedAt(ArrayDeque<Waiter> queue) {
+    Waiter first = queue.peek();
+    return first != null ? first.queuedAt : Long.MAX_VALUE;
+  }
+
+  private CompletableFuture<Void> reject(Priority priority, String message) {
+    ConnectorMetrics.counter("bldss_rate_limit_rejected_total", "priority", label(priority)).increment();
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    future.completeExceptionally(new HttpException(429, message));
+    return future;
+  }
+
+  private void fail(Waiter waiter, String message) {
+    ConnectorMetrics.counter("bldss_rate_limit_rejected_total", "priority", label(waiter.priority)).increment();
+    waiter.future.completeExceptionally(new HttpException(429, message));
+  }
+
+  private static ConnectorMetrics.Timer waitTime(Priority priority) {
+    return ConnectorMetrics.timer("bldss_rate_limit_wait_seconds", "priority", label(priority));
+  }
+
+  private static String label(Priority priority) {
+    return priority.name().toLowerCase(Locale.ROOT);
+  }
+
+  private static class Waiter {
+    private final Priority priority;
+    private final long queuedAt = System.nanoTime();
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    private Waiter(Priority priority) {
+      this.priority = priority;
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package org.folio.http;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.folio.rest.RestVerticle.OKAPI_HEADER_TENANT;
+import static org.folio.rest.RestVerticle.OKAPI_HEADER_TOKEN;
+
+/*
+  The Okapi token each tenant most recently called us with
+
+  Tokens are never written to disk, so work replayed after a restart (RA
+  messages left in the outbox journal) has no token of its own and is
+  sent with the tenant's latest one instead, as whichever user that
+  token belongs to. Only endpoints that require permissions remember
+  their caller's token. Anything waiting on a tenant's token can listen
+  for it changing.
+*/
+public class TenantTokens {
+
+  private static final TenantTokens INSTANCE = new TenantTokens();
+
+  private final Map<String, String> tokens = new ConcurrentHashMap<>();
+  private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+  public static TenantTokens getInstance() {
+    return INSTANCE;
+  }
+
+  // Remember the token these headers carry, letting the listeners know
+  // if it's one we haven't seen for the tenant
+  public void remember(Map<String, String> okapiHeaders) {
+    String tenant = okapiHeaders.get(OKAPI_HEADER_TENANT);
+    String token = okapiHeaders.get(OKAPI_HEADER_TOKEN);
+    if (tenant == null || token == null || token.isEmpty()) {
+      return;
+    }
+    String previous = tokens.put(tenant, token);
+    if (!token.equals(previous)) {
+      for (Consumer<String> listener : listeners) {
+        listener.accept(tenant);
+      }
+    }
+  }
+
+  // The tenant's latest token, or null if it hasn't called us with one
+  public String get(String tenant) {
+    return tenant != null ? tokens.get(tenant) : null;
+  }
+
+  // A copy of these headers carrying the tenant's latest token
+  public Map<String, String> withToken(Map<String, String> okapiHeaders) {
+    Map<String, String> headers = new HashMap<>(okapiHeaders);
+    String token = get(okapiHeaders.get(OKAPI_HEADER_TENANT));
+    if (token != null) {
+      headers.put(OKAPI_HEADER_TOKEN, token);
+    }
+    return headers;
+  }
+
+  // Called with the tenant whenever a tenant's token changes
+  public void onNewToken(Consumer<String> listener) {
+    listeners.add(listener);
+  }
+}
@@ -0,0 +1,76 @@
+package org.folio.http;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import org.folio.metrics.PendingFutures;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/*
+  Sends requests with a Vert.x WebClient on the caller's context, so the
+  returned future, and anything chained on it, completes on the same
+  event loop that handled the inbound request
+*/
+public class WebClientOutboundTransport implements OutboundTransport {
+
+  private final Vertx vertx;
+
+  public WebClientOutboundTransport(Vertx vertx) {
+    this.vertx = vertx;
+  }
+
+  @Override
+  public CompletableFuture<OutboundResponse> send(OutboundRequest request, String tenant) {
+    CompletableFuture<OutboundResponse> future = PendingFutures.track("outbound", new CompletableFuture<>());
+    if (request.getDeadline() != null && request.getDeadline().isExpired()) {
+      future.completeExceptionally(request.failure(null));
+      return future;
+    }
+    Context context = Vertx.currentContext();
+    if (context != null) {
+      doSend(request, tenant, future);
+    } else {
+      // We've been called from outside Vert.x, hop onto a context first
+      vertx.getOrCreateContext().runOnContext(v -> doSend(request, tenant, future));
+    }
+    return future;
+  }
+
+  private void doSend(OutboundRequest request, String tenant, CompletableFuture<OutboundResponse> future) {
+    try {
+      WebClient client = HttpClientRegistry.getWebClient(tenant, request.getUri());
+      HttpRequest<Buffer> httpRequest = client.requestAbs(
+        HttpMethod.valueOf(request.getMethod()),
+        request.getUri().toString()
+      ).timeout(Math.max(1, request.getTimeoutMillis()));
+      for (Map.Entry<String, String> entry : request.getHeaders().entrySet()) {
+        httpRequest.putHeader(entry.getKey(), entry.getValue());
+      }
+      if (request.getBody() != null) {
+        httpRequest.sendBuffer(Buffer.buffer(request.getBody()), ar -> complete(request, future, ar.succeeded() ? ar.result() : null, ar.cause()));
+      } else {
+        httpRequest.send(ar -> complete(request, future, ar.succeeded() ? ar.result() : null, ar.cause()));
+      }
+    } catch (Exception e) {
+      future.completeExceptionally(e);
+    }
+  }
+
+  private void complete(OutboundRequest request, CompletableFuture<OutboundResponse> future, HttpResponse<Buffer> response, Throwable cause) {
+    if (response == null) {
+      future.completeExceptionally(request.failure(cause));
+      return;
+    }
+    Map<String, String> headers = new HashMap<>();
+    response.headers().forEach(entry -> headers.merge(entry.getKey(), entry.getValue(), (a, b) -> a + "," + b));
+    Buffer body = response.body();
+    future.complete(new OutboundResponse(response.statusCode(), headers, body != null ? body.getBytes() : null));
+  }
+}
@@ -0,0 +1,141 @@
+package org.folio.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+  Process wide registry of the connector's metrics
+
+  A metric is identified by its name plus an optional list of label
+  name / value pairs, asking for the same name and labels again returns
+  the same metric
+*/
+public class ConnectorMetrics {
+
+  private static final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+  private ConnectorMetrics() {
+  }
+
+  public static Counter counter(String name, String... labels) {
+    return counters.computeIfAbsent(key(name, labels), k -> new Counter(name, labels));
+  }
+
+  public static Timer timer(String name, String... labels) {
+    return timers.computeIfAbsent(key(name, labels), k -> new Timer(name, labels));
+  }
+
+  // Register a gauge, replacing any existing gauge with the same name and labels
+  public static Gauge gauge(String name, Supplier<Number> value, String... labels) {
+    Gauge gauge = new Gauge(name, labels, value);
+    gauges.put(key(name, labels), gauge);
+    return gauge;
+  }
+
+  public static Map<String, Counter> counters() {
+    return counters;
+  }
+
+  public static Map<String, Gauge> gauges() {
+    return gauges;
+  }
+
+  public static Map<String, Timer> timers() {
+    return timers;
+  }
+
+  private static String key(String name, String... labels) {
+    if (labels.length % 2 != 0) {
+      throw new IllegalArgumentException("Labels must be name / value pairs: " + name);
+    }
+    if (labels.length == 0) {
+      return name;
+    }
+    return name + "{" + String.join(",", labels) + "}";
+  }
+
+  public abstract static class Metric {
+    private final String name;
+    private final String[] labels;
+
+    private Metric(String name, String[] labels) {
+      this.name = name;
+      this.labels = labels.clone();
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    // Alternating label names and values
+    public String[] getLabels() {
+      return labels.clone();
+    }
+  }
+
+  public static class Counter extends Metric {
+    private final LongAdder count = new LongAdder();
+
+    private Counter(String name, String[] labels) {
+      super(name, labels);
+    }
+
+    public void increment() {
+      count.increment();
+    }
+
+    public void add(long amount) {
+      count.add(amount);
+    }
+
+    public long get() {
+      return count.sum();
+    }
+  }
+
+  // Counts events and their total duration
+  public static class Timer extends Metric {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    private Timer(String name, String[] labels) {
+      super(name, labels);
+    }
+
+    // Record the time since startNanos, a value from System.nanoTime()
+    public void recordSince(long startNanos) {
+      record(System.nanoTime() - startNanos);
+    }
+
+    public void record(long nanos) {
+      count.increment();
+      totalNanos.add(nanos);
+    }
+
+    public long getCount() {
+      return count.sum();
+    }
+
+    public long getTotalNanos() {
+      return totalNanos.sum();
+    }
+  }
+
+  public static class Gauge extends Metric {
+    private final Supplier<Number> value;
+
+    private Gauge(String name, String[] labels, Supplier<Number> value) {
+      super(name, labels);
+      this.value = value;
+    }
+
+    public double get() {
+      Number number = value.get();
+      return number != null ? number.doubleValue() : 0;
+    }
+  }
+}
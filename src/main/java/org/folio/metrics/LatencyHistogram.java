@@ -0,0 +1,88 @@
+package org.folio.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/*
+  A histogram of recent latencies, for estimating percentiles
+
+  Latencies are counted in buckets each 20% wider than the last, from
+  0.5ms up to 2 minutes, so a percentile is accurate to within a bucket.
+  Only the last windowMs is counted: the window is split into slices, and
+  a slice is cleared before it's reused.
+*/
+public class LatencyHistogram {
+
+  private static final long[] BOUNDS_MICROS = bounds();
+
+  private final long sliceMs;
+  private final long[][] counts;
+  private final long[] sliceIds;
+
+  public LatencyHistogram(long windowMs, int slices) {
+    this.sliceMs = Math.max(1, windowMs / slices);
+    this.counts = new long[slices][BOUNDS_MICROS.length];
+    this.sliceIds = new long[slices];
+    Arrays.fill(sliceIds, -1);
+  }
+
+  public synchronized void record(long nanos) {
+    long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+    int bucket = Arrays.binarySearch(BOUNDS_MICROS, micros);
+    if (bucket < 0) {
+      bucket = Math.min(-bucket - 1, BOUNDS_MICROS.length - 1);
+    }
+    long sliceId = System.currentTimeMillis() / sliceMs;
+    int index = (int) (sliceId % counts.length);
+    if (sliceIds[index] != sliceId) {
+      Arrays.fill(counts[index], 0);
+      sliceIds[index] = sliceId;
+    }
+    counts[index][bucket]++;
+  }
+
+  public synchronized long count() {
+    return Arrays.stream(totals()).sum();
+  }
+
+  // The latency, in milliseconds, that this percentage of recent calls
+  // completed within, or -1 if there haven't been any
+  public synchronized long percentileMillis(double percentile) {
+    long[] totals = totals();
+    long rank = (long) Math.ceil(Arrays.stream(totals).sum() * percentile / 100d);
+    if (rank == 0) {
+      return -1;
+    }
+    long seen = 0;
+    int bucket = 0;
+    while (bucket < totals.length - 1 && (seen += totals[bucket]) < rank) {
+      bucket++;
+    }
+    return Math.max(1, TimeUnit.MICROSECONDS.toMillis(BOUNDS_MICROS[bucket]));
+  }
+
+  // Counts per bucket over the slices still in the window
+  private long[] totals() {
+    long oldest = System.currentTimeMillis() / sliceMs - counts.length + 1;
+    long[] totals = new long[BOUNDS_MICROS.length];
+    for (int i = 0; i < counts.length; i++) {
+      if (sliceIds[i] >= oldest) {
+        for (int bucket = 0; bucket < totals.length; bucket++) {
+          totals[bucket] += counts[i][bucket];
+        }
+      }
+    }
+    return totals;
+  }
+
+  private static long[] bounds() {
+    long max = TimeUnit.MINUTES.toMicros(2);
+    long[] bounds = new long[128];
+    int size = 0;
+    for (double bound = 500; bound < max; bound *= 1.2) {
+      bounds[size++] = (long) bound;
+    }
+    bounds[size++] = max;
+    return Arrays.copyOf(bounds, size);
+  }
+}
@@ -0,0 +1,30 @@
+package org.folio.metrics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+  Counts the futures of each operation that haven't completed yet
+
+  Shown as the pending_futures gauge, labelled by operation, so futures
+  that never complete show up as a count that keeps climbing
+*/
+public final class PendingFutures {
+
+  private static final ConcurrentHashMap<String, AtomicInteger> pending = new ConcurrentHashMap<>();
+
+  private PendingFutures() {
+  }
+
+  public static <T> CompletableFuture<T> track(String operation, CompletableFuture<T> future) {
+    AtomicInteger count = pending.computeIfAbsent(operation, op -> {
+      AtomicInteger created = new AtomicInteger();
+      ConnectorMetrics.gauge("pending_futures", created::get, "operation", op);
+      return created;
+    });
+    count.incrementAndGet();
+    future.whenComplete((value, t) -> count.decrementAndGet());
+    return future;
+  }
+}
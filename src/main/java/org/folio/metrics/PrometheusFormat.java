@@ -0,0 +1,115 @@
+package org.folio.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/*
+  Renders the ConnectorMetrics registry in the Prometheus text format
+
+  - Counters and gauges are written as they are
+  - Timers are written as summaries, a _count and a _sum in seconds
+  - Metrics of the same name are grouped under one # TYPE line
+  - Only the calling tenant's series are written, along with those that
+    aren't labelled with a tenant
+*/
+public final class PrometheusFormat {
+
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private static final String TENANT_LABEL = "tenant";
+
+  private PrometheusFormat() {
+  }
+
+  public static String render(String tenant) {
+    StringBuilder out = new StringBuilder();
+    write(out, "counter", tenant, ConnectorMetrics.counters().values(), (name, counter) ->
+      sample(name, counter.getLabels(), counter.get()));
+    write(out, "gauge", tenant, ConnectorMetrics.gauges().values(), (name, gauge) ->
+      sample(name, gauge.getLabels(), gauge.get()));
+    write(out, "summary", tenant, ConnectorMetrics.timers().values(), (name, timer) ->
+      sample(name + "_count", timer.getLabels(), timer.getCount())
+        + sample(name + "_sum", timer.getLabels(), timer.getTotalNanos() / 1e9));
+    return out.toString();
+  }
+
+  private static <M extends ConnectorMetrics.Metric> void write(
+    StringBuilder out,
+    String type,
+    String tenant,
+    Iterable<M> metrics,
+    Renderer<M> renderer
+  ) {
+    Map<String, List<M>> byName = new TreeMap<>();
+    for (M metric : metrics) {
+      if (!isVisibleTo(metric, tenant)) {
+        continue;
+      }
+      byName.computeIfAbsent(sanitize(metric.getName()), name -> new ArrayList<>()).add(metric);
+    }
+    Function<M, String> labels = metric -> String.join(",", metric.getLabels());
+    byName.forEach((name, named) -> {
+      named.sort(Comparator.comparing(labels));
+      out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+      for (M metric : named) {
+        out.append(renderer.render(name, metric));
+      }
+    });
+  }
+
+  // Whether a metric is unlabelled with a tenant, or labelled with this one
+  private static boolean isVisibleTo(ConnectorMetrics.Metric metric, String tenant) {
+    String[] labels = metric.getLabels();
+    for (int i = 0; i < labels.length; i += 2) {
+      if (TENANT_LABEL.equals(labels[i])) {
+        return labels[i + 1].equals(tenant);
+      }
+    }
+    return true;
+  }
+
+  private static String sample(String name, String[] labels, double value) {
+    StringBuilder line = new StringBuilder(name);
+    if (labels.length > 0) {
+      line.append('{');
+      for (int i = 0; i < labels.length; i += 2) {
+        if (i > 0) {
+          line.append(',');
+        }
+        line.append(sanitize(labels[i])).append("=\"").append(escape(labels[i + 1])).append('"');
+      }
+      line.append('}');
+    }
+    line.append(' ');
+    if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      line.append((long) value);
+    } else {
+      line.append(value);
+    }
+    return line.append('\n').toString();
+  }
+
+  // Metric and label names may only contain letters, digits, _ and :
+  private static String sanitize(String name) {
+    StringBuilder sanitized = new StringBuilder(name.length());
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':'
+        || (i > 0 && c >= '0' && c <= '9');
+      sanitized.append(allowed ? c : '_');
+    }
+    return sanitized.toString();
+  }
+
+  private static String escape(String value) {
+    return String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private interface Renderer<M> {
+    String render(String name, M metric);
+  }
+}
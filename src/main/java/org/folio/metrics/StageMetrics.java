@@ -0,0 +1,108 @@
+package org.folio.metrics;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/*
+  Times the stages a request goes through on its way through the connector
+
+  Each stage is recorded in connector_stage_seconds, and its failures in
+  connector_stage_failures_total, labelled with the stage, the tenant and
+  the connector endpoint that received the request. The endpoint is
+  carried in the request's headers, work done outside of a request (the
+  RA outbox, cache refreshes) is labelled "background".
+
+  Stages:
+  - query_parse: CQL parsing and XCQL translation
+  - request_build: building BLDSS requests and their payloads
+  - request_sign: signing BLDSS requests
+  - upstream_http: calls to BLDSS
+  - response_map: XML parsing and mapping to and from ISO18626
+  - ra_forward: calls to the RA
+  - config_lookup: configuration lookups, cached or not
+*/
+public final class StageMetrics {
+
+  public static final String ENDPOINT_HEADER = "x-connector-endpoint";
+
+  private static final String TENANT_HEADER = "x-okapi-tenant";
+  private static final String NO_ENDPOINT = "background";
+  private static final String NO_TENANT = "unknown";
+
+  private StageMetrics() {
+  }
+
+  // Label the stages of the request these are the headers of with the
+  // endpoint that received it
+  public static void forEndpoint(Map<String, String> headers, String endpoint) {
+    headers.put(ENDPOINT_HEADER, endpoint);
+  }
+
+  public static <T> T time(String stage, Map<String, String> headers, Supplier<T> work) {
+    long start = System.nanoTime();
+    try {
+      return work.get();
+    } catch (RuntimeException e) {
+      failures(stage, headers).increment();
+      throw e;
+    } finally {
+      timer(stage, headers).recordSince(start);
+    }
+  }
+
+  public static <T> CompletableFuture<T> timeAsync(String stage, Map<String, String> headers, Supplier<CompletableFuture<T>> work) {
+    long start = System.nanoTime();
+    CompletableFuture<T> future;
+    try {
+      future = work.get();
+    } catch (RuntimeException e) {
+      failures(stage, headers).increment();
+      timer(stage, headers).recordSince(start);
+      throw e;
+    }
+    return future.whenComplete((value, t) -> {
+      if (t != null) {
+        failures(stage, headers).increment();
+      }
+      timer(stage, headers).recordSince(start);
+    });
+  }
+
+  private static ConnectorMetrics.Timer timer(String stage, Map<String, String> headers) {
+    return ConnectorMetrics.timer("connector_stage_seconds", labels(stage, headers));
+  }
+
+  private static ConnectorMetrics.Counter failures(String stage, Map<String, String> headers) {
+    return ConnectorMetrics.counter("connector_stage_failures_total", labels(stage, headers));
+  }
+
+  private static String[] labels(String stage, Map<String, String> headers) {
+    return new String[] { "stage", stage, "tenant", tenant(headers), "endpoint", endpoint(headers) };
+  }
+
+  // The tenant the request these are the headers of was made for
+  public static String tenant(Map<String, String> headers) {
+    String tenant = header(headers, TENANT_HEADER);
+    return tenant != null ? tenant : NO_TENANT;
+  }
+
+  // The endpoint that received the request these are the headers of
+  public static String endpoint(Map<String, String> headers) {
+    String endpoint = header(headers, ENDPOINT_HEADER);
+    return endpoint != null ? endpoint : NO_ENDPOINT;
+  }
+
+  // Header names may have come to us in any case
+  private static String header(Map<String, String> headers, String name) {
+    if (headers == null) {
+      return null;
+    }
+    for (Map.Entry<String, String> header : headers.entrySet()) {
+      if (name.equalsIgnoreCase(header.getKey())) {
+        return header.getValue();
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,25 @@
+package org.folio.metrics.events;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// A request to BLDSS, from asking the rate limiter to the response
+// arriving. The payload is the request body.
+@Name("org.folio.ill.connector.BLDSSRequest")
+@Label("BLDSS Request")
+public class BLDSSRequestEvent extends ConnectorEvent {
+
+  @Label("Method")
+  public String method;
+
+  @Label("Path")
+  public String path;
+
+  @Label("Status Code")
+  public int statusCode;
+
+  @Label("Response Size")
+  @DataAmount
+  public long responseSize;
+}
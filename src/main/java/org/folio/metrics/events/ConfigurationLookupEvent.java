@@ -0,0 +1,16 @@
+package org.folio.metrics.events;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+// Looking up a module's configuration, from the cache or mod-configuration.
+// The payload is the configuration values.
+@Name("org.folio.ill.connector.ConfigurationLookup")
+@Label("Configuration Lookup")
+@Threshold("1 ms")
+public class ConfigurationLookupEvent extends ConnectorEvent {
+
+  @Label("Module")
+  public String module;
+}
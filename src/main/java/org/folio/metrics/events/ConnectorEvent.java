@@ -0,0 +1,75 @@
+package org.folio.metrics.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import org.folio.metrics.StageMetrics;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/*
+  Java Flight Recorder events for the connector's hot paths
+
+  Every event has the tenant and connector endpoint of the request it was
+  part of (as for StageMetrics), the size of the payload it dealt with
+  and, as all JFR events do, its duration. Stack traces aren't recorded,
+  to keep events cheap enough for a continuous recording.
+
+  Anything costly about an event, such as working out its payload size,
+  is only done once we know the recording wants it.
+*/
+@Category({ "FOLIO", "ILL Connector" })
+@StackTrace(false)
+public abstract class ConnectorEvent extends Event {
+
+  @Label("Tenant")
+  String tenant;
+
+  @Label("Endpoint")
+  @Description("The connector endpoint that received the request")
+  String endpoint;
+
+  @Label("Payload Size")
+  @DataAmount
+  long payloadSize;
+
+  @Label("Failed")
+  boolean failed;
+
+  // Take the tenant and endpoint from the request these are the headers of
+  public void setRequest(Map<String, String> headers) {
+    this.tenant = StageMetrics.tenant(headers);
+    this.endpoint = StageMetrics.endpoint(headers);
+  }
+
+  public void setPayloadSize(long payloadSize) {
+    this.payloadSize = payloadSize;
+  }
+
+  public void setFailed(boolean failed) {
+    this.failed = failed;
+  }
+
+  // End and commit the event if the recording wants it, filling in the
+  // rest of it first
+  public void commit(Runnable fill) {
+    end();
+    if (shouldCommit()) {
+      fill.run();
+      commit();
+    }
+  }
+
+  // End the event when the future completes
+  public <T> CompletableFuture<T> commitOn(CompletableFuture<T> future, BiConsumer<T, Throwable> fill) {
+    return future.whenComplete((value, t) -> commit(() -> {
+      failed = t != null;
+      fill.accept(value, t);
+    }));
+  }
+}
@@ -0,0 +1,21 @@
+package org.folio.metrics.events;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Sending a message to the RA. The payload is the request body.
+@Name("org.folio.ill.connector.RaForward")
+@Label("RA Forward")
+public class RaForwardEvent extends ConnectorEvent {
+
+  @Label("URI")
+  public String uri;
+
+  @Label("Status Code")
+  public int statusCode;
+
+  @Label("Response Size")
+  @DataAmount
+  public long responseSize;
+}
@@ -0,0 +1,19 @@
+package org.folio.metrics.events;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// A search, paged and cached or not. The payload is the query.
+@Name("org.folio.ill.connector.Search")
+@Label("Search")
+public class SearchEvent extends ConnectorEvent {
+
+  @Label("Offset")
+  public int offset;
+
+  @Label("Limit")
+  public int limit;
+
+  @Label("Results")
+  public int results;
+}
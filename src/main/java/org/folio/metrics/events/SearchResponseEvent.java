@@ -0,0 +1,15 @@
+package org.folio.metrics.events;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+// Reading a BLDSS search response. The payload is the response body.
+@Name("org.folio.ill.connector.SearchResponse")
+@Label("Search Response")
+@Threshold("1 ms")
+public class SearchResponseEvent extends ConnectorEvent {
+
+  @Label("Results")
+  public int results;
+}
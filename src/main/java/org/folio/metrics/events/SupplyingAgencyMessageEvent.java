@@ -0,0 +1,14 @@
+package org.folio.metrics.events;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Building an ISO18626 supplying agency message, or a BLDSS confirmation,
+// from what BLDSS or the RA sent us. The payload is what they sent.
+@Name("org.folio.ill.connector.SupplyingAgencyMessage")
+@Label("Supplying Agency Message")
+public class SupplyingAgencyMessageEvent extends ConnectorEvent {
+
+  @Label("Message Type")
+  public String messageType;
+}
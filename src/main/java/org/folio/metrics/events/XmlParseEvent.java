@@ -0,0 +1,13 @@
+package org.folio.metrics.events;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+// Parsing an XML document. The payload is the document, XMLUtil doesn't
+// know which request it's parsing for so there's no tenant or endpoint.
+@Name("org.folio.ill.connector.XmlParse")
+@Label("XML Parse")
+@Threshold("1 ms")
+public class XmlParseEvent extends ConnectorEvent {
+}
@@ -106,6 +106,9 @@ public class BaseApi {
     case 403:
     case 404:
     case 422:
+    case 429:
+    case 503:
+    case 504:
       responseBuilder = Response.status(code);
       break;
     default:
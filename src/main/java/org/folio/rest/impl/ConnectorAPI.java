@@ -5,34 +5,50 @@ import io.vertx.core.Context;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.common.OkapiParams;
 import org.folio.exception.ConnectorQueryException;
+import org.folio.exception.HttpException;
+import org.folio.http.Deadline;
+import org.folio.http.OutboundResponse;
+import org.folio.http.TenantTokens;
+import org.folio.metrics.PendingFutures;
+import org.folio.metrics.PrometheusFormat;
+import org.folio.metrics.StageMetrics;
 import org.folio.rest.jaxrs.model.ActionRequest;
 import org.folio.rest.jaxrs.model.ActionResponse;
-import org.folio.rest.jaxrs.model.ISO18626.SupplyingAgencyMessage;
+import org.folio.rest.jaxrs.model.BulkActionRequest;
 import org.folio.rest.jaxrs.resource.IllConnector;
 import org.folio.service.action.ActionService;
 import org.folio.service.configuration.ConfigurationService;
 import org.folio.service.getter.GetterService;
+import org.folio.service.inbox.SaUpdateInbox;
+import org.folio.service.search.SearchPlan;
 import org.folio.service.search.SearchService;
 import org.folio.spring.SpringContextUtil;
 import org.folio.util.*;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.w3c.dom.Document;
 
 import javax.ws.rs.core.Response;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static io.vertx.core.Future.succeededFuture;
+import static org.folio.config.Constants.BULK_ACTION_DEADLINE_MS;
 import static org.folio.config.Constants.CONNECTOR_ABILITIES;
 import static org.folio.config.Constants.CONNECTOR_NAME;
 import static org.folio.config.Constants.CONNECTOR_UID;
+import static org.folio.config.Constants.REQUEST_DEADLINE_MS;
+import static org.folio.config.Constants.SA_UPDATE_ASYNC;
 
 public class ConnectorAPI extends BaseApi implements IllConnector {
 
+  private static final Logger logger = LogManager.getLogger(ConnectorAPI.class);
+
   @Autowired
   private SearchService illSearchService;
   @Autowired
@@ -50,22 +66,23 @@ public class ConnectorAPI extends BaseApi implements IllConnector {
   // Receive a string representing the resource we want to get from the supplier,
   // then get it
   public void getIllConnectorGetterByToGet(String toGet, Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
-    illGetterService.getFromConnector(toGet, okapiHeaders)
+    Map<String, String> headers = begin("getter", okapiHeaders, REQUEST_DEADLINE_MS);
+    TenantTokens.getInstance().remember(headers);
+    withDeadline("getter", headers, illGetterService.getFromConnector(toGet, headers))
       .thenAccept(results -> asyncResultHandler.handle(succeededFuture(buildOkResponse(results))))
       .exceptionally(t -> handleErrorResponse(asyncResultHandler, t));
   }
 
   @Override
   public void getIllConnectorSearch(int offset, int limit, String query, Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
-    // Parse the query into an XCQL document before passing it to performSearch
+    // Compile the query into a SearchPlan before passing it to performSearch
     if (query == null || query.length() == 0) {
       throw new ConnectorQueryException("Query not populated, syntax ?query=title=sleep");
     }
-    CQLUtil parser = new CQLUtil();
-    String xcql = parser.parseToXCQL(query);
-    XMLUtil xmlParser = new XMLUtil();
-    Document xcqlDoc = xmlParser.parse(xcql);
-    illSearchService.performSearch(xcqlDoc, offset, limit, vertxContext, okapiHeaders)
+    Map<String, String> headers = begin("search", okapiHeaders, REQUEST_DEADLINE_MS);
+    TenantTokens.getInstance().remember(headers);
+    SearchPlan plan = StageMetrics.time("query_parse", headers, () -> illSearchService.compilePlan(query));
+    withDeadline("search", headers, illSearchService.performSearch(plan, offset, limit, vertxContext, headers))
       .thenAccept(results -> asyncResultHandler.handle(succeededFuture(buildOkResponse(results))))
       .exceptionally(t -> handleErrorResponse(asyncResultHandler, t));
   }
@@ -79,69 +96,54 @@ public class ConnectorAPI extends BaseApi implements IllConnector {
     asyncResultHandler.handle(succeededFuture(buildOkResponse(response)));
   }
 
+  @Override
+  // The connector's metrics, in the Prometheus text format, leaving out
+  // other tenants' series
+  public void getIllConnectorMetrics(Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
+    String tenant = new OkapiParams(okapiHeaders).getTenant();
+    Response response = Response.ok(PrometheusFormat.render(tenant), PrometheusFormat.CONTENT_TYPE).build();
+    asyncResultHandler.handle(succeededFuture(response));
+  }
+
   @Override
   public void postIllConnectorAction(ActionRequest request, Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
     String action = request.getActionName();
     String payload = request.getActionMetadata();
+    Map<String, String> headers = begin("action", okapiHeaders, REQUEST_DEADLINE_MS);
+    TenantTokens.getInstance().remember(headers);
 
     // Determine what to do based on the action name
     if (action.equals("submitRequest")) {
       // - Submit the request
-      // - Return a confirmation
-      // - Send a SupplyingAgency Message to the RA containing the BL response
-      illActionService.performOrderAction(payload, vertxContext, okapiHeaders)
-        .thenAccept(acceptResult -> {
-          String responseString = acceptResult.getActionResponseString();
-          ActionResponse actionResponse = acceptResult.getActionResponse();
-          BLDSSRequest bldssRequest = acceptResult.getBldssRequest();
-          // Send the response
-          asyncResultHandler.handle(succeededFuture(buildOkResponse(actionResponse)));
-          // Construct and send a SupplyingAgency Message
-          SupplyingAgency supplyingAgency = new SupplyingAgency();
-          SupplyingAgencyMessage supplyingAgencyMessage = supplyingAgency.buildOrderMessageFromBLResponse(
-            responseString,
-            bldssRequest,
-            okapiHeaders
-          );
-          // Only proceed if we have a message to send
-          if (supplyingAgencyMessage != null) {
-            HttpRequest.Builder raRequest = RAUtils.buildRequestForSa(
-              okapiHeaders,
-              supplyingAgencyMessage
-            );
-            RAUtils.sendRequestToRa(raRequest, okapiHeaders);
-          }
-        })
+      // - Queue a SupplyingAgency Message to the RA containing the BL response
+      // - Return a confirmation once the message is queued
+      withDeadline("order", headers, illActionService.performOrderAction(payload, vertxContext, headers))
+        .thenCompose(acceptResult -> notifyRequestingAgency(action, acceptResult, headers))
+        .thenAccept(actionResponse -> asyncResultHandler.handle(succeededFuture(buildOkResponse(actionResponse))))
         .exceptionally(t -> handleErrorResponse(asyncResultHandler, t));
     } else if (action.equals("cancel")) {
-      illActionService.performCancelAction(payload, vertxContext, okapiHeaders)
-        .thenAccept(acceptResult -> {
-          String responseString = acceptResult.getActionResponseString();
-          ActionResponse actionResponse = acceptResult.getActionResponse();
-          BLDSSCancelRequest bldssRequest = (BLDSSCancelRequest) acceptResult.getBldssRequest();
-
-          // Send the response
-          asyncResultHandler.handle(succeededFuture(buildOkResponse(actionResponse)));
-          // Construct and send a SupplyingAgency Message
-          SupplyingAgency supplyingAgency = new SupplyingAgency();
-          SupplyingAgencyMessage supplyingAgencyMessage = supplyingAgency.buildCancelMessageFromBLResponse(
-            responseString,
-            bldssRequest,
-            okapiHeaders
-          );
-          // Only proceed if we have a message to send
-          if (supplyingAgencyMessage != null) {
-            HttpRequest.Builder raRequest = RAUtils.buildRequestForSa(
-              okapiHeaders,
-              supplyingAgencyMessage
-            );
-            RAUtils.sendRequestToRa(raRequest, okapiHeaders);
-          }
-        })
+      withDeadline("cancel", headers, illActionService.performCancelAction(payload, vertxContext, headers))
+        .thenCompose(acceptResult -> notifyRequestingAgency(action, acceptResult, headers))
+        .thenAccept(actionResponse -> asyncResultHandler.handle(succeededFuture(buildOkResponse(actionResponse))))
         .exceptionally(t -> handleErrorResponse(asyncResultHandler, t));
+    } else {
+      handleErrorResponse(asyncResultHandler, new CompletionException(new HttpException(400, "Unknown action: " + action)));
     }
   }
 
+  @Override
+  public void postIllConnectorActionBulk(BulkActionRequest entity, Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
+    // - Perform every action, a few at a time, with one set of settings
+    // - Return the result of each
+    // - SupplyingAgency Messages for the actions that succeeded are sent
+    //   to the RA in the background
+    Map<String, String> headers = begin("bulk_action", okapiHeaders, BULK_ACTION_DEADLINE_MS);
+    TenantTokens.getInstance().remember(headers);
+    withDeadline("bulk_action", headers, illActionService.performBulkAction(entity.getActions(), vertxContext, headers))
+      .thenAccept(results -> asyncResultHandler.handle(succeededFuture(buildOkResponse(results))))
+      .exceptionally(t -> handleErrorResponse(asyncResultHandler, t));
+  }
+
   @Override
   public void postIllConnector6839f2bf5c47469cA80b29765eaa9417SaUpdate(String entity, Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
     /* Pass the message forward to the main API:
@@ -151,25 +153,65 @@ public class ConnectorAPI extends BaseApi implements IllConnector {
        - Receive a JSON ISO18626 Supplying Agency Message Confirmation
        - Convert it to a BLDSS XML orderline update response
        - Return to the BL
+       In async mode we instead store the update, confirm it to the BL
+       straight away and leave SaUpdateInbox to pass it on
     */
-    SupplyingAgencyMessage sam = new SupplyingAgency().buildMessageFromOrderlineUpdate(entity);
-
-    HttpRequest.Builder request = RAUtils.buildRequestForSa(
-      okapiHeaders,
-      sam
-    );
+    Map<String, String> headers = begin("sa_update", okapiHeaders, REQUEST_DEADLINE_MS);
+    if (SA_UPDATE_ASYNC) {
+      withDeadline("sa_update", headers, SaUpdateInbox.getInstance().accept(entity, headers))
+        .thenAccept(v -> {
+          String confirmationToSend = new SupplyingAgency().buildLocalConfirmation();
+          asyncResultHandler.handle(succeededFuture(buildOkResponse(confirmationToSend)));
+        })
+        .exceptionally(t -> handleErrorResponse(asyncResultHandler, t));
+      return;
+    }
 
-    CompletableFuture<HttpResponse<String>> future = RAUtils.sendRequestToRa(
-      request,
-      okapiHeaders
-    );
+    // Updates for the same orderline are sent in the order they arrive
+    CompletableFuture<OutboundResponse> future = withDeadline("sa_update", headers, SaUpdateInbox.getInstance().forward(
+      entity,
+      headers
+    ));
 
     // Receive the response from the main API, translate it into BLDSS and return it
     future.thenApply(apiResponse -> {
       JsonObject responseJson =  new JsonObject(apiResponse.body());
-      String confirmationToSend = new SupplyingAgency().buildConfirmation(responseJson);
+      String confirmationToSend = StageMetrics.time("response_map", headers, () ->
+        new SupplyingAgency().buildConfirmation(responseJson));
       asyncResultHandler.handle(succeededFuture(buildOkResponse(confirmationToSend)));
       return null;
+    }).exceptionally(t -> handleErrorResponse(asyncResultHandler, t));
+  }
+
+  // Queue the SupplyingAgency Message for an action, completing with the
+  // action's response once it's on disk. The action has already been
+  // carried out by then, so failing to queue the message is logged rather
+  // than failing the request.
+  private CompletableFuture<ActionResponse> notifyRequestingAgency(String action, BLDSSActionResponse acceptResult, Map<String, String> headers) {
+    return illActionService.notifyRequestingAgency(acceptResult, headers).handle((v, e) -> {
+      if (e != null) {
+        logger.error("Unable to queue RA message for " + action + " action", e);
+      }
+      return acceptResult.getActionResponse();
     });
   }
+
+  // Copy the request's headers, as RMB hands us the map it owns, then
+  // label the copy's stage metrics with the endpoint that received the
+  // request and start the request's deadline. Endpoints that require
+  // permissions also note the caller's token, for RA messages replayed
+  // after a restart
+  private Map<String, String> begin(String endpoint, Map<String, String> okapiHeaders, long deadlineMs) {
+    Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    headers.putAll(okapiHeaders);
+    StageMetrics.forEndpoint(headers, endpoint);
+    Deadline.start(headers, deadlineMs);
+    return headers;
+  }
+
+  // Answer with a 504 if the request isn't done by its deadline, the calls
+  // it makes to BLDSS and the RA give up at the same point
+  private <T> CompletableFuture<T> withDeadline(String operation, Map<String, String> headers, CompletableFuture<T> future) {
+    return Deadline.from(headers).bound(PendingFutures.track(operation, future));
+  }
 }
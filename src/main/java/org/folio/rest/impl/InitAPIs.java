@@ -1,7 +1,10 @@
 package org.folio.rest.impl;
 
 import org.folio.config.ApplicationConfig;
+import org.folio.http.HttpClientRegistry;
 import org.folio.rest.resource.interfaces.InitAPI;
+import org.folio.service.inbox.SaUpdateInbox;
+import org.folio.service.outbox.RaOutbox;
 import org.folio.spring.SpringContextUtil;
 
 import io.vertx.core.AsyncResult;
@@ -10,11 +13,19 @@ import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 
+import static org.folio.config.Constants.SA_UPDATE_ASYNC;
+
 public class InitAPIs implements InitAPI {
   @Override
   public void init(Vertx vertx, Context context, Handler<AsyncResult<Boolean>> handler) {
     vertx.executeBlocking(future -> {
       SpringContextUtil.init(vertx, context, ApplicationConfig.class);
+      HttpClientRegistry.start(vertx);
+      RaOutbox.getInstance().start(vertx).join();
+      // Only async orderline updates are journalled
+      if (SA_UPDATE_ASYNC) {
+        SaUpdateInbox.getInstance().start().join();
+      }
       future.complete();
     }, result -> {
       if (result.succeeded()) {
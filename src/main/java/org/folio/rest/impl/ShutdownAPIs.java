@@ -0,0 +1,21 @@
+package org.folio.rest.impl;
+
+import org.folio.http.HttpClientRegistry;
+import org.folio.rest.resource.interfaces.ShutdownAPI;
+import org.folio.service.inbox.SaUpdateInbox;
+import org.folio.service.outbox.RaOutbox;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+public class ShutdownAPIs implements ShutdownAPI {
+  @Override
+  public void shutdown(Vertx vertx, Handler<AsyncResult<Void>> handler) {
+    SaUpdateInbox.getInstance().stop();
+    RaOutbox.getInstance().stop();
+    HttpClientRegistry.close();
+    handler.handle(Future.succeededFuture());
+  }
+}
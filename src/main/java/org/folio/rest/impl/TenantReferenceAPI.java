@@ -0,0 +1,38 @@
+package org.folio.rest.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.common.OkapiParams;
+import org.folio.rest.jaxrs.model.TenantAttributes;
+import org.folio.service.getter.ReferenceDataCache;
+
+import javax.ws.rs.core.Response;
+import java.util.Map;
+
+public class TenantReferenceAPI extends TenantAPI {
+  private static final Logger logger = LogManager.getLogger(TenantReferenceAPI.class);
+
+  @Override
+  public void postTenant(TenantAttributes tenantAttributes, Map<String, String> headers, Handler<AsyncResult<Response>> handler, Context context) {
+    super.postTenant(tenantAttributes, headers, result -> {
+      handler.handle(result);
+      if (result.succeeded()) {
+        // Populate the tenant's reference data once it's enabled, this is
+        // only ever a head start so it mustn't affect the tenant operation
+        try {
+          String tenant = new OkapiParams(headers).getTenant();
+          if (tenantAttributes.getModuleTo() == null) {
+            ReferenceDataCache.getInstance().invalidate(tenant);
+          } else {
+            ReferenceDataCache.getInstance().warm(tenant, headers);
+          }
+        } catch (Exception e) {
+          logger.warn("Unable to warm the reference data cache", e);
+        }
+      }
+    }, context);
+  }
+}
@@ -2,89 +2,199 @@ package org.folio.service.action;
 
 import io.vertx.core.Context;
 import io.vertx.core.json.JsonObject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.exception.HttpException;
+import org.folio.http.Deadline;
+import org.folio.http.OutboundResponse;
+import org.folio.metrics.StageMetrics;
+import org.folio.rest.jaxrs.model.ActionRequest;
 import org.folio.rest.jaxrs.model.ActionResponse;
+import org.folio.rest.jaxrs.model.BulkActionResponse;
+import org.folio.rest.jaxrs.model.BulkActionResult;
 import org.folio.rest.jaxrs.model.ConfirmationHeader;
+import org.folio.rest.jaxrs.model.ISO18626.SupplyingAgencyMessage;
+import org.folio.service.outbox.RaOutbox;
 import org.folio.util.*;
 import org.w3c.dom.Document;
 
-import java.net.http.HttpResponse;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.folio.config.Constants.BULK_ACTION_MAX_ITEMS;
+import static org.folio.config.Constants.BULK_ACTION_PARALLELISM;
 import static org.folio.config.Constants.ISO18626_DATE_FORMAT;
 
 public class ActionAPI implements ActionService {
 
+  private static final Logger logger = LogManager.getLogger(ActionAPI.class);
+
   @Override
   // Perform the action and return a CompletableAction that completes to
   // a BLDSSActionResponse object
   // We do this because we may need to initiate a side-effect API call that
   // requires properties from the original request and the response
   public CompletableFuture<BLDSSActionResponse> performOrderAction(String payload, Context context, Map<String, String> headers) {
+    return BLDSSSettings.load(headers)
+      .thenCompose(settings -> performOrderAction(payload, headers, settings));
+  }
+
+  @Override
+  public CompletableFuture<BLDSSActionResponse> performOrderAction(String payload, Map<String, String> headers, BLDSSSettings settings) {
     String path =  "/orders";
     HashMap<String, String> params = new HashMap<>();
-    CompletableFuture<BLDSSActionResponse> future = new CompletableFuture<>();
     BLDSSOrderRequest req = new BLDSSOrderRequest("POST", path, params, true);
-    String payloadStr = req.preparePayload(payload, headers);
-    req.setReqPayload(payloadStr);
-    req.makeRequest(headers).thenApply(respObj -> {
-      BLDSSActionResponse actionResponse = new BLDSSActionResponse(
-        respObj.body(),
-        prepareResponse(respObj, req),
-        req
-      );
-      future.complete(actionResponse);
-      return actionResponse;
-    });
-    // We received a "result" element in the response, we use that to send a
-    // message containing the request result
-    return future;
+    return CompletableFuture.completedFuture(settings).thenCompose(s -> {
+      req.setReqPayload(StageMetrics.time("request_build", headers, () -> req.preparePayload(payload, headers, s)));
+      return req.makeRequest(headers, s);
+    }).thenApply(respObj -> new BLDSSActionResponse(
+      respObj.body(),
+      StageMetrics.time("response_map", headers, () -> prepareResponse(respObj, req)),
+      req
+    ));
   }
 
   @Override
   // Perform the action and return a CompletableAction that completes to
   // a BLDSSActionResponse object
   public CompletableFuture<BLDSSActionResponse> performCancelAction(String payload, Context context, Map<String, String> headers) {
-    JsonObject jsonPayload = new JsonObject(payload);
-    String supplierRequestId= jsonPayload.getString("supplierRequestId");
-    String requesterRequestId = jsonPayload.getString("localRequestId");
-    CompletableFuture<BLDSSActionResponse> future = new CompletableFuture<>();
-    // The ID of the object we're interacting with needs to be supplied with an
-    // "id" key so it can form part of the auth parameter string,
-    // see the note in "Parameter String Generation" here:
-    // https://apitest.bldss.bl.uk/docs/guide/authentication.html#authorisationTesting
-    HashMap<String, String> params = new HashMap<>();
-    params.put("id", supplierRequestId);
-    BLDSSCancelRequest req = new BLDSSCancelRequest(supplierRequestId, requesterRequestId, params);
-    req.makeRequest(headers).thenApply(respObj -> {
-      BLDSSActionResponse actionResponse = new BLDSSActionResponse(
+    return BLDSSSettings.load(headers)
+      .thenCompose(settings -> performCancelAction(payload, headers, settings));
+  }
+
+  @Override
+  public CompletableFuture<BLDSSActionResponse> performCancelAction(String payload, Map<String, String> headers, BLDSSSettings settings) {
+    return CompletableFuture.completedFuture(settings).thenCompose(s -> {
+      JsonObject jsonPayload = new JsonObject(payload);
+      String supplierRequestId= jsonPayload.getString("supplierRequestId");
+      String requesterRequestId = jsonPayload.getString("localRequestId");
+      // The ID of the object we're interacting with needs to be supplied with an
+      // "id" key so it can form part of the auth parameter string,
+      // see the note in "Parameter String Generation" here:
+      // https://apitest.bldss.bl.uk/docs/guide/authentication.html#authorisationTesting
+      HashMap<String, String> params = new HashMap<>();
+      params.put("id", supplierRequestId);
+      BLDSSCancelRequest req = new BLDSSCancelRequest(supplierRequestId, requesterRequestId, params);
+      return req.makeRequest(headers, s).thenApply(respObj -> new BLDSSActionResponse(
         respObj.body(),
-        prepareResponse(respObj, req),
+        StageMetrics.time("response_map", headers, () -> prepareResponse(respObj, req)),
         req
-      );
-      future.complete(actionResponse);
-      return actionResponse;
+      ));
     });
-    // We received a "result" element in the response, we use that to send a
-    // message containing the request result
-    return future;
   }
 
   @Override
-  public ActionResponse prepareResponse(HttpResponse<String> response, BLDSSRequest request) {
-    XMLUtil xmlUtil = new XMLUtil();
+  // Perform each action with the same settings, BULK_ACTION_PARALLELISM at
+  // a time, and send the RA a message for each one that succeeds
+  public CompletableFuture<BulkActionResponse> performBulkAction(List<ActionRequest> actions, Context context, Map<String, String> headers) {
+    if (actions.size() > BULK_ACTION_MAX_ITEMS) {
+      CompletableFuture<BulkActionResponse> future = new CompletableFuture<>();
+      future.completeExceptionally(new HttpException(400,
+        "A bulk action request can contain at most " + BULK_ACTION_MAX_ITEMS + " actions"));
+      return future;
+    }
+    return BLDSSSettings.load(headers).thenApply(BLDSSSettings::forBatch)
+      .thenCompose(settings -> performBulkAction(actions, headers, settings));
+  }
 
+  // Split out from the above so tests can supply the settings
+  CompletableFuture<BulkActionResponse> performBulkAction(List<ActionRequest> actions, Map<String, String> headers, BLDSSSettings settings) {
+    BulkActionResult[] results = new BulkActionResult[actions.size()];
+    AtomicInteger next = new AtomicInteger();
+    List<CompletableFuture<Void>> workers = new ArrayList<>();
+    for (int i = 0; i < Math.min(BULK_ACTION_PARALLELISM, actions.size()); i++) {
+      workers.add(performNext(actions, results, next, headers, settings));
+    }
+    return CompletableFuture.allOf(workers.toArray(new CompletableFuture[0]))
+      .thenApply(v -> new BulkActionResponse()
+        .withResults(Arrays.asList(results))
+        .withTotalRecords(results.length));
+  }
+
+  @Override
+  public CompletableFuture<Void> notifyRequestingAgency(BLDSSActionResponse response, Map<String, String> requestHeaders) {
+    // The RA is told in the background, so this isn't bound by the
+    // request's deadline
+    Map<String, String> headers = Deadline.detach(requestHeaders);
+    SupplyingAgency supplyingAgency = new SupplyingAgency();
+    BLDSSRequest request = response.getBldssRequest();
+    CompletableFuture<SupplyingAgencyMessage> message = StageMetrics.timeAsync("response_map", headers, () ->
+      request instanceof BLDSSCancelRequest
+        ? supplyingAgency.buildCancelMessageFromBLResponse(response.getActionResponseString(), (BLDSSCancelRequest) request, headers)
+        : supplyingAgency.buildOrderMessageFromBLResponse(response.getActionResponseString(), request, headers));
+    // Only proceed if we have a message to send, the outbox takes care of
+    // getting it to the RA
+    return message.thenCompose(sam -> sam != null
+      ? RaOutbox.getInstance().enqueue(sam, headers)
+      : CompletableFuture.<Void>completedFuture(null));
+  }
+
+  // Perform the next action nobody has picked up yet, then the one after
+  // that, until there are none left
+  private CompletableFuture<Void> performNext(
+    List<ActionRequest> actions,
+    BulkActionResult[] results,
+    AtomicInteger next,
+    Map<String, String> headers,
+    BLDSSSettings settings
+  ) {
+    int index = next.getAndIncrement();
+    if (index >= actions.size()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    ActionRequest action = actions.get(index);
+    BulkActionResult result = new BulkActionResult()
+      .withIndex(index)
+      .withActionName(action.getActionName());
+    results[index] = result;
+
+    CompletableFuture<BLDSSActionResponse> performed;
+    if ("submitRequest".equals(action.getActionName())) {
+      performed = performOrderAction(action.getActionMetadata(), headers, settings);
+    } else if ("cancel".equals(action.getActionName())) {
+      performed = performCancelAction(action.getActionMetadata(), headers, settings);
+    } else {
+      performed = new CompletableFuture<>();
+      performed.completeExceptionally(new HttpException(400, "Unknown action: " + action.getActionName()));
+    }
+
+    return performed.handle((response, t) -> {
+      if (t != null) {
+        Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+        logger.error("Bulk action " + index + " failed", cause);
+        result.withStatus(BulkActionResult.Status.ERROR).withError(String.valueOf(cause.getMessage()));
+        return CompletableFuture.<Void>completedFuture(null);
+      }
+      result.withStatus(BulkActionResult.Status.OK).withResponse(response.getActionResponse());
+      // As with a single action, we don't answer until the message is queued
+      return notifyRequestingAgency(response, headers).handle((v, e) -> {
+        if (e != null) {
+          logger.error("Unable to queue RA message for bulk action " + index, e);
+        }
+        return (Void) null;
+      });
+    }).thenCompose(queued -> queued)
+      .thenCompose(v -> performNext(actions, results, next, headers, settings));
+  }
+
+  @Override
+  public ActionResponse prepareResponse(OutboundResponse response, BLDSSRequest request) {
     ActionResponse actionResponse = new ActionResponse();
-    Document bodyDoc = xmlUtil.parse(response.body());
+    Document bodyDoc = XMLUtil.parse(response.body());
 
   //  Header requestHeader = request.getActionPayload().getHeader();
 
-    String received = xmlUtil.getNode(bodyDoc, "timestamp").getTextContent();
+    String received = XMLUtil.getNode(bodyDoc, "timestamp").getTextContent();
     String timestampReceived = DateTimeUtils.bldssToIso(received);
 
-    String statusString = xmlUtil.getNode(bodyDoc, "status").getTextContent();
+    String statusString = XMLUtil.getNode(bodyDoc, "status").getTextContent();
 
     ConfirmationHeader.MessageStatus messageStatus = statusString.equals("0") ?
       ConfirmationHeader.MessageStatus.OK :
@@ -101,7 +211,7 @@ public class ActionAPI implements ActionService {
 
     // We have an error
     if (!statusString.equals("0")) {
-      String blError = xmlUtil.getNode(bodyDoc, "message").getTextContent();
+      String blError = XMLUtil.getNode(bodyDoc, "message").getTextContent();
       confirmationHeader.setErrorData(blError);
     }
 
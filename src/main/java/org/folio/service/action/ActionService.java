@@ -1,11 +1,15 @@
 package org.folio.service.action;
 
 import io.vertx.core.Context;
+import org.folio.http.OutboundResponse;
+import org.folio.rest.jaxrs.model.ActionRequest;
 import org.folio.rest.jaxrs.model.ActionResponse;
+import org.folio.rest.jaxrs.model.BulkActionResponse;
 import org.folio.util.BLDSSActionResponse;
 import org.folio.util.BLDSSRequest;
+import org.folio.util.BLDSSSettings;
 
-import java.net.http.HttpResponse;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -31,11 +35,54 @@ public interface ActionService {
   CompletableFuture<BLDSSActionResponse> performCancelAction(String payload, Context context, Map<String, String> headers);
 
   /**
-   * This method receives an HttpResponse containing the supplier's API response
+   * This method creates {@link BLDSSActionResponse} using settings already
+   * loaded for the tenant
+   *
+   * @param payload A string representing arbitrary metadata
+   * @param headers OKAPI headers
+   * @param settings The tenant's BLDSS settings
+   * @return response {@link BLDSSActionResponse}
+   */
+  CompletableFuture<BLDSSActionResponse> performOrderAction(String payload, Map<String, String> headers, BLDSSSettings settings);
+
+  /**
+   * This method creates {@link BLDSSActionResponse} using settings already
+   * loaded for the tenant
+   *
+   * @param payload A string representing arbitrary metadata
+   * @param headers OKAPI headers
+   * @param settings The tenant's BLDSS settings
+   * @return response {@link BLDSSActionResponse}
+   */
+  CompletableFuture<BLDSSActionResponse> performCancelAction(String payload, Map<String, String> headers, BLDSSSettings settings);
+
+  /**
+   * This method performs a number of actions and creates {@link BulkActionResponse}
+   * with the result of each, in the order they were requested
+   *
+   * @param actions The actions to perform
+   * @param context Vert.X context
+   * @param headers OKAPI headers
+   * @return response {@link BulkActionResponse}
+   */
+  CompletableFuture<BulkActionResponse> performBulkAction(List<ActionRequest> actions, Context context, Map<String, String> headers);
+
+  /**
+   * This method builds a SupplyingAgencyMessage from the supplier's response
+   * to an action and queues it for delivery to the RA
+   *
+   * @param response The action's {@link BLDSSActionResponse}
+   * @param headers OKAPI headers
+   * @return A future completing once the message has been queued
+   */
+  CompletableFuture<Void> notifyRequestingAgency(BLDSSActionResponse response, Map<String, String> headers);
+
+  /**
+   * This method receives an OutboundResponse containing the supplier's API response
    * and transforms it into an ActionResponse object
    *
-   * @param response The supplier's response body
+   * @param response The supplier's response
    * @return An ActionResponse instance
    */
-  ActionResponse prepareResponse(HttpResponse<String> response, BLDSSRequest request);
+  ActionResponse prepareResponse(OutboundResponse response, BLDSSRequest request);
 }
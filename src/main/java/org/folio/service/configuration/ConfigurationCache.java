@@ -0,0 +1,156 @@
+package org.folio.service.configuration;
+
+import org.folio.rest.jaxrs.model.Configs;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.folio.config.Constants.CONFIG_CACHE_MAX_ENTRIES;
+import static org.folio.config.Constants.CONFIG_CACHE_REFRESH_AHEAD_MS;
+import static org.folio.config.Constants.CONFIG_CACHE_TTL_MS;
+
+/*
+  A per tenant / module cache of mod-configuration entries.
+
+  - Entries live for CONFIG_CACHE_TTL_MS after they were loaded
+  - Once an entry is older than CONFIG_CACHE_REFRESH_AHEAD_MS it continues
+    to be served while a single background reload replaces it
+  - Concurrent misses for the same key share one in-flight load
+  - When more than CONFIG_CACHE_MAX_ENTRIES keys are held the least
+    recently used loaded entry is evicted
+*/
+public class ConfigurationCache {
+
+  private static final ConfigurationCache INSTANCE = new ConfigurationCache(
+    CONFIG_CACHE_TTL_MS,
+    CONFIG_CACHE_REFRESH_AHEAD_MS,
+    CONFIG_CACHE_MAX_ENTRIES
+  );
+
+  // Access ordered, so iteration starts from the least recently used
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final long ttlMs;
+  private final long refreshAheadMs;
+  private final int maxEntries;
+
+  public ConfigurationCache(long ttlMs, long refreshAheadMs, int maxEntries) {
+    this.ttlMs = ttlMs;
+    this.refreshAheadMs = refreshAheadMs;
+    this.maxEntries = maxEntries;
+  }
+
+  public static ConfigurationCache getInstance() {
+    return INSTANCE;
+  }
+
+  // Return the cached configs for this tenant and module, using the supplied
+  // loader if we don't have a usable entry
+  public CompletableFuture<Configs> get(String tenant, String module, Supplier<CompletableFuture<Configs>> loader) {
+    String key = tenant + ":" + module;
+    long now = System.currentTimeMillis();
+    Entry entry;
+    boolean created = false;
+    synchronized (this) {
+      entry = entries.get(key);
+      if (entry == null || entry.isExpired(now)) {
+        entry = new Entry();
+        entries.put(key, entry);
+        created = true;
+        evictIfNeeded();
+      }
+    }
+
+    if (created) {
+      load(key, entry, loader);
+    } else if (entry.needsRefresh(now)) {
+      refresh(key, entry, loader);
+    }
+    return entry.future;
+  }
+
+  // Drop everything we hold for a tenant
+  public synchronized void invalidate(String tenant) {
+    String prefix = tenant + ":";
+    entries.keySet().removeIf(key -> key.startsWith(prefix));
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private void load(String key, Entry entry, Supplier<CompletableFuture<Configs>> loader) {
+    try {
+      loader.get().whenComplete((configs, t) -> {
+        if (t != null) {
+          // Don't cache failures, the next caller will try again
+          remove(key, entry);
+          entry.future.completeExceptionally(t);
+        } else {
+          entry.loadedAt = System.currentTimeMillis();
+          entry.future.complete(configs);
+        }
+      });
+    } catch (Exception e) {
+      remove(key, entry);
+      entry.future.completeExceptionally(e);
+    }
+  }
+
+  private void refresh(String key, Entry entry, Supplier<CompletableFuture<Configs>> loader) {
+    if (!entry.refreshing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      loader.get().whenComplete((configs, t) -> {
+        if (t != null) {
+          // Keep serving what we have until it expires
+          entry.refreshing.set(false);
+        } else {
+          Entry fresh = new Entry();
+          fresh.loadedAt = System.currentTimeMillis();
+          fresh.future.complete(configs);
+          replace(key, entry, fresh);
+        }
+      });
+    } catch (Exception e) {
+      entry.refreshing.set(false);
+    }
+  }
+
+  // Unless the entry was dropped or replaced in the meantime
+  private synchronized void remove(String key, Entry entry) {
+    entries.remove(key, entry);
+  }
+
+  private synchronized void replace(String key, Entry entry, Entry fresh) {
+    entries.replace(key, entry, fresh);
+  }
+
+  // Loads still in flight are skipped, callers are waiting on them
+  private void evictIfNeeded() {
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (entries.size() > maxEntries && iterator.hasNext()) {
+      if (iterator.next().future.isDone()) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private class Entry {
+    private final CompletableFuture<Configs> future = new CompletableFuture<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private volatile long loadedAt;
+
+    // In-flight loads never expire, that's what collapses concurrent misses
+    private boolean isExpired(long now) {
+      return future.isDone() && now - loadedAt >= ttlMs;
+    }
+
+    private boolean needsRefresh(long now) {
+      return future.isDone() && !future.isCompletedExceptionally() && now - loadedAt >= refreshAheadMs;
+    }
+  }
+}
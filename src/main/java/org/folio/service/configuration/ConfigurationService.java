@@ -1,61 +1,81 @@
 package org.folio.service.configuration;
 
-import io.vertx.core.json.JsonObject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.folio.common.OkapiParams;
+import org.folio.exception.HttpException;
+import org.folio.http.Deadline;
+import org.folio.http.HttpClientRegistry;
+import org.folio.http.OutboundRequest;
+import org.folio.metrics.StageMetrics;
+import org.folio.metrics.events.ConfigurationLookupEvent;
 import org.folio.rest.impl.BaseApi;
 import org.folio.rest.jaxrs.model.Config;
 import org.folio.rest.jaxrs.model.Configs;
+import org.folio.util.JsonCodecs;
 
-import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.folio.config.Constants.TENANT_CONFIGURATION_ENTRIES;
 
 public class ConfigurationService extends BaseApi {
-  private final HttpClient client;
+  private static final Logger logger = LogManager.getLogger(ConfigurationService.class);
 
-  public ConfigurationService() {
-    this.client = HttpClient.newBuilder().build();
+  // Retrieve all configs for this module, we don't need to get any more discerning than that.
+  // A load may be shared with other requests or be a refresh we carry on
+  // with in the background, so it isn't bound by this request's deadline
+  public CompletableFuture<Configs> getConfigurationsEntries(Map<String, String> headers, String module) {
+    OkapiParams okapiParams = new OkapiParams(headers);
+    ConfigurationLookupEvent event = new ConfigurationLookupEvent();
+    event.begin();
+    CompletableFuture<Configs> lookup = StageMetrics.timeAsync("config_lookup", headers, () -> ConfigurationCache.getInstance()
+      .get(okapiParams.getTenant(), module, () -> fetchConfigurationsEntries(Deadline.detach(headers), module)))
+      .whenComplete((configs, t) -> {
+        if (t != null) {
+          logger.error("Unable to retrieve configuration for module " + module, t);
+        }
+      });
+    return event.commitOn(lookup, (configs, t) -> {
+      event.setRequest(headers);
+      event.module = module;
+      if (configs != null) {
+        event.setPayloadSize(configs.getConfigs().stream()
+          .mapToLong(config -> config.getValue() != null ? config.getValue().getBytes(StandardCharsets.UTF_8).length : 0)
+          .sum());
+      }
+    });
+  }
+
+  public CompletableFuture<Config> getConfigurationEntry(String configName, Map<String, String> headers, String module) {
+    return getConfigurationsEntries(headers, module).thenApply(configs -> {
+      for (Config config : configs.getConfigs()) {
+        String name = config.getConfigName();
+        if (name.equals(configName)) {
+          return config;
+        }
+      }
+      return null;
+    });
   }
 
-  // Retrieve all configs for this module, we don't need to get any more discerning than that
-  public Configs getConfigurationsEntries(Map<String, String> headers, String module) {
+  // Ask mod-configuration for the module's entries, bypassing the cache
+  private CompletableFuture<Configs> fetchConfigurationsEntries(Map<String, String> headers, String module) {
     OkapiParams okapiParams = new OkapiParams(headers);
     String query = String.format("query=module=%s", module);
     String endpoint = okapiParams.getUrl() + "/" + TENANT_CONFIGURATION_ENTRIES + "?" + query;
-    HttpRequest.Builder builder = HttpRequest.newBuilder()
-      .uri(URI.create(endpoint))
-      .GET();
-
     // Add our existing headers
-    for (Map.Entry<String, String> entry : headers.entrySet()) {
-      builder.header(entry.getKey(), entry.getValue());
-    }
-
-    HttpRequest request = builder.build();
-
-    try {
-      HttpResponse<String> response = client.send(request,HttpResponse.BodyHandlers.ofString());
-      JsonObject jsonObject = new JsonObject(response.body());
-      return jsonObject.mapTo(Configs.class);
-    } catch (IOException | InterruptedException e) {
-      e.printStackTrace();
-      return null;
-    }
-  }
+    OutboundRequest request = OutboundRequest.get(URI.create(endpoint))
+      .headers(headers);
 
-  public Config getConfigurationEntry(String configName, Map<String, String> headers, String module) {
-    Configs configs = getConfigurationsEntries(headers, module);
-    for (Config config : configs.getConfigs()) {
-      String name = config.getConfigName();
-      if (name.equals(configName)) {
-        return config;
-      }
-    }
-    return null;
+    return HttpClientRegistry.transport().send(request, okapiParams.getTenant())
+      .thenApply(response -> {
+        if (!response.isSuccess()) {
+          throw new HttpException(response.statusCode(), response.body());
+        }
+        return JsonCodecs.CONFIGS.decode(response.bodyAsBytes());
+      });
   }
 }
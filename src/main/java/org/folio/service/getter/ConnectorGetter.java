@@ -1,11 +1,14 @@
 package org.folio.service.getter;
 
+import org.folio.common.OkapiParams;
+import org.folio.exception.HttpException;
+import org.folio.metrics.StageMetrics;
 import org.folio.rest.jaxrs.model.GetterResponse;
 import org.folio.service.BaseService;
 import org.folio.util.BLDSSGetterRequest;
 import org.folio.util.BLDSSResponse;
 import org.folio.util.GetterEndpointMap;
-import org.folio.util.XMLUtil;
+import org.folio.util.XMLJsonConverter;
 
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -14,17 +17,30 @@ public class ConnectorGetter extends BaseService implements GetterService {
 
   @Override
   public CompletableFuture<GetterResponse> getFromConnector(String toGet, Map<String, String> headers) {
+    if (!GetterEndpointMap.hasEndpoint(toGet)) {
+      CompletableFuture<GetterResponse> future = new CompletableFuture<>();
+      future.completeExceptionally(new HttpException(404, "Unknown resource: " + toGet));
+      return future;
+    }
+    // Reference data comes from the cache, anything else goes to BLDSS
+    if (GetterEndpointMap.isCached(toGet)) {
+      String tenant = new OkapiParams(headers).getTenant();
+      return ReferenceDataCache.getInstance().get(tenant, toGet, headers);
+    }
+    return fetchFromConnector(toGet, headers);
+  }
+
+  // Get the requested resource from BLDSS, bypassing the cache
+  public CompletableFuture<GetterResponse> fetchFromConnector(String toGet, Map<String, String> headers) {
     // Get the endpoint and auth requirements for the requested resource
-    GetterEndpointMap endpointMap = new GetterEndpointMap();
-    String endpoint = endpointMap.getEndpoint(toGet);
-    Boolean needsAuth = endpointMap.getNeedsAuth(toGet);
+    String endpoint = GetterEndpointMap.getEndpoint(toGet);
+    Boolean needsAuth = GetterEndpointMap.getNeedsAuth(toGet);
 
-    CompletableFuture<GetterResponse> future = new CompletableFuture<>();
     BLDSSGetterRequest req = new BLDSSGetterRequest(
       endpoint,
       needsAuth
     );
-    req.makeRequest(headers).thenApply(respObj -> {
+    return req.makeRequest(headers).thenApply(respObj -> StageMetrics.time("response_map", headers, () -> {
       String body = respObj.body();
 
       BLDSSResponse bldssResponse = new BLDSSResponse(body);
@@ -34,13 +50,10 @@ public class ConnectorGetter extends BaseService implements GetterService {
       response.setStatus(bldssResponse.getStatus());
       response.setMessage(bldssResponse.getMessage());
 
-      XMLUtil xmlUtil = new XMLUtil();
-      String json = xmlUtil.getJson(body, "apiResponse", "apiResponse");
+      String json = XMLJsonConverter.toJson(body, "apiResponse", "apiResponse");
       response.setGetterResult(json);
-      future.complete(response);
       return response;
-    });
-    return future;
+    }));
   }
 
 }
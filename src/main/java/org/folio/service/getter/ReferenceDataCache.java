@@ -0,0 +1,201 @@
+package org.folio.service.getter;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.exception.EndpointUnavailableException;
+import org.folio.http.Deadline;
+import org.folio.metrics.ConnectorMetrics;
+import org.folio.rest.jaxrs.model.GetterResponse;
+import org.folio.util.GetterEndpointMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+
+import static org.folio.config.Constants.REFERENCE_DATA_REFRESH_MS;
+
+/*
+  A per tenant cache of the BLDSS reference data available via the getter
+
+  - Which endpoints are cached, and for how long, is declared in
+    GetterEndpointMap
+  - Concurrent misses for the same tenant and endpoint share one request
+  - A tenant's entries are loaded when the module is enabled for it
+  - An entry older than REFERENCE_DATA_REFRESH_MS is still served, but the
+    request that finds it also refreshes it in the background, using its
+    own Okapi headers less its deadline. A failed refresh leaves the
+    existing entry in place until it expires.
+  - Loads aren't bound by the deadline of the request that started them
+    either, as every request waiting on a load shares it. Each request is
+    still answered by its own deadline.
+  - Failed loads are not cached, but if BLDSS is unavailable (its circuit
+    is open or it's too busy) an expired entry is served instead
+
+  Refreshing on the back of a request means we never hold on to a
+  tenant's headers, and so never make a request with a token that has
+  since expired
+*/
+public class ReferenceDataCache {
+
+  private static final Logger logger = LogManager.getLogger(ReferenceDataCache.class);
+  private static final ReferenceDataCache INSTANCE = new ReferenceDataCache();
+
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+  private final BiFunction<String, Map<String, String>, CompletableFuture<GetterResponse>> fetcher;
+  private final ToLongFunction<String> ttlMs;
+  private final long refreshMs;
+
+  private final ConnectorMetrics.Counter hits = ConnectorMetrics.counter("reference_data_cache_hits_total");
+  private final ConnectorMetrics.Counter misses = ConnectorMetrics.counter("reference_data_cache_misses_total");
+  private final ConnectorMetrics.Counter refreshFailures = ConnectorMetrics.counter("reference_data_refresh_failures_total");
+  private final ConnectorMetrics.Counter staleServed = ConnectorMetrics.counter("reference_data_stale_served_total");
+
+  private ReferenceDataCache() {
+    this((toGet, headers) -> new ConnectorGetter().fetchFromConnector(toGet, headers),
+      GetterEndpointMap::getCacheTtlMs, REFERENCE_DATA_REFRESH_MS);
+  }
+
+  ReferenceDataCache(BiFunction<String, Map<String, String>, CompletableFuture<GetterResponse>> fetcher,
+                     ToLongFunction<String> ttlMs, long refreshMs) {
+    this.fetcher = fetcher;
+    this.ttlMs = ttlMs;
+    this.refreshMs = refreshMs;
+  }
+
+  public static ReferenceDataCache getInstance() {
+    return INSTANCE;
+  }
+
+  static {
+    ConnectorMetrics.gauge("reference_data_cache_entries", () -> INSTANCE.entries.size());
+  }
+
+  // Return the cached response for this tenant's endpoint, loading it if
+  // we don't have a usable entry
+  public CompletableFuture<GetterResponse> get(String tenant, String toGet, Map<String, String> headers) {
+    String key = key(tenant, toGet);
+    long ttlMs = this.ttlMs.applyAsLong(toGet);
+    long now = System.currentTimeMillis();
+    boolean[] created = { false };
+    Entry[] previous = { null };
+    Entry entry = entries.compute(key, (k, existing) -> {
+      if (existing != null && !existing.isExpired(now, ttlMs)) {
+        return existing;
+      }
+      created[0] = true;
+      previous[0] = existing;
+      return new Entry();
+    });
+
+    if (created[0]) {
+      misses.increment();
+      load(key, entry, previous[0], toGet, headers);
+    } else {
+      hits.increment();
+      if (refreshMs > 0 && entry.isDue(now, refreshMs)) {
+        refresh(tenant, key, entry, toGet, headers);
+      }
+    }
+    return entry.future;
+  }
+
+  // Load all of a tenant's reference data, failures are logged and left
+  // for the next request to retry
+  public CompletableFuture<Void> warm(String tenant, Map<String, String> headers) {
+    List<CompletableFuture<GetterResponse>> loads = new ArrayList<>();
+    for (String toGet : GetterEndpointMap.getCachedKeys()) {
+      loads.add(get(tenant, toGet, headers).whenComplete((response, t) -> {
+        if (t != null) {
+          logger.warn("Unable to load reference data " + toGet + " for tenant " + tenant, t);
+        }
+      }));
+    }
+    return CompletableFuture.allOf(loads.toArray(new CompletableFuture[0]))
+      .handle((v, t) -> null);
+  }
+
+  // Drop everything we hold for a tenant
+  public void invalidate(String tenant) {
+    String prefix = tenant + "|";
+    entries.keySet().removeIf(key -> key.startsWith(prefix));
+  }
+
+  private void load(String key, Entry entry, Entry previous, String toGet, Map<String, String> headers) {
+    try {
+      fetcher.apply(toGet, Deadline.detach(headers)).whenComplete((response, t) -> {
+        Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+        if (cause instanceof EndpointUnavailableException && previous != null && previous.hasResponse()) {
+          // Put the expired entry back so the next caller tries again
+          staleServed.increment();
+          entries.replace(key, entry, previous);
+          entry.future.complete(previous.future.join());
+        } else if (t != null) {
+          // Don't cache failures, the next caller will try again
+          entries.remove(key, entry);
+          entry.future.completeExceptionally(t);
+        } else {
+          entry.loadedAt = System.currentTimeMillis();
+          entry.future.complete(response);
+        }
+      });
+    } catch (Exception e) {
+      entries.remove(key, entry);
+      entry.future.completeExceptionally(e);
+    }
+  }
+
+  // Only one request refreshes an entry, the rest carry on serving it
+  private void refresh(String tenant, String key, Entry entry, String toGet, Map<String, String> headers) {
+    if (!entry.refreshing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      fetcher.apply(toGet, Deadline.detach(headers)).whenComplete((response, t) -> {
+        if (t != null) {
+          refreshFailures.increment();
+          logger.warn("Unable to refresh reference data " + toGet + " for tenant " + tenant, t);
+          entry.refreshing.set(false);
+        } else {
+          Entry fresh = new Entry();
+          fresh.loadedAt = System.currentTimeMillis();
+          fresh.future.complete(response);
+          // Unless the entry was dropped or replaced while we were at it
+          entries.replace(key, entry, fresh);
+        }
+      });
+    } catch (Exception e) {
+      refreshFailures.increment();
+      logger.warn("Unable to refresh reference data " + toGet + " for tenant " + tenant, e);
+      entry.refreshing.set(false);
+    }
+  }
+
+  private String key(String tenant, String toGet) {
+    return tenant + "|" + toGet;
+  }
+
+  private static class Entry {
+    private final CompletableFuture<GetterResponse> future = new CompletableFuture<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile long loadedAt;
+
+    // In-flight loads never expire, that's what collapses concurrent misses
+    private boolean isExpired(long now, long ttlMs) {
+      return future.isDone() && now - loadedAt >= ttlMs;
+    }
+
+    private boolean isDue(long now, long refreshMs) {
+      return hasResponse() && now - loadedAt >= refreshMs;
+    }
+
+    private boolean hasResponse() {
+      return future.isDone() && !future.isCompletedExceptionally();
+    }
+  }
+}
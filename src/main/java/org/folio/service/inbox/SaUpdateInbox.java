@@ -0,0 +1,244 @@
+package org.folio.service.inbox;
+
+import io.vertx.core.json.JsonObject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.exception.HttpException;
+import org.folio.http.OutboundResponse;
+import org.folio.metrics.ConnectorMetrics;
+import org.folio.metrics.StageMetrics;
+import org.folio.rest.jaxrs.model.ISO18626.SupplyingAgencyMessage;
+import org.folio.service.outbox.RaOutbox;
+import org.folio.util.DurableJournal;
+import org.folio.util.RAUtils;
+import org.folio.util.KeyedExecutor;
+import org.folio.util.SupplyingAgency;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.folio.config.Constants.OUTBOX_DIR;
+import static org.folio.config.Constants.SA_UPDATE_WORKERS;
+import static org.folio.rest.RestVerticle.OKAPI_HEADER_TOKEN;
+
+/*
+  Passes orderline updates from BLDSS on to the RA
+
+  Updates are processed on a KeyedExecutor keyed by orderline id, so
+  updates for one orderline reach the RA in the order we received them
+  while different orderlines are processed in parallel, an orderline
+  waiting on the RA holding up only its own updates. SA_UPDATE_WORKERS
+  threads do the translating.
+
+  forward() translates an update and sends it to the RA, completing with
+  the RA's response, and needs nothing but the executor. accept() lets
+  an update be confirmed straight away: the update is translated, so one
+  we can't read is turned down with a 400 rather than confirmed, then
+  written to a journal on disk before accept() completes and handed to
+  the RaOutbox, at which point it is done with. Updates still in the
+  journal when we start are processed again, any that can no longer be
+  translated are dead lettered. The journal is only opened by start(),
+  which is only called when SA_UPDATE_ASYNC is set.
+
+  The journal keeps the update's x-okapi- headers but not its token. The
+  token stays in memory and goes to the RaOutbox with the update's
+  message, so the RA sees the message come from whoever sent the update.
+  Updates replayed after a restart, or sent without a token, are left to
+  the outbox to send with the tenant's latest token.
+*/
+public class SaUpdateInbox {
+
+  private static final Logger logger = LogManager.getLogger(SaUpdateInbox.class);
+  private static final SaUpdateInbox INSTANCE = new SaUpdateInbox(Paths.get(OUTBOX_DIR), SA_UPDATE_WORKERS);
+  private static final String OKAPI_HEADER_PREFIX = "x-okapi-";
+
+  private final Path dir;
+  private final int workers;
+  private final AtomicInteger pending = new AtomicInteger();
+  private volatile DurableJournal journal;
+  private volatile KeyedExecutor executor;
+
+  private final ConnectorMetrics.Counter accepted = ConnectorMetrics.counter("sa_update_accepted_total");
+  private final ConnectorMetrics.Counter forwarded = ConnectorMetrics.counter("sa_update_forwarded_total");
+  private final ConnectorMetrics.Counter failures = ConnectorMetrics.counter("sa_update_failures_total");
+  private final ConnectorMetrics.Timer processing = ConnectorMetrics.timer("sa_update_processing_seconds");
+
+  SaUpdateInbox(Path dir, int workers) {
+    this.dir = dir;
+    this.workers = workers;
+  }
+
+  public static SaUpdateInbox getInstance() {
+    return INSTANCE;
+  }
+
+  static {
+    ConnectorMetrics.gauge("sa_update_pending", INSTANCE.pending::get);
+  }
+
+  // Open the journal and process whatever was left in it, for accept()
+  public synchronized CompletableFuture<Void> start() {
+    if (journal != null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    journal = new DurableJournal(dir, "sa-update-inbox");
+    return journal.open().thenAccept(entries -> {
+      for (JsonObject entry : entries) {
+        submit(entry, null, null);
+      }
+      if (!entries.isEmpty()) {
+        logger.info("Replaying {} unprocessed orderline updates", entries.size());
+      }
+    });
+  }
+
+  // Stop processing, anything unprocessed stays in the journal for next time
+  public void stop() {
+    DurableJournal toClose;
+    KeyedExecutor toStop;
+    synchronized (this) {
+      toClose = journal;
+      toStop = executor;
+      journal = null;
+      executor = null;
+    }
+    if (toStop != null) {
+      toStop.shutdown(5000);
+    }
+    if (toClose != null) {
+      toClose.close();
+    }
+    pending.set(0);
+  }
+
+  // Translate an orderline update and send it to the RA once any earlier
+  // updates for the same orderline have been dealt with
+  public CompletableFuture<OutboundResponse> forward(String orderlineUpdate, Map<String, String> okapiHeaders) {
+    return executor().submit(SupplyingAgency.extractOrderlineId(orderlineUpdate), () -> {
+      SupplyingAgencyMessage sam = translate(orderlineUpdate, okapiHeaders);
+      return RAUtils.sendRequestToRa(RAUtils.buildRequestForSa(okapiHeaders, sam), okapiHeaders);
+    });
+  }
+
+  // Take an orderline update, completing once it is safely on disk, or
+  // failing with a 400 if it can't be read
+  public CompletableFuture<Void> accept(String orderlineUpdate, Map<String, String> okapiHeaders) {
+    DurableJournal current = journal;
+    if (current == null) {
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      future.completeExceptionally(new IllegalStateException("Orderline update inbox has not been started"));
+      return future;
+    }
+    SupplyingAgencyMessage sam;
+    try {
+      sam = translate(orderlineUpdate, okapiHeaders);
+    } catch (HttpException e) {
+      failures.increment();
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+      return future;
+    }
+    JsonObject headers = new JsonObject();
+    okapiHeaders.forEach((name, value) -> {
+      String lowerCase = name.toLowerCase();
+      if (lowerCase.startsWith(OKAPI_HEADER_PREFIX) && !lowerCase.equals(OKAPI_HEADER_TOKEN)) {
+        headers.put(name, value);
+      }
+    });
+    JsonObject entry = new JsonObject()
+      .put("id", UUID.randomUUID().toString())
+      .put("headers", headers)
+      .put("body", orderlineUpdate)
+      .put("receivedAt", System.currentTimeMillis());
+    String token = okapiHeaders.get(OKAPI_HEADER_TOKEN);
+    return current.add(entry.getString("id"), entry)
+      .thenRun(() -> {
+        accepted.increment();
+        submit(entry, sam, token);
+      });
+  }
+
+  // Translate an update into the message the RA is sent, an update we
+  // can't read is the sender's problem
+  private SupplyingAgencyMessage translate(String orderlineUpdate, Map<String, String> headers) {
+    if (orderlineUpdate == null || SupplyingAgency.extractOrderlineId(orderlineUpdate) == null) {
+      throw new HttpException(400, "Orderline update has no orderline id");
+    }
+    try {
+      return StageMetrics.time("response_map", headers, () ->
+        new SupplyingAgency().buildMessageFromOrderlineUpdate(orderlineUpdate));
+    } catch (RuntimeException e) {
+      throw new HttpException(400, "Unable to read orderline update: " + e.getMessage());
+    }
+  }
+
+  // Queue an update for processing, with its message if we've already
+  // translated it and its sender's token if we still have it
+  private void submit(JsonObject entry, SupplyingAgencyMessage translated, String token) {
+    pending.incrementAndGet();
+    String orderlineId = SupplyingAgency.extractOrderlineId(entry.getString("body"));
+    executor().submit(orderlineId, () -> process(entry, translated, token));
+  }
+
+  // The executor is started on first use, so the synchronous path never
+  // depends on start()
+  private synchronized KeyedExecutor executor() {
+    if (executor == null) {
+      executor = new KeyedExecutor("sa_update", workers);
+    }
+    return executor;
+  }
+
+  private CompletableFuture<Void> process(JsonObject entry, SupplyingAgencyMessage translated, String token) {
+    long start = System.nanoTime();
+    String id = entry.getString("id");
+    Map<String, String> headers = new HashMap<>();
+    entry.getJsonObject("headers").forEach(header -> headers.put(header.getKey(), String.valueOf(header.getValue())));
+    if (token != null) {
+      headers.put(OKAPI_HEADER_TOKEN, token);
+    }
+
+    SupplyingAgencyMessage sam;
+    try {
+      sam = translated != null ? translated : translate(entry.getString("body"), headers);
+    } catch (Exception e) {
+      // No amount of retrying will make this one readable
+      logger.error("Unable to translate orderline update " + id, e);
+      failures.increment();
+      DurableJournal current = journal;
+      finished(current != null ? current.deadLetter(id, entry, String.valueOf(e.getMessage())) : null, start);
+      return CompletableFuture.completedFuture(null);
+    }
+
+    // The next update for this orderline waits until this one is queued
+    return RaOutbox.getInstance().enqueue(sam, headers).whenComplete((v, t) -> {
+      DurableJournal current = journal;
+      if (t != null) {
+        // Leave it in the journal so it's picked up again on restart
+        logger.error("Unable to pass orderline update " + id + " to the RA outbox", t);
+        failures.increment();
+        finished(null, start);
+      } else {
+        forwarded.increment();
+        finished(current != null ? current.done(id) : null, start);
+      }
+    });
+  }
+
+  private void finished(CompletableFuture<Void> recorded, long start) {
+    if (recorded != null) {
+      recorded.whenComplete((v, t) -> {
+        if (t != null) {
+          logger.error("Unable to update the orderline update journal", t);
+        }
+      });
+    }
+    pending.decrementAndGet();
+    processing.recordSince(start);
+  }
+}
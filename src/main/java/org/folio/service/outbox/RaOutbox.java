@@ -0,0 +1,404 @@
+package org.folio.service.outbox;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.common.OkapiParams;
+import org.folio.http.OutboundRequest;
+import org.folio.http.TenantTokens;
+import org.folio.metrics.ConnectorMetrics;
+import org.folio.rest.jaxrs.model.SupplyingAgencyMessageHeader;
+import org.folio.rest.jaxrs.model.ISO18626.SupplyingAgencyMessage;
+import org.folio.util.DurableJournal;
+import org.folio.util.JsonCodecs;
+import org.folio.util.RAUtils;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.folio.config.Constants.OUTBOX_BACKOFF_INITIAL_MS;
+import static org.folio.config.Constants.OUTBOX_BACKOFF_MAX_MS;
+import static org.folio.config.Constants.OUTBOX_CONCURRENCY;
+import static org.folio.config.Constants.OUTBOX_DIR;
+import static org.folio.config.Constants.OUTBOX_MAX_ATTEMPTS;
+import static org.folio.config.Constants.RA_API;
+import static org.folio.rest.RestVerticle.OKAPI_HEADER_TENANT;
+import static org.folio.rest.RestVerticle.OKAPI_HEADER_TOKEN;
+
+/*
+  Delivers SupplyingAgencyMessages to the RA's sa-update endpoint
+
+  - A message is written to a journal on disk before enqueue() completes,
+    messages still in the journal when we start are delivered again
+  - Messages for the same request are delivered one at a time, in the
+    order they were enqueued, a message waiting to be retried holds up
+    those behind it
+  - At most OUTBOX_CONCURRENCY messages are being sent at once
+  - Failures are retried with exponential backoff, a message that still
+    hasn't been delivered after OUTBOX_MAX_ATTEMPTS, or that the RA
+    rejects outright (a 4xx other than 401, 403, 408 or 429), is dead
+    lettered
+
+  Messages keep the Okapi headers of the request that produced them so
+  they can be sent long after that request has finished. The token isn't
+  written to disk, it's kept with the message in memory, so the RA sees
+  the message come from whoever made that request, and a 401 or 403 to
+  it is a rejection like any other.
+
+  Messages replayed from the journal after a restart no longer have a
+  token. They are sent with the latest token TenantTokens has for their
+  tenant, so the RA sees them come from the last user to call one of our
+  endpoints for that tenant. If the tenant has no token, or the RA turns
+  it down, the request's messages wait, without it counting as an
+  attempt, until the tenant calls us with a new one.
+*/
+public class RaOutbox {
+
+  private static final Logger logger = LogManager.getLogger(RaOutbox.class);
+  private static final RaOutbox INSTANCE = new RaOutbox(Paths.get(OUTBOX_DIR), OUTBOX_CONCURRENCY,
+    OUTBOX_MAX_ATTEMPTS, OUTBOX_BACKOFF_INITIAL_MS, OUTBOX_BACKOFF_MAX_MS);
+  private static final String OKAPI_HEADER_PREFIX = "x-okapi-";
+
+  // Messages waiting to be sent, by request
+  private final Map<String, ArrayDeque<Message>> queues = new HashMap<>();
+  // Requests with nothing being sent or waiting to be retried
+  private final ArrayDeque<String> ready = new ArrayDeque<>();
+  // Requests with a message being sent or waiting to be retried
+  private final Set<String> active = new HashSet<>();
+  // Requests waiting on a new token, by tenant
+  private final Map<String, Set<String>> awaitingToken = new HashMap<>();
+  private int pending;
+  private int inFlight;
+
+  private final Path dir;
+  private final int concurrency;
+  private final int maxAttempts;
+  private final long backoffInitialMs;
+  private final long backoffMaxMs;
+
+  private volatile Vertx vertx;
+  private volatile DurableJournal journal;
+
+  private final ConnectorMetrics.Counter delivered = ConnectorMetrics.counter("outbox_delivered_total");
+  private final ConnectorMetrics.Counter retries = ConnectorMetrics.counter("outbox_retries_total");
+  private final ConnectorMetrics.Counter deadLetters = ConnectorMetrics.counter("outbox_dead_letters_total");
+
+  RaOutbox(Path dir, int concurrency, int maxAttempts, long backoffInitialMs, long backoffMaxMs) {
+    this.dir = dir;
+    this.concurrency = concurrency;
+    this.maxAttempts = maxAttempts;
+    this.backoffInitialMs = backoffInitialMs;
+    this.backoffMaxMs = backoffMaxMs;
+    TenantTokens.getInstance().onNewToken(this::tokenChanged);
+  }
+
+  public static RaOutbox getInstance() {
+    return INSTANCE;
+  }
+
+  static {
+    ConnectorMetrics.gauge("outbox_pending", INSTANCE::getPending);
+    ConnectorMetrics.gauge("outbox_in_flight", INSTANCE::getInFlight);
+  }
+
+  // Open the journal and start delivering whatever was left in it
+  public synchronized CompletableFuture<Void> start(Vertx vertx) {
+    this.vertx = vertx;
+    if (journal != null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    journal = new DurableJournal(dir, "ra-outbox");
+    return journal.open().thenAccept(entries -> {
+      for (JsonObject entry : entries) {
+        offer(new Message(entry, null));
+      }
+      if (!entries.isEmpty()) {
+        logger.info("Replaying {} undelivered RA messages", entries.size());
+      }
+    });
+  }
+
+  // Stop sending, anything undelivered stays in the journal for next time
+  public void stop() {
+    DurableJournal toClose;
+    synchronized (this) {
+      toClose = journal;
+      journal = null;
+      queues.clear();
+      ready.clear();
+      active.clear();
+      awaitingToken.clear();
+      pending = 0;
+      inFlight = 0;
+    }
+    if (toClose != null) {
+      toClose.close();
+    }
+  }
+
+  // Queue a message for the RA, completing once it is safely on disk
+  public CompletableFuture<Void> enqueue(SupplyingAgencyMessage message, Map<String, String> okapiHeaders) {
+    DurableJournal current = journal;
+    if (current == null) {
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      future.completeExceptionally(new IllegalStateException("RA outbox has not been started"));
+      return future;
+    }
+    JsonObject headers = new JsonObject();
+    okapiHeaders.forEach((name, value) -> {
+      if (isStored(name)) {
+        headers.put(name, value);
+      }
+    });
+    JsonObject entry = new JsonObject()
+      .put("id", UUID.randomUUID().toString())
+      .put("key", orderingKey(message))
+      .put("headers", headers)
+      .put("body", JsonCodecs.SUPPLYING_AGENCY_MESSAGE.encodeToString(message))
+      .put("createdAt", System.currentTimeMillis());
+    Message toSend = new Message(entry, okapiHeaders.get(OKAPI_HEADER_TOKEN));
+    return current.add(toSend.id, entry)
+      .thenRun(() -> offer(toSend))
+      .whenComplete((v, t) -> {
+        if (t != null) {
+          logger.error("Unable to queue RA message for request " + toSend.key, t);
+        }
+      });
+  }
+
+  public synchronized int getPending() {
+    return pending;
+  }
+
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  // Messages are ordered per supplier request, falling back to the
+  // requester's id if we don't have one
+  private String orderingKey(SupplyingAgencyMessage message) {
+    SupplyingAgencyMessageHeader header = message.getHeader();
+    if (header == null) {
+      return "";
+    }
+    if (header.getSupplyingAgencyRequestId() != null) {
+      return header.getSupplyingAgencyRequestId();
+    }
+    return header.getRequestingAgencyRequestId() != null ? header.getRequestingAgencyRequestId() : "";
+  }
+
+  private synchronized void offer(Message message) {
+    ArrayDeque<Message> queue = queues.computeIfAbsent(message.key, k -> new ArrayDeque<>());
+    queue.add(message);
+    pending++;
+    if (queue.size() == 1 && !active.contains(message.key)) {
+      ready.add(message.key);
+    }
+    drain();
+  }
+
+  private synchronized void drain() {
+    while (inFlight < concurrency && !ready.isEmpty()) {
+      String key = ready.poll();
+      Message message = queues.get(key).peek();
+      active.add(key);
+      inFlight++;
+      send(message);
+    }
+  }
+
+  private void send(Message message) {
+    message.attempts++;
+    Map<String, String> headers;
+    if (message.ownToken != null) {
+      headers = new HashMap<>(message.headers);
+      headers.put(OKAPI_HEADER_TOKEN, message.ownToken);
+    } else {
+      headers = TenantTokens.getInstance().withToken(message.headers);
+    }
+    message.token = headers.get(OKAPI_HEADER_TOKEN);
+    OkapiParams okapiParams = new OkapiParams(headers);
+    OutboundRequest request = OutboundRequest.post(
+      URI.create(okapiParams.getUrl() + RA_API + "/sa-update"),
+      message.body
+    );
+    CompletableFuture.completedFuture(null)
+      .thenCompose(v -> RAUtils.sendRequestToRa(request, headers))
+      .whenComplete((response, t) -> {
+        if (t == null && response.isSuccess()) {
+          delivered.increment();
+          DurableJournal current = journal;
+          finish(message, current != null ? current.done(message.id) : null);
+        } else if (t == null && isUnauthorised(response.statusCode()) && message.ownToken == null) {
+          awaitToken(message, response.statusCode());
+        } else if (t == null && isRejected(response.statusCode())) {
+          deadLetter(message, "RA responded " + response.statusCode() + ": " + response.body());
+        } else {
+          String reason = t != null ? String.valueOf(t.getMessage()) : "RA responded " + response.statusCode();
+          retry(message, reason);
+        }
+      });
+  }
+
+  private boolean isUnauthorised(int statusCode) {
+    return statusCode == 401 || statusCode == 403;
+  }
+
+  private boolean isRejected(int statusCode) {
+    return statusCode >= 400 && statusCode < 500 && statusCode != 408 && statusCode != 429;
+  }
+
+  // Only x-okapi- headers are kept with a message, and not the token
+  private static boolean isStored(String name) {
+    String lowerCase = name.toLowerCase();
+    return lowerCase.startsWith(OKAPI_HEADER_PREFIX) && !lowerCase.equals(OKAPI_HEADER_TOKEN);
+  }
+
+  // The tenant's token we sent a replayed message with was turned down,
+  // hold the request's messages until the tenant gives us another, unless
+  // it already has
+  private void awaitToken(Message message, int statusCode) {
+    message.attempts--;
+    String tenant = message.tenant();
+    synchronized (this) {
+      if (!active.contains(message.key)) {
+        return;
+      }
+      inFlight--;
+      String latest = TenantTokens.getInstance().get(tenant);
+      if (latest != null && !latest.equals(message.token)) {
+        active.remove(message.key);
+        ready.addFirst(message.key);
+      } else {
+        logger.warn("RA responded {} to message {} for request {}, waiting for a new token for tenant {}",
+          statusCode, message.id, message.key, tenant);
+        awaitingToken.computeIfAbsent(tenant, k -> new HashSet<>()).add(message.key);
+      }
+      drain();
+    }
+  }
+
+  private synchronized void tokenChanged(String tenant) {
+    Set<String> keys = awaitingToken.remove(tenant);
+    if (keys == null) {
+      return;
+    }
+    for (String key : keys) {
+      if (active.remove(key)) {
+        ready.addFirst(key);
+      }
+    }
+    drain();
+  }
+
+  private void retry(Message message, String reason) {
+    if (message.attempts >= maxAttempts) {
+      deadLetter(message, reason);
+      return;
+    }
+    long delay = backoff(message.attempts);
+    logger.warn("Unable to deliver RA message {} for request {} ({}), retrying in {}ms",
+      message.id, message.key, reason, delay);
+    retries.increment();
+    synchronized (this) {
+      if (!active.contains(message.key)) {
+        return;
+      }
+      // Free the slot while we wait, but keep the request active so
+      // nothing overtakes this message
+      inFlight--;
+      drain();
+    }
+    Vertx current = vertx;
+    if (current == null) {
+      return;
+    }
+    current.setTimer(delay, id -> {
+      synchronized (this) {
+        if (!active.contains(message.key)) {
+          // We've been stopped since
+          return;
+        }
+        active.remove(message.key);
+        ready.addFirst(message.key);
+        drain();
+      }
+    });
+  }
+
+  private void deadLetter(Message message, String reason) {
+    logger.error("Giving up on RA message {} for request {} after {} attempts: {}",
+      message.id, message.key, message.attempts, reason);
+    deadLetters.increment();
+    DurableJournal current = journal;
+    finish(message, current != null ? current.deadLetter(message.id, message.entry, reason) : null);
+  }
+
+  private void finish(Message message, CompletableFuture<Void> recorded) {
+    if (recorded != null) {
+      recorded.whenComplete((v, t) -> {
+        if (t != null) {
+          logger.error("Unable to update the RA outbox journal for message " + message.id, t);
+        }
+      });
+    }
+    synchronized (this) {
+      if (!active.remove(message.key)) {
+        return;
+      }
+      inFlight--;
+      pending--;
+      ArrayDeque<Message> queue = queues.get(message.key);
+      queue.poll();
+      if (queue.isEmpty()) {
+        queues.remove(message.key);
+      } else {
+        ready.add(message.key);
+      }
+      drain();
+    }
+  }
+
+  private static class Message {
+    private final JsonObject entry;
+    private final String id;
+    private final String key;
+    private final String body;
+    private final Map<String, String> headers = new HashMap<>();
+    // The token of the request that queued the message, never journalled
+    private final String ownToken;
+    private int attempts;
+    private String token;
+
+    private Message(JsonObject entry, String ownToken) {
+      this.entry = entry;
+      this.ownToken = ownToken != null && !ownToken.isEmpty() ? ownToken : null;
+      this.id = entry.getString("id");
+      this.key = entry.getString("key");
+      this.body = entry.getString("body");
+      entry.getJsonObject("headers").forEach(header -> headers.put(header.getKey(), String.valueOf(header.getValue())));
+    }
+
+    private String tenant() {
+      String tenant = headers.get(OKAPI_HEADER_TENANT);
+      return tenant != null ? tenant : "";
+    }
+  }
+
+  private long backoff(int attempts) {
+    long delay = backoffInitialMs << Math.min(attempts - 1, 20);
+    delay = Math.min(delay, backoffMaxMs);
+    // Spread retries out so a recovering RA isn't hit all at once
+    return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+  }
+}
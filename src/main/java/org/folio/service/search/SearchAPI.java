@@ -1,28 +1,52 @@
 package org.folio.service.search;
 
 import io.vertx.core.Context;
+import org.folio.common.OkapiParams;
+import org.folio.exception.EndpointUnavailableException;
+import org.folio.http.Deadline;
+import org.folio.http.EndpointGroup;
+import org.folio.http.EndpointGuard;
+import org.folio.http.Hedger;
+import org.folio.http.HttpClientRegistry;
+import org.folio.http.OutboundRequest;
+import org.folio.http.OutboundResponse;
+import org.folio.http.RateLimiter;
+import org.folio.metrics.ConnectorMetrics;
+import org.folio.metrics.StageMetrics;
+import org.folio.metrics.events.SearchEvent;
+import org.folio.metrics.events.SearchResponseEvent;
 import org.folio.rest.jaxrs.model.*;
 import org.folio.service.BaseService;
-import org.folio.util.ISO18626Util;
-import org.folio.util.XMLUtil;
+import org.folio.util.CQLUtil;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-
+import org.z3950.zing.cql.CQLBooleanNode;
+import org.z3950.zing.cql.CQLNode;
+import org.z3950.zing.cql.CQLPrefixNode;
+import org.z3950.zing.cql.CQLSortNode;
+import org.z3950.zing.cql.CQLTermNode;
+
+import java.io.InputStream;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URLEncoder;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Locale;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.folio.config.Constants.BLDSS_TEST_API_URL;
+import static org.folio.config.Constants.SEARCH_CHUNK_PARALLELISM;
+import static org.folio.config.Constants.SEARCH_CHUNK_SIZE;
+import static org.folio.config.Constants.SEARCH_HEDGE_ENABLED;
+import static org.folio.config.Constants.SEARCH_PREFETCH_ENABLED;
 
 class IndexMapper {
   String issn;
@@ -81,69 +105,92 @@ class IndexMapper {
     return params;
   }
 
+  // Pick the terms we can use out of the searchClause elements of an
+  // XCQL document
   public void parse(NodeList nodes) {
     int length = nodes.getLength();
     for (int i = 0; i < length; i++) {
       if (nodes.item(i).getNodeType() == Node.ELEMENT_NODE) {
         Element el = (Element) nodes.item(i);
         String indexName = el.getElementsByTagName("index").item(0).getTextContent();
-        switch (indexName) {
-          case "Title":
-          case "TitleOfComponent":
-            this.getTitle(indexName, el);
-            break;
-          case "Author":
-          case "AuthorOfComponent":
-            this.getAuthor(indexName, el);
-            break;
-          case "PublicationType":
-            this.getType(indexName, el);
-            break;
-          case "ISBN":
-            this.getIsbn(indexName, el);
-            break;
-          case "ISSN":
-            this.getIssn(indexName, el);
-            break;
-          case "Volume":
-            this.getGeneral(indexName, el);
-            break;
-        }
+        this.apply(indexName, () -> el.getElementsByTagName("term").item(0).getTextContent());
       }
     }
   }
 
-  private void getGeneral(String indexName, Element el) {
-    this.general = el.getElementsByTagName("term").item(0).getTextContent();
+  // Pick the terms we can use out of a parsed CQL query, visiting them in
+  // the same order as their searchClauses would appear in its XCQL
+  public void parse(CQLNode node) {
+    if (node instanceof CQLTermNode) {
+      CQLTermNode termNode = (CQLTermNode) node;
+      this.apply(termNode.getIndex(), termNode::getTerm);
+    } else if (node instanceof CQLBooleanNode) {
+      CQLBooleanNode booleanNode = (CQLBooleanNode) node;
+      this.parse(booleanNode.getLeftOperand());
+      this.parse(booleanNode.getRightOperand());
+    } else if (node instanceof CQLSortNode) {
+      this.parse(((CQLSortNode) node).getSubtree());
+    } else if (node instanceof CQLPrefixNode) {
+      this.parse(((CQLPrefixNode) node).getSubtree());
+    }
   }
 
-  private void getIssn(String indexName, Element el) {
-    this.issn = el.getElementsByTagName("term").item(0).getTextContent();
+  private void apply(String indexName, Supplier<String> term) {
+    switch (indexName) {
+      case "Title":
+      case "TitleOfComponent":
+        this.getTitle(indexName, term);
+        break;
+      case "Author":
+      case "AuthorOfComponent":
+        this.getAuthor(indexName, term);
+        break;
+      case "PublicationType":
+        this.getType(indexName, term);
+        break;
+      case "ISBN":
+        this.getIsbn(indexName, term);
+        break;
+      case "ISSN":
+        this.getIssn(indexName, term);
+        break;
+      case "Volume":
+        this.getGeneral(indexName, term);
+        break;
+    }
+  }
+
+  private void getGeneral(String indexName, Supplier<String> term) {
+    this.general = term.get();
   }
 
-  private void getIsbn(String indexName, Element el) {
-    this.isbn = el.getElementsByTagName("term").item(0).getTextContent();
+  private void getIssn(String indexName, Supplier<String> term) {
+    this.issn = term.get();
   }
 
-  private void getType(String indexName, Element el) {
-    this.type = el.getElementsByTagName("term").item(0).getTextContent().toLowerCase();
+  private void getIsbn(String indexName, Supplier<String> term) {
+    this.isbn = term.get();
   }
 
-  private void getAuthor(String indexName, Element el) {
+  private void getType(String indexName, Supplier<String> term) {
+    this.type = term.get().toLowerCase();
+  }
+
+  private void getAuthor(String indexName, Supplier<String> term) {
     // We can only send one author, so
     // AuthorOfComponent is prioritised over
     // Author
     if (indexName.equals("AuthorOfComponent") || (this.author == null && indexName.equals("Author"))) {
-      this.author = el.getElementsByTagName("term").item(0).getTextContent();
+      this.author = term.get();
     }
   }
 
-  private void getTitle(String indexName, Element el) {
+  private void getTitle(String indexName, Supplier<String> term) {
     // We can only send one title, so
     // TitleOfComponent is prioritised over
     // Title
     if (indexName.equals("TitleOfComponent") || (this.title == null && indexName.equals("Title"))) {
-      this.title = el.getElementsByTagName("term").item(0).getTextContent();
+      this.title = term.get();
     }
   }
 }
@@ -152,153 +199,171 @@ public class SearchAPI extends BaseService implements SearchService {
 
   public static String baseUrl = BLDSS_TEST_API_URL + "/api/search/";
 
+  private static final ConnectorMetrics.Counter staleServed = ConnectorMetrics.counter("search_cache_stale_served_total");
+
   @Override
   public CompletableFuture<SearchResponse> performSearch(Document xcqlDoc, int offset, int limit, Context context, Map<String, String> headers) {
-    CompletableFuture<SearchResponse> future = new CompletableFuture<>();
-    HttpClient client = HttpClient.newHttpClient();
-    HttpRequest preparedRequest = prepareRequest(xcqlDoc, baseUrl, offset, limit);
-    client.sendAsync(preparedRequest, HttpResponse.BodyHandlers.ofString())
-      .thenApply(apiResponse -> {
-        SearchResponse response = prepareResponse(apiResponse.body());
+    SearchPlan plan = StageMetrics.time("query_parse", headers, () -> new SearchPlan(getParams(xcqlDoc)));
+    return performSearch(plan, offset, limit, context, headers);
+  }
+
+  @Override
+  public CompletableFuture<SearchResponse> performSearch(CQLNode cqlNode, int offset, int limit, Context context, Map<String, String> headers) {
+    SearchPlan plan = StageMetrics.time("query_parse", headers, () -> new SearchPlan(getParams(cqlNode)));
+    return performSearch(plan, offset, limit, context, headers);
+  }
+
+  @Override
+  public CompletableFuture<SearchResponse> performSearch(SearchPlan plan, int offset, int limit, Context context, Map<String, String> headers) {
+    SearchEvent event = new SearchEvent();
+    event.begin();
+    CompletableFuture<SearchResponse> search;
+    // Without a limit BLDSS decides how many results to return, so we can't page
+    if (limit <= 0) {
+      search = fetchWindow(plan, offset, limit, headers);
+    } else {
+      SearchPager pager = new SearchPager(
+        SEARCH_CHUNK_SIZE,
+        SEARCH_CHUNK_PARALLELISM,
+        SEARCH_PREFETCH_ENABLED,
+        (start, size) -> fetchWindow(plan, start, size, headers)
+      );
+      search = pager.page(offset, limit);
+    }
+    return event.commitOn(search, (response, t) -> {
+      event.setRequest(headers);
+      event.setPayloadSize(plan.getQuery().getBytes(StandardCharsets.UTF_8).length);
+      event.offset = offset;
+      event.limit = limit;
+      if (response != null && response.getResults() != null) {
+        event.results = response.getResults().size();
+      }
+    });
+  }
+
+  // Fetch exactly this window of results from BLDSS, or from the cache
+  // if we've fetched it recently
+  private CompletableFuture<SearchResponse> fetchWindow(SearchPlan plan, int offset, int limit, Map<String, String> headers) {
+    String cacheKey = SearchResultCache.key(plan, offset, limit);
+    SearchResultCache cache = SearchResultCache.getInstance();
+    return cache.get(cacheKey, () -> {
+      OutboundRequest preparedRequest = StageMetrics.time("request_build", headers, () ->
+        prepareRequest(plan, baseUrl, offset, limit).deadline(Deadline.from(headers)));
+      String tenant = new OkapiParams(headers).getTenant();
+      Hedger hedger = Hedger.forKey(tenant);
+      // Searches aren't made with an API key, so are limited per tenant
+      Supplier<CompletableFuture<OutboundResponse>> attempt = () ->
+        RateLimiter.forKey(tenant)
+          .acquire(RateLimiter.Priority.INTERACTIVE)
+          .thenCompose(v -> EndpointGuard.forGroup(EndpointGroup.SEARCH).call(() -> {
+            long start = System.nanoTime();
+            return StageMetrics.timeAsync("upstream_http", headers, () ->
+              HttpClientRegistry.transport().send(preparedRequest, tenant)
+            ).whenComplete((apiResponse, t) -> {
+              if (t == null) {
+                hedger.record(System.nanoTime() - start);
+              }
+            });
+          }));
+      return (SEARCH_HEDGE_ENABLED ? hedger.call(attempt) : attempt.get()).thenApply(apiResponse -> {
+        SearchResponse response = readResponse(apiResponse, headers);
         response.setOffset(offset);
         response.setLimit(limit);
-        future.complete(response);
-        return response;
+        return new SearchResultCache.Loaded(response, apiResponse.bodyAsBytes().length);
+      });
+    }).handle((response, t) -> {
+      if (t == null) {
+        return CompletableFuture.completedFuture(response);
+      }
+      // If BLDSS search is unavailable an old response beats no response
+      Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+      SearchResponse stale = cause instanceof EndpointUnavailableException ? cache.getStale(cacheKey) : null;
+      if (stale != null) {
+        staleServed.increment();
+        return CompletableFuture.completedFuture(stale);
+      }
+      CompletableFuture<SearchResponse> failed = new CompletableFuture<>();
+      failed.completeExceptionally(cause);
+      return failed;
+    }).thenCompose(Function.identity());
+  }
+
+  // Read a BLDSS search response, as a SearchResponseEvent
+  private SearchResponse readResponse(OutboundResponse apiResponse, Map<String, String> headers) {
+    SearchResponseEvent event = new SearchResponseEvent();
+    event.begin();
+    SearchResponse response = null;
+    try {
+      response = StageMetrics.time("response_map", headers, () -> prepareResponse(apiResponse.bodyAsStream()));
+      return response;
+    } finally {
+      int results = response != null ? response.getResults().size() : 0;
+      boolean failed = response == null;
+      event.commit(() -> {
+        event.setRequest(headers);
+        event.setPayloadSize(apiResponse.bodyAsBytes().length);
+        event.setFailed(failed);
+        event.results = results;
       });
-    return future;
+    }
+  }
+
+  @Override
+  public SearchPlan compilePlan(String cql) {
+    return SearchPlanCache.getInstance().get(cql, query -> {
+      CQLUtil parser = new CQLUtil();
+      return new SearchPlan(getParams(parser.cqlToNode(query)));
+    });
   }
 
   @Override
-  public HttpRequest prepareRequest(Document xcqlDoc, String url, int offset, int limit) {
+  public OutboundRequest prepareRequest(Document xcqlDoc, String url, int offset, int limit) {
+    return prepareRequest(new SearchPlan(getParams(xcqlDoc)), url, offset, limit);
+  }
+
+  // The BLDSS search parameters for the searchClauses in an XCQL document
+  private ArrayList<String> getParams(Document xcqlDoc) {
     NodeList nodes = xcqlDoc.getElementsByTagName("searchClause");
 
     IndexMapper indexMapper = new IndexMapper();
     indexMapper.parse(nodes);
-    ArrayList<String> params = indexMapper.escape();
+    return indexMapper.escape();
+  }
 
-    params.add("SearchRequest.fullDetails=true");
+  // The BLDSS search parameters for the terms in a parsed CQL query
+  private ArrayList<String> getParams(CQLNode cqlNode) {
+    IndexMapper indexMapper = new IndexMapper();
+    indexMapper.parse(cqlNode);
+    return indexMapper.escape();
+  }
+
+  private OutboundRequest prepareRequest(SearchPlan plan, String url, int offset, int limit) {
+    StringBuilder builder = new StringBuilder(url).append('?').append(plan.getQuery());
     if (offset > 0) {
-      params.add("SearchRequest.start=" + offset);
+      builder.append("&SearchRequest.start=").append(offset);
     }
     if (limit > 0) {
-      params.add("SearchRequest.maxResults=" + limit);
+      builder.append("&SearchRequest.maxResults=").append(limit);
     }
-    url += "?" + String.join("&", params);
-    return HttpRequest.newBuilder(URI.create(url)).build();
+    return OutboundRequest.get(URI.create(builder.toString()));
   }
 
   @Override
   public SearchResponse prepareResponse(String response) {
-    XMLUtil parser = new XMLUtil();
-    Document doc = parser.parse(response);
     SearchResponse searchResponse = new SearchResponse();
-    NodeList results = doc.getElementsByTagName("record");
-    ArrayList<Result> returnResults = new ArrayList<>();
-    for (int temp = 0; temp < results.getLength(); temp++) {
-      Node node = results.item(temp);
-      if (node.getNodeType() == Node.ELEMENT_NODE) {
-        Result result = new Result();
-        Element element = (Element) node;
-        Element metadata = (Element) element.getElementsByTagName("metadata").item(0);
-        Element titleLevel = (Element) metadata.getElementsByTagName("titleLevel").item(0);
-        Element itemLevel = (Element) metadata.getElementsByTagName("itemLevel").item(0);
-        Element itemOfInterestLevel = (Element) metadata.getElementsByTagName("itemOfInterestLevel").item(0);
-
-        BibliographicInfo bibinfo = new BibliographicInfo();
-        bibinfo.setSupplierUniqueRecordId(getDescendant(element, "uin", 0));
-
-        ArrayList<Element> titles = new ArrayList<>();
-        titles.add(itemOfInterestLevel);
-        titles.add(titleLevel);
-        bibinfo.setTitle(extractMetadata(titles, "title"));
-
-        ArrayList<Element> authors = new ArrayList<>();
-        authors.add(itemOfInterestLevel);
-        authors.add(titleLevel);
-        bibinfo.setAuthor(extractMetadata(authors, "author"));
-
-        bibinfo.setSeriesTitle(getDescendant(itemLevel, "title", 0));
-        bibinfo.setEdition(getDescendant(itemLevel, "edition", 0));
-        bibinfo.setTitleOfComponent(getDescendant(itemOfInterestLevel, "title", 0));
-        bibinfo.setAuthorOfComponent(getDescendant(itemOfInterestLevel, "author", 0));
-        bibinfo.setVolume(getDescendant(itemLevel, "volume", 0));
-        bibinfo.setIssue(getDescendant(itemLevel, "issue", 0));
-
-        ArrayList<BibliographicItemId> identifiers = getIdentifiers(titleLevel);
-        if (identifiers.size() > 0) {
-          bibinfo.setBibliographicItemId(identifiers);
-        }
-
-        PublicationInfo pubInfo = new PublicationInfo();
-        pubInfo.setPublisher(getDescendant(titleLevel, "publisher", 0));
-        ISO18626Util isoUtil = new ISO18626Util();
-        String blType = getDescendant(element, "type", 0);
-        String isoType = isoUtil.bldssToIsoType(blType);
-        pubInfo.setPublicationType(PublicationInfo.PublicationType.fromValue(isoType));
-
-        SearchResultMetadata resultMetadata = new SearchResultMetadata();
-        resultMetadata.setBibliographicInfo(bibinfo);
-        resultMetadata.setPublicationInfo(pubInfo);
-
-        result.setMetadata(resultMetadata);
-
-        result.setAbstract(getDescendant(element, "abstractText", 0));
-
-        returnResults.add(result);
-
-      }
-    }
-    NodeList totalRecordsNodes = doc.getElementsByTagName("numberOfRecords");
-    Node totalRecords = totalRecordsNodes.item(0);
-    searchResponse.setTotalRecords(Integer.parseInt(totalRecords.getTextContent()));
-
-    searchResponse.setResults(returnResults);
-
+    List<Result> results = new ArrayList<>();
+    searchResponse.setTotalRecords(new SearchResultReader().read(new StringReader(response), results::add));
+    searchResponse.setResults(results);
     return searchResponse;
   }
 
-  private String extractMetadata(ArrayList<Element> sources, String name) {
-    String toReturn = null;
-    for(Element source: sources) {
-      toReturn = getDescendant(source, name, 0);
-      if (toReturn != null) {
-        break;
-      }
-    }
-    return toReturn;
-  }
-
-  private String getDescendant(Node node, String target, Integer idx) {
-    Element element = (Element) node;
-    NodeList nodeList = element.getElementsByTagName(target);
-    if (idx < 0 || nodeList.getLength() < idx + 1) {
-      return null;
-    }
-    return nodeList.item(idx).getTextContent();
-  }
-
-  private ArrayList<BibliographicItemId> getIdentifiers(Element titleLevel) {
-    String delimiterRegex = "\\|";
-    ArrayList<String> types = new ArrayList<>();
-    ArrayList<BibliographicItemId> toReturn = new ArrayList<>();
-    types.add("isbn");
-    types.add("issn");
-    types.add("ismn");
-    for (String type : types) {
-      String value = getDescendant(titleLevel, type, 0);
-      if (value != null && value.length() > 0) {
-        String[] valueSplut = value.split(delimiterRegex);
-        for (String splut: valueSplut) {
-          BibliographicItemId bibliographicItemId = new BibliographicItemId();
-          bibliographicItemId.setBibliographicItemIdentifierCode(
-            BibliographicItemId.BibliographicItemIdentifierCode.fromValue(type.toUpperCase(Locale.ROOT))
-          );
-          bibliographicItemId.setBibliographicItemIdentifier(splut);
-          toReturn.add(bibliographicItemId);
-        }
-      }
-    }
-    return toReturn;
+  @Override
+  public SearchResponse prepareResponse(InputStream response) {
+    SearchResponse searchResponse = new SearchResponse();
+    List<Result> results = new ArrayList<>();
+    searchResponse.setTotalRecords(new SearchResultReader().read(response, results::add));
+    searchResponse.setResults(results);
+    return searchResponse;
   }
 
 }
@@ -0,0 +1,120 @@
+package org.folio.service.search;
+
+import org.folio.metrics.ConnectorMetrics;
+import org.folio.rest.jaxrs.model.Result;
+import org.folio.rest.jaxrs.model.SearchResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+/*
+  Serves an offset / limit window of search results from fixed size,
+  aligned chunks of the upstream results
+
+  - Windows overlapping a chunk we've already fetched are sliced out of it
+    rather than going back to BLDSS
+  - A window spanning several chunks fetches them in parallel, no more
+    than parallelism at a time, and stitches them together in order
+  - When the next window of the same size would run into a chunk we
+    haven't fetched, that chunk is fetched in the background
+
+  The chunk fetcher is given (start, size) and is expected to cache what
+  it fetches, that's what makes slicing and prefetching worthwhile
+*/
+public class SearchPager {
+
+  private static final ConnectorMetrics.Counter prefetches = ConnectorMetrics.counter("search_chunk_prefetches_total");
+
+  private final int chunkSize;
+  private final int parallelism;
+  private final boolean prefetch;
+  private final BiFunction<Integer, Integer, CompletableFuture<SearchResponse>> fetcher;
+
+  public SearchPager(int chunkSize, int parallelism, boolean prefetch, BiFunction<Integer, Integer, CompletableFuture<SearchResponse>> fetcher) {
+    this.chunkSize = Math.max(1, chunkSize);
+    this.parallelism = Math.max(1, parallelism);
+    this.prefetch = prefetch;
+    this.fetcher = fetcher;
+  }
+
+  public CompletableFuture<SearchResponse> page(int offset, int limit) {
+    int firstChunk = offset / chunkSize;
+    int lastChunk = (int) (((long) offset + limit - 1) / chunkSize);
+
+    // The first chunk tells us how many records there are, so we don't
+    // go asking for chunks beyond the end of them
+    return fetchChunk(firstChunk).thenCompose(first -> {
+      int total = first.getTotalRecords() != null ? first.getTotalRecords() : 0;
+      int lastAvailable = total > 0 ? (total - 1) / chunkSize : firstChunk;
+      int last = Math.max(firstChunk, Math.min(lastChunk, lastAvailable));
+
+      List<SearchResponse> chunks = new ArrayList<>();
+      chunks.add(first);
+      return fetchChunks(firstChunk + 1, last, chunks).thenApply(fetched -> {
+        if (prefetch) {
+          prefetchNext(offset, limit, last, total);
+        }
+        return stitch(fetched, firstChunk, offset, limit, total);
+      });
+    });
+  }
+
+  private CompletableFuture<SearchResponse> fetchChunk(int chunk) {
+    return fetcher.apply(chunk * chunkSize, chunkSize);
+  }
+
+  private CompletableFuture<List<SearchResponse>> fetchChunks(int from, int to, List<SearchResponse> fetched) {
+    if (from > to) {
+      return CompletableFuture.completedFuture(fetched);
+    }
+    int batchEnd = Math.min(to, from + parallelism - 1);
+    List<CompletableFuture<SearchResponse>> batch = new ArrayList<>();
+    for (int chunk = from; chunk <= batchEnd; chunk++) {
+      batch.add(fetchChunk(chunk));
+    }
+    return CompletableFuture.allOf(batch.toArray(new CompletableFuture[0])).thenCompose(v -> {
+      for (CompletableFuture<SearchResponse> future : batch) {
+        fetched.add(future.join());
+      }
+      return fetchChunks(batchEnd + 1, to, fetched);
+    });
+  }
+
+  // Each chunk is sliced by where its results actually start and how many
+  // there are, BLDSS may return fewer than we asked for before the last chunk
+  private SearchResponse stitch(List<SearchResponse> chunks, int firstChunk, int offset, int limit, int total) {
+    long windowEnd = (long) offset + limit;
+    List<Result> results = new ArrayList<>();
+    for (int i = 0; i < chunks.size(); i++) {
+      SearchResponse chunk = chunks.get(i);
+      List<Result> chunkResults = chunk.getResults();
+      if (chunkResults == null || chunkResults.isEmpty()) {
+        continue;
+      }
+      long start = chunk.getOffset() != null ? chunk.getOffset() : (long) (firstChunk + i) * chunkSize;
+      int from = (int) Math.max(0, Math.min(chunkResults.size(), offset - start));
+      int to = (int) Math.max(from, Math.min(chunkResults.size(), windowEnd - start));
+      results.addAll(chunkResults.subList(from, to));
+    }
+
+    SearchResponse response = new SearchResponse();
+    response.setTotalRecords(total);
+    response.setResults(results);
+    response.setOffset(offset);
+    response.setLimit(limit);
+    return response;
+  }
+
+  // If the next window of this size would spill past the chunks we've
+  // fetched, fetch the following chunk now so it's cached when it's asked for
+  private void prefetchNext(int offset, int limit, int lastChunk, int total) {
+    long fetchedEnd = (long) (lastChunk + 1) * chunkSize;
+    long windowEnd = (long) offset + limit;
+    if (fetchedEnd - windowEnd < limit && fetchedEnd < total) {
+      prefetches.increment();
+      fetchChunk(lastChunk + 1);
+    }
+  }
+}
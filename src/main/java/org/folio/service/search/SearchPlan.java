@@ -0,0 +1,42 @@
+package org.folio.service.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+  Everything about a search that doesn't depend on offset and limit: the
+  URL encoded BLDSS search parameters, the query string they make up and
+  the normalised form we key cached results on
+*/
+public class SearchPlan {
+
+  private final List<String> params;
+  private final String query;
+  private final String cacheKey;
+
+  public SearchPlan(List<String> params) {
+    this.params = Collections.unmodifiableList(new ArrayList<>(params));
+
+    ArrayList<String> queryParams = new ArrayList<>(params);
+    queryParams.add("SearchRequest.fullDetails=true");
+    this.query = String.join("&", queryParams);
+
+    ArrayList<String> sorted = new ArrayList<>(params);
+    Collections.sort(sorted);
+    this.cacheKey = String.join("&", sorted);
+  }
+
+  public List<String> getParams() {
+    return params;
+  }
+
+  // The query string, less paging, to send to BLDSS
+  public String getQuery() {
+    return query;
+  }
+
+  public String getCacheKey() {
+    return cacheKey;
+  }
+}
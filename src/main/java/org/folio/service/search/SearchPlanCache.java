@@ -0,0 +1,80 @@
+package org.folio.service.search;
+
+import org.folio.metrics.ConnectorMetrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.folio.config.Constants.SEARCH_PLAN_CACHE_MAX_ENTRIES;
+
+/*
+  Compiled search plans keyed by the raw CQL they came from, so a repeated
+  query skips parsing and encoding
+
+  Plans don't go stale, the map is simply kept to SEARCH_PLAN_CACHE_MAX_ENTRIES
+  by dropping the least recently used plan once it grows past that. Plans
+  are compiled outside the lock, queries that fail to compile are not
+  cached.
+*/
+public class SearchPlanCache {
+
+  private static final SearchPlanCache INSTANCE = new SearchPlanCache(SEARCH_PLAN_CACHE_MAX_ENTRIES);
+
+  // Access ordered, so the eldest entry is the least recently used
+  private final LinkedHashMap<String, SearchPlan> plans;
+
+  private final ConnectorMetrics.Counter hits = ConnectorMetrics.counter("search_plan_cache_hits_total");
+  private final ConnectorMetrics.Counter misses = ConnectorMetrics.counter("search_plan_cache_misses_total");
+  private final ConnectorMetrics.Timer compileTime = ConnectorMetrics.timer("search_plan_compile_seconds");
+
+  public SearchPlanCache(int maxEntries) {
+    this.plans = new LinkedHashMap<String, SearchPlan>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, SearchPlan> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  public static SearchPlanCache getInstance() {
+    return INSTANCE;
+  }
+
+  static {
+    ConnectorMetrics.gauge("search_plan_cache_entries", () -> INSTANCE.size());
+  }
+
+  public SearchPlan get(String cql, Function<String, SearchPlan> compiler) {
+    SearchPlan plan = lookup(cql);
+    if (plan != null) {
+      hits.increment();
+      return plan;
+    }
+    misses.increment();
+    long start = System.nanoTime();
+    plan = compiler.apply(cql);
+    compileTime.recordSince(start);
+
+    return store(cql, plan);
+  }
+
+  public synchronized int size() {
+    return plans.size();
+  }
+
+  public synchronized void clear() {
+    plans.clear();
+  }
+
+  private synchronized SearchPlan lookup(String cql) {
+    return plans.get(cql);
+  }
+
+  // Another thread may have compiled the same query while we did, in
+  // which case we keep theirs
+  private synchronized SearchPlan store(String cql, SearchPlan plan) {
+    SearchPlan existing = plans.putIfAbsent(cql, plan);
+    return existing != null ? existing : plan;
+  }
+}
@@ -0,0 +1,192 @@
+package org.folio.service.search;
+
+import org.folio.metrics.ConnectorMetrics;
+import org.folio.rest.jaxrs.model.SearchResponse;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static org.folio.config.Constants.SEARCH_CACHE_MAX_BYTES;
+import static org.folio.config.Constants.SEARCH_CACHE_TTL_MS;
+
+/*
+  A cache of BLDSS search responses, keyed by the search plan's
+  parameters plus offset and limit
+
+  - Entries live for SEARCH_CACHE_TTL_MS after they were loaded, expired
+    entries are kept (until evicted) in case we need to serve them stale
+  - The least recently used entries are evicted once the cached upstream
+    responses add up to more than SEARCH_CACHE_MAX_BYTES
+  - Concurrent misses for the same key share one upstream search
+  - Failed searches are not cached
+*/
+public class SearchResultCache {
+
+  private static final SearchResultCache INSTANCE = new SearchResultCache(SEARCH_CACHE_TTL_MS, SEARCH_CACHE_MAX_BYTES);
+
+  // Access ordered, so iteration starts from the least recently used
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final ConcurrentHashMap<String, CompletableFuture<SearchResponse>> inFlight = new ConcurrentHashMap<>();
+  private final long ttlMs;
+  private final long maxBytes;
+  private long bytes;
+
+  private final ConnectorMetrics.Counter hits = ConnectorMetrics.counter("search_cache_hits_total");
+  private final ConnectorMetrics.Counter misses = ConnectorMetrics.counter("search_cache_misses_total");
+  private final ConnectorMetrics.Counter coalesced = ConnectorMetrics.counter("search_cache_coalesced_total");
+
+  public SearchResultCache(long ttlMs, long maxBytes) {
+    this.ttlMs = ttlMs;
+    this.maxBytes = maxBytes;
+  }
+
+  public static SearchResultCache getInstance() {
+    return INSTANCE;
+  }
+
+  static {
+    ConnectorMetrics.gauge("search_cache_bytes", () -> INSTANCE.bytes());
+    ConnectorMetrics.gauge("search_cache_entries", () -> INSTANCE.size());
+  }
+
+  // Keyed on the plan's normalised parameters, so the same search expressed
+  // in a different order shares an entry
+  public static String key(SearchPlan plan, int offset, int limit) {
+    return plan.getCacheKey() + "|" + offset + "|" + limit;
+  }
+
+  // Return the cached response for this key, using the supplied loader
+  // if we don't have a usable entry
+  public CompletableFuture<SearchResponse> get(String key, Supplier<CompletableFuture<Loaded>> loader) {
+    SearchResponse cached = lookup(key);
+    if (cached != null) {
+      hits.increment();
+      return CompletableFuture.completedFuture(cached);
+    }
+
+    CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+    CompletableFuture<SearchResponse> existing = inFlight.putIfAbsent(key, future);
+    if (existing != null) {
+      coalesced.increment();
+      return existing;
+    }
+    // Another load may have finished between our lookup and claiming the key
+    cached = lookup(key);
+    if (cached != null) {
+      inFlight.remove(key, future);
+      hits.increment();
+      future.complete(cached);
+      return future;
+    }
+
+    misses.increment();
+    try {
+      loader.get().whenComplete((loaded, t) -> {
+        if (t == null) {
+          store(key, loaded);
+        }
+        inFlight.remove(key, future);
+        if (t != null) {
+          future.completeExceptionally(t);
+        } else {
+          future.complete(loaded.response);
+        }
+      });
+    } catch (Exception e) {
+      inFlight.remove(key, future);
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  // Whatever we hold for this key, however old it is
+  public synchronized SearchResponse getStale(String key) {
+    Entry entry = entries.get(key);
+    return entry != null ? entry.response : null;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long bytes() {
+    return bytes;
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    bytes = 0;
+  }
+
+  private synchronized SearchResponse lookup(String key) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (System.currentTimeMillis() - entry.loadedAt >= ttlMs) {
+      return null;
+    }
+    return entry.response;
+  }
+
+  private synchronized void store(String key, Loaded loaded) {
+    // Roughly what we're holding on to, the upstream body plus the key
+    long size = loaded.bytes + key.length() * 2L;
+    if (size > maxBytes) {
+      return;
+    }
+    remove(key);
+    entries.put(key, new Entry(loaded.response, size));
+    bytes += size;
+
+    // The entry we just added is the most recently used, so we'll have
+    // made room before reaching it
+    Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+    while (bytes > maxBytes && iterator.hasNext()) {
+      Map.Entry<String, Entry> eldest = iterator.next();
+      bytes -= eldest.getValue().size;
+      iterator.remove();
+    }
+  }
+
+  private void remove(String key) {
+    Entry removed = entries.remove(key);
+    if (removed != null) {
+      bytes -= removed.size;
+    }
+  }
+
+  // A freshly loaded response along with the size of the upstream body it came from
+  public static class Loaded {
+    private final SearchResponse response;
+    private final long bytes;
+
+    public Loaded(SearchResponse response, long bytes) {
+      this.response = response;
+      this.bytes = bytes;
+    }
+  }
+
+  private static class Entry {
+    private final SearchResponse response;
+    private final long size;
+    private final long loadedAt = System.currentTimeMillis();
+
+    private Entry(SearchResponse response, long size) {
+      this.response = response;
+      this.size = size;
+    }
+  }
+}
@@ -0,0 +1,256 @@
+package org.folio.service.search;
+
+import org.folio.exception.ConnectorQueryException;
+import org.folio.rest.jaxrs.model.BibliographicInfo;
+import org.folio.rest.jaxrs.model.BibliographicItemId;
+import org.folio.rest.jaxrs.model.PublicationInfo;
+import org.folio.rest.jaxrs.model.Result;
+import org.folio.rest.jaxrs.model.SearchResultMetadata;
+import org.folio.util.ISO18626Util;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/*
+  Reads a BLDSS search response in a single pass, handing each record to
+  a consumer as a Result as soon as the record has been read
+
+  Each field takes the text of the first matching element, either within
+  the record as a whole (uin, type, abstractText) or within the record's
+  titleLevel, itemLevel or itemOfInterestLevel section
+*/
+public class SearchResultReader {
+
+  private static final String RECORD = "record";
+  private static final String NUMBER_OF_RECORDS = "numberOfRecords";
+  private static final String TITLE_LEVEL = "titleLevel";
+  private static final String ITEM_LEVEL = "itemLevel";
+  private static final String ITEM_OF_INTEREST_LEVEL = "itemOfInterestLevel";
+
+  private static final Set<String> SECTIONS = new HashSet<>(Arrays.asList(
+    TITLE_LEVEL, ITEM_LEVEL, ITEM_OF_INTEREST_LEVEL
+  ));
+  private static final Set<String> FIELDS = new HashSet<>(Arrays.asList(
+    "uin", "type", "abstractText", "title", "author", "publisher", "edition",
+    "volume", "issue", "isbn", "issn", "ismn"
+  ));
+  private static final String[] IDENTIFIER_TYPES = { "isbn", "issn", "ismn" };
+
+  private static final XMLInputFactory factory = createFactory();
+
+  private final ISO18626Util isoUtil = new ISO18626Util();
+
+  // Read a search response, returning the total number of records BLDSS
+  // reports for the search
+  public int read(InputStream in, Consumer<Result> consumer) {
+    try {
+      return read(factory.createXMLStreamReader(in), consumer);
+    } catch (XMLStreamException e) {
+      throw new ConnectorQueryException(e.getMessage());
+    }
+  }
+
+  public int read(Reader in, Consumer<Result> consumer) {
+    try {
+      return read(factory.createXMLStreamReader(in), consumer);
+    } catch (XMLStreamException e) {
+      throw new ConnectorQueryException(e.getMessage());
+    }
+  }
+
+  private int read(XMLStreamReader reader, Consumer<Result> consumer) throws XMLStreamException {
+    Integer totalRecords = null;
+    RecordState record = null;
+    StringBuilder numberOfRecords = null;
+
+    try {
+      while (reader.hasNext()) {
+        int event = reader.next();
+        switch (event) {
+          case XMLStreamConstants.START_ELEMENT:
+            String startName = reader.getLocalName();
+            if (record != null) {
+              record.start(startName);
+            } else if (RECORD.equals(startName)) {
+              record = new RecordState();
+            } else if (NUMBER_OF_RECORDS.equals(startName) && totalRecords == null) {
+              numberOfRecords = new StringBuilder();
+            }
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.CDATA:
+          case XMLStreamConstants.SPACE:
+            if (record != null) {
+              record.text(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            } else if (numberOfRecords != null) {
+              numberOfRecords.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            }
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            String endName = reader.getLocalName();
+            if (record != null) {
+              if (record.depth == 0 && RECORD.equals(endName)) {
+                consumer.accept(toResult(record));
+                record = null;
+              } else {
+                record.end(endName);
+              }
+            } else if (numberOfRecords != null && NUMBER_OF_RECORDS.equals(endName)) {
+              totalRecords = Integer.parseInt(numberOfRecords.toString().trim());
+              numberOfRecords = null;
+            }
+            break;
+          default:
+            break;
+        }
+      }
+    } finally {
+      reader.close();
+    }
+
+    if (totalRecords == null) {
+      throw new ConnectorQueryException("Search response did not contain " + NUMBER_OF_RECORDS);
+    }
+    return totalRecords;
+  }
+
+  private Result toResult(RecordState record) {
+    Map<String, String> titleLevel = record.section(TITLE_LEVEL);
+    Map<String, String> itemLevel = record.section(ITEM_LEVEL);
+    Map<String, String> itemOfInterestLevel = record.section(ITEM_OF_INTEREST_LEVEL);
+
+    BibliographicInfo bibinfo = new BibliographicInfo();
+    bibinfo.setSupplierUniqueRecordId(record.fields.get("uin"));
+    bibinfo.setTitle(firstOf(itemOfInterestLevel.get("title"), titleLevel.get("title")));
+    bibinfo.setAuthor(firstOf(itemOfInterestLevel.get("author"), titleLevel.get("author")));
+    bibinfo.setSeriesTitle(itemLevel.get("title"));
+    bibinfo.setEdition(itemLevel.get("edition"));
+    bibinfo.setTitleOfComponent(itemOfInterestLevel.get("title"));
+    bibinfo.setAuthorOfComponent(itemOfInterestLevel.get("author"));
+    bibinfo.setVolume(itemLevel.get("volume"));
+    bibinfo.setIssue(itemLevel.get("issue"));
+
+    List<BibliographicItemId> identifiers = getIdentifiers(titleLevel);
+    if (identifiers.size() > 0) {
+      bibinfo.setBibliographicItemId(identifiers);
+    }
+
+    PublicationInfo pubInfo = new PublicationInfo();
+    pubInfo.setPublisher(titleLevel.get("publisher"));
+    String isoType = isoUtil.bldssToIsoType(record.fields.get("type"));
+    pubInfo.setPublicationType(PublicationInfo.PublicationType.fromValue(isoType));
+
+    SearchResultMetadata resultMetadata = new SearchResultMetadata();
+    resultMetadata.setBibliographicInfo(bibinfo);
+    resultMetadata.setPublicationInfo(pubInfo);
+
+    Result result = new Result();
+    result.setMetadata(resultMetadata);
+    result.setAbstract(record.fields.get("abstractText"));
+    return result;
+  }
+
+  private String firstOf(String first, String second) {
+    return first != null ? first : second;
+  }
+
+  private List<BibliographicItemId> getIdentifiers(Map<String, String> titleLevel) {
+    List<BibliographicItemId> toReturn = new ArrayList<>();
+    for (String type : IDENTIFIER_TYPES) {
+      String value = titleLevel.get(type);
+      if (value != null && value.length() > 0) {
+        for (String splut : value.split("\\|")) {
+          BibliographicItemId bibliographicItemId = new BibliographicItemId();
+          bibliographicItemId.setBibliographicItemIdentifierCode(
+            BibliographicItemId.BibliographicItemIdentifierCode.fromValue(type.toUpperCase(Locale.ROOT))
+          );
+          bibliographicItemId.setBibliographicItemIdentifier(splut);
+          toReturn.add(bibliographicItemId);
+        }
+      }
+    }
+    return toReturn;
+  }
+
+  private static XMLInputFactory createFactory() {
+    XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return xmlInputFactory;
+  }
+
+  // What we've collected so far for the record being read
+  private static class RecordState {
+    private final Map<String, String> fields = new HashMap<>();
+    private final Map<String, Map<String, String>> sections = new HashMap<>();
+    private final Deque<Capture> captures = new ArrayDeque<>();
+    private String section;
+    private int sectionDepth;
+    private int depth;
+
+    private void start(String name) {
+      depth++;
+      if (section == null && SECTIONS.contains(name) && !sections.containsKey(name)) {
+        section = name;
+        sectionDepth = depth;
+        sections.put(name, new HashMap<>());
+      }
+      if (FIELDS.contains(name)) {
+        captures.push(new Capture(name, section));
+      }
+    }
+
+    private void text(char[] chars, int start, int length) {
+      // An element's text includes that of everything inside it
+      for (Capture capture : captures) {
+        capture.text.append(chars, start, length);
+      }
+    }
+
+    private void end(String name) {
+      Capture capture = captures.peek();
+      if (capture != null && capture.name.equals(name)) {
+        captures.pop();
+        String value = capture.text.toString();
+        fields.putIfAbsent(name, value);
+        if (capture.section != null) {
+          sections.get(capture.section).putIfAbsent(name, value);
+        }
+      }
+      if (section != null && depth == sectionDepth && section.equals(name)) {
+        section = null;
+      }
+      depth--;
+    }
+
+    private Map<String, String> section(String name) {
+      return sections.getOrDefault(name, new HashMap<>());
+    }
+  }
+
+  private static class Capture {
+    private final String name;
+    private final String section;
+    private final StringBuilder text = new StringBuilder();
+
+    private Capture(String name, String section) {
+      this.name = name;
+      this.section = section;
+    }
+  }
+}
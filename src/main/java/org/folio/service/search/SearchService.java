@@ -1,10 +1,12 @@
 package org.folio.service.search;
 
 import io.vertx.core.Context;
+import org.folio.http.OutboundRequest;
 import org.folio.rest.jaxrs.model.SearchResponse;
 import org.w3c.dom.Document;
+import org.z3950.zing.cql.CQLNode;
 
-import java.net.http.HttpRequest;
+import java.io.InputStream;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -22,6 +24,41 @@ public interface SearchService {
    */
   CompletableFuture<SearchResponse> performSearch(Document search, int offset, int limit, Context context, Map<String, String> headers);
 
+  /**
+   * As {@link #performSearch(Document, int, int, Context, Map)}, but takes the
+   * parsed CQL query directly rather than its XCQL representation
+   *
+   * @param search A CQLNode representing the parsed CQL query
+   * @param offset  offset
+   * @param limit   limit
+   * @param context Vert.X context
+   * @param headers OKAPI headers
+   * @return collection of search results{@link SearchResponse}
+   */
+  CompletableFuture<SearchResponse> performSearch(CQLNode search, int offset, int limit, Context context, Map<String, String> headers);
+
+  /**
+   * As {@link #performSearch(Document, int, int, Context, Map)}, but takes a
+   * search plan already compiled by {@link #compilePlan(String)}
+   *
+   * @param plan A compiled SearchPlan
+   * @param offset  offset
+   * @param limit   limit
+   * @param context Vert.X context
+   * @param headers OKAPI headers
+   * @return collection of search results{@link SearchResponse}
+   */
+  CompletableFuture<SearchResponse> performSearch(SearchPlan plan, int offset, int limit, Context context, Map<String, String> headers);
+
+  /**
+   * This method compiles a CQL string into a SearchPlan, reusing the plan from
+   * an earlier identical query where there is one
+   *
+   * @param cql A CQL string representing the search terms
+   * @return The compiled SearchPlan
+   */
+  SearchPlan compilePlan(String cql);
+
     /**
     * This method accepts an XCQL org.w3c.dom.Document and returns a search string ready
     * to be passed to the supplier's search API
@@ -30,9 +67,9 @@ public interface SearchService {
     * @param baseUrl A String representing the supplier's API base URL
     * @param offset offset
     * @param limit limit
-    * @return An HttpRequest instance that is ready to be used by the client
+    * @return An OutboundRequest instance that is ready to be sent
     */
-    HttpRequest prepareRequest(Document search, String baseUrl, int offset, int limit);
+    OutboundRequest prepareRequest(Document search, String baseUrl, int offset, int limit);
 
     /**
     * This method receives an HttpResponse containing the supplier's API response
@@ -43,4 +80,13 @@ public interface SearchService {
     */
     SearchResponse prepareResponse(String response);
 
+    /**
+    * As {@link #prepareResponse(String)}, but reads the supplier's response
+    * body as it streams in rather than from a String
+    *
+    * @param response The supplier's response body
+    * @return A SearchResponse instance
+    */
+    SearchResponse prepareResponse(InputStream response);
+
 }
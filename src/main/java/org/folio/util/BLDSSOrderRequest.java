@@ -1,21 +1,17 @@
 package org.folio.util;
 
-import io.vertx.core.json.JsonObject;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.vertx.core.json.DecodeException;
 import org.folio.common.OkapiParams;
+import org.folio.exception.HttpException;
 import org.folio.rest.jaxrs.model.BibliographicInfo;
-import org.folio.rest.jaxrs.model.Config;
 import org.folio.rest.jaxrs.model.PublicationInfo;
-import org.folio.service.configuration.ConfigurationService;
 import org.json.JSONObject;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
 import java.time.ZonedDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.folio.config.Constants.CALLBACK_UUID;
 import static org.folio.config.Constants.OUR_BASE_API;
@@ -32,107 +28,107 @@ public class BLDSSOrderRequest extends BLDSSRequest {
     super("order", httpMethod, path, parameters, needsAuth);
   }
 
-  public String preparePayload(String payload, Map<String, String> okapiHeaders) {
+  // Build the NewOrderRequest payload once we have the settings it needs
+  public CompletableFuture<String> preparePayload(String payload, Map<String, String> okapiHeaders) {
+    return BLDSSSettings.load(okapiHeaders)
+      .thenApply(settings -> preparePayload(payload, okapiHeaders, settings));
+  }
+
+  // Build the payload using settings we already have
+  public String preparePayload(String payload, Map<String, String> okapiHeaders, BLDSSSettings settings) {
+    return buildPayload(payload, okapiHeaders, settings.getGeneralSettings());
+  }
+
+  private String buildPayload(String payload, Map<String, String> okapiHeaders, JSONObject generalSettings) {
     ISO18626Util iso18626Util = new ISO18626Util();
     OkapiParams okapiParams = new OkapiParams(okapiHeaders);
 
-    JsonObject json = new JsonObject(payload);
-
-    DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-    DocumentBuilder db;
+    JsonNode json;
     try {
-      db = dbf.newDocumentBuilder();
-    } catch (ParserConfigurationException e) {
-      e.printStackTrace();
-      return null;
+      json = JsonCodecs.readTree(payload);
+    } catch (DecodeException e) {
+      throw new HttpException(400, "Invalid action request: " + e.getMessage());
     }
 
-    Element rootEl;
-
-    Document doc = db.newDocument();
-
     // What we do depends on the action we're processing
-    String localRequestId = json.getString("localRequestId");
-    JsonObject requestMetadata = json.getJsonObject("requestMetadata");
-    JsonObject submission = json.getJsonObject("submission");
-    JsonObject selectedResult = json.getJsonObject("selectedResult");
+    String localRequestId = json.path("localRequestId").textValue();
+    JsonNode requestMetadata = json.path("requestMetadata");
+    JsonNode submission = json.path("submission");
+    JsonNode selectedResult = json.path("selectedResult");
 
     // Set the properties that we will use to obtain metadata
     setInfos(selectedResult, submission);
 
-    rootEl = doc.createElement("NewOrderRequest");
-    doc.appendChild(rootEl);
+    XMLPayload rootEl = XMLPayload.element("NewOrderRequest");
 
     // Top level elements
-    addValueToEl(doc, "S", "type", rootEl);
-    addValueToEl(doc, localRequestId, "customerReference", rootEl);
-    addValueToEl(doc, okapiParams.getUrl() + OUR_BASE_API + "/" + CALLBACK_UUID + "/sa-update", "callbackUrl", rootEl);
+    rootEl.add("type", "S");
+    rootEl.add("customerReference", localRequestId);
+    rootEl.add("callbackUrl", okapiParams.getUrl() + OUR_BASE_API + "/" + CALLBACK_UUID + "/sa-update");
 
     // Service
-    JsonObject services = requestMetadata.getJsonObject("services");
-    String format = services.getString("format");
-    String speed = services.getString("speed");
-    String quality = services.getString("quality");
-    Element service = doc.createElement("Service");
-    addValueToEl(doc, "1", "service", service);
-    addValueToEl(doc, format, "format", service);
-    addValueToEl(doc, speed, "speed", service);
-    addValueToEl(doc, quality, "quality", service);
-    rootEl.appendChild(service);
+    JsonNode services = requestMetadata.path("services");
+    String format = services.path("format").textValue();
+    String speed = services.path("speed").textValue();
+    String quality = services.path("quality").textValue();
+    XMLPayload service = XMLPayload.element("Service");
+    service.add("service", "1");
+    service.add("format", format);
+    service.add("speed", speed);
+    service.add("quality", quality);
+    rootEl.add(service);
 
     // Item
-    Element item = doc.createElement("Item");
+    XMLPayload item = XMLPayload.element("Item");
 
     // uin
     String supplierUniqueRecordId = this.searchResultBibInfo.getSupplierUniqueRecordId();
-    addValueToEl(doc, supplierUniqueRecordId, "uin", item);
+    item.add("uin", supplierUniqueRecordId);
 
     // type
     String publicationType = this.searchResultPubInfo.getPublicationType().toString();
     String bldssType = iso18626Util.isoTypeToBldss(publicationType);
-    addValueToEl(doc, bldssType, "type", item);
+    item.add("type", bldssType);
 
     // titleLevel
-    Element titleLevel = doc.createElement("titleLevel");
+    XMLPayload titleLevel = XMLPayload.element("titleLevel");
     // title
     String title = getPrioritisedValue(
       this.searchResultBibInfo.getTitle(),
       this.submissionBibInfo.getTitle()
     );
-    addValueToEl(doc, title, "title", titleLevel);
+    titleLevel.add("title", title);
     // author
     String author = getPrioritisedValue(
       this.searchResultBibInfo.getAuthor(),
       this.submissionBibInfo.getAuthor()
     );
-    addValueToEl(doc, author, "author", titleLevel);
+    titleLevel.add("author", author);
     // ISBN
     String searchIsbn = iso18626Util.getIdentifierFromBibInfo(this.searchResultBibInfo, "ISBN");
     String subIsbn = iso18626Util.getIdentifierFromBibInfo(this.submissionBibInfo, "ISBN");
     String isbn = getPrioritisedValue(searchIsbn, subIsbn);
-    addValueToEl(doc, isbn, "ISBN", titleLevel);
+    titleLevel.add("ISBN", isbn);
     // ISSN
     String searchIssn = iso18626Util.getIdentifierFromBibInfo(this.searchResultBibInfo, "ISSN");
     String subIssn = iso18626Util.getIdentifierFromBibInfo(this.submissionBibInfo, "ISSN");
     String issn = getPrioritisedValue(searchIssn, subIssn);
-    addValueToEl(doc, issn, "ISSN", titleLevel);
+    titleLevel.add("ISSN", issn);
     // ISMN
     String searchIsmn = iso18626Util.getIdentifierFromBibInfo(this.searchResultBibInfo, "ISMN");
     String subIsmn = iso18626Util.getIdentifierFromBibInfo(this.submissionBibInfo, "ISMN");
     String ismn = getPrioritisedValue(searchIsmn, subIsmn);
-    addValueToEl(doc, ismn, "ISMN", titleLevel);
+    titleLevel.add("ISMN", ismn);
     // publisher
     String publisher = getPrioritisedValue(
       this.searchResultPubInfo.getPublisher(),
       this.submissionPubInfo.getPublisher()
     );
-    addValueToEl(doc, publisher, "publisher", titleLevel);
-    if (titleLevel.getChildNodes().getLength() > 0) {
-      item.appendChild(titleLevel);
-    }
+    titleLevel.add("publisher", publisher);
+    item.addIfNotEmpty(titleLevel);
 
     // itemLevel
-    Element itemLevel = doc.createElement("itemLevel");
+    XMLPayload itemLevel = XMLPayload.element("itemLevel");
     // year
     String publicationDate = getPrioritisedValue(
       this.searchResultPubInfo.getPublicationDate(),
@@ -141,86 +137,88 @@ public class BLDSSOrderRequest extends BLDSSRequest {
     if (publicationDate != null) {
       ZonedDateTime zdt = DateTimeUtils.stringToDt(publicationDate);
       int year = zdt.getYear();
-      addValueToEl(doc, Integer.toString(year), "year", itemLevel);
+      itemLevel.add("year", Integer.toString(year));
     }
     // volume
     String volume = getPrioritisedValue(
       this.searchResultBibInfo.getVolume(),
       this.submissionBibInfo.getVolume()
     );
-    addValueToEl(doc, volume, "volume", itemLevel);
+    itemLevel.add("volume", volume);
     // issue
     String issue = getPrioritisedValue(
       this.searchResultBibInfo.getIssue(),
       this.submissionBibInfo.getIssue()
     );
-    addValueToEl(doc, issue, "issue", itemLevel);
+    itemLevel.add("issue", issue);
     // edition
     String edition = getPrioritisedValue(
       this.searchResultBibInfo.getEdition(),
       this.submissionBibInfo.getEdition()
     );
-    addValueToEl(doc, edition, "edition", itemLevel);
-    if (itemLevel.getChildNodes().getLength() > 0) {
-      item.appendChild(itemLevel);
-    }
+    itemLevel.add("edition", edition);
+    item.addIfNotEmpty(itemLevel);
 
     // itemOfInterestLevel
-    Element itemOfInterestLevel = doc.createElement("itemOfInterestLevel");
+    XMLPayload itemOfInterestLevel = XMLPayload.element("itemOfInterestLevel");
     // title
     String titleOfComponent = getPrioritisedValue(
       this.searchResultBibInfo.getTitleOfComponent(),
       this.submissionBibInfo.getTitleOfComponent()
     );
-    addValueToEl(doc, titleOfComponent, "title", itemOfInterestLevel);
+    itemOfInterestLevel.add("title", titleOfComponent);
     // author
     String authorOfComponent = getPrioritisedValue(
       this.searchResultBibInfo.getAuthorOfComponent(),
       this.submissionBibInfo.getAuthorOfComponent()
     );
-    addValueToEl(doc, authorOfComponent, "author", itemOfInterestLevel);
+    itemOfInterestLevel.add("author", authorOfComponent);
     // pages
     String pagesRequested = getPrioritisedValue(
       this.searchResultBibInfo.getPagesRequested(),
       this.submissionBibInfo.getPagesRequested()
     );
-    addValueToEl(doc, pagesRequested, "pages", itemOfInterestLevel);
-    if (itemOfInterestLevel.getChildNodes().getLength() > 0) {
-      item.appendChild(itemOfInterestLevel);
-    }
+    itemOfInterestLevel.add("pages", pagesRequested);
+    item.addIfNotEmpty(itemOfInterestLevel);
 
     // We need to get the libraryPrivilege and outsideUk settings from the config
-    String libPriv = getLibraryPrivilege(doc, okapiHeaders);
-    addValueToEl(doc, libPriv, "LibraryPrivilege", rootEl);
-    rootEl.appendChild(item);
-    Boolean outsideUk = getIsOutsideUk(okapiHeaders);
+    String libPriv = getLibraryPrivilege(generalSettings);
+    rootEl.add("LibraryPrivilege", libPriv);
+    rootEl.add(item);
+    Boolean outsideUk = getIsOutsideUk(generalSettings);
     if (outsideUk) {
-      addValueToEl(doc, "true", "payCopyright", rootEl);
+      rootEl.add("payCopyright", "true");
     }
-    XMLUtil xmlUtil = new XMLUtil();
-    System.out.println(xmlUtil.docAsString(doc, false));
-    return xmlUtil.docAsString(doc, false);
+    return rootEl.toXml();
   }
 
-  // Set the BibliographicInfo & PublicationInfo properties
-  private void setInfos(JsonObject searchResult, JsonObject submissionMetadata) {
-    JsonObject searchBibInfo = searchResult.getJsonObject("metadata").getJsonObject("BibliographicInfo");
-    JsonObject searchPubInfo = searchResult.getJsonObject("metadata").getJsonObject("PublicationInfo");
-    JsonObject subBibInfo = submissionMetadata.getJsonObject("submissionMetadata").getJsonObject("BibliographicInfo");
-    JsonObject subPubInfo = submissionMetadata.getJsonObject("submissionMetadata").getJsonObject("PublicationInfo");
-    this.searchResultBibInfo = searchBibInfo.mapTo(BibliographicInfo.class);
-    this.searchResultPubInfo = searchPubInfo.mapTo(PublicationInfo.class);
-    this.submissionBibInfo = subBibInfo.mapTo(BibliographicInfo.class);
-    this.submissionPubInfo = subPubInfo.mapTo(PublicationInfo.class);
+  // Set the BibliographicInfo & PublicationInfo properties, all four are
+  // needed to build the order
+  private void setInfos(JsonNode searchResult, JsonNode submissionMetadata) {
+    JsonNode searchMetadata = searchResult.path("metadata");
+    JsonNode subMetadata = submissionMetadata.path("submissionMetadata");
+    this.searchResultBibInfo = decodeInfo(JsonCodecs.BIBLIOGRAPHIC_INFO, searchMetadata, "selectedResult.metadata.BibliographicInfo");
+    this.searchResultPubInfo = decodeInfo(JsonCodecs.PUBLICATION_INFO, searchMetadata, "selectedResult.metadata.PublicationInfo");
+    this.submissionBibInfo = decodeInfo(JsonCodecs.BIBLIOGRAPHIC_INFO, subMetadata, "submission.submissionMetadata.BibliographicInfo");
+    this.submissionPubInfo = decodeInfo(JsonCodecs.PUBLICATION_INFO, subMetadata, "submission.submissionMetadata.PublicationInfo");
+    if (this.searchResultPubInfo.getPublicationType() == null) {
+      throw new HttpException(400, "Missing the publication type in selectedResult.metadata.PublicationInfo");
+    }
   }
 
-  // Create an element, set its text and append it to something
-  private void addValueToEl(Document doc, String value, String elementName, Element appendTo) {
-    if (value != null && value.length() > 0) {
-      Element el = doc.createElement(elementName);
-      el.setTextContent(value);
-      appendTo.appendChild(el);
+  // Decode the block at the end of this path, a missing or malformed block
+  // is the client's problem
+  private static <T> T decodeInfo(JsonCodecs.Codec<T> codec, JsonNode metadata, String path) {
+    T info;
+    try {
+      info = codec.decode(metadata.path(path.substring(path.lastIndexOf('.') + 1)));
+    } catch (DecodeException e) {
+      throw new HttpException(400, "Invalid " + path + ": " + e.getMessage());
+    }
+    if (info == null) {
+      throw new HttpException(400, "Missing " + path);
     }
+    return info;
   }
 
   // Obtain a value, whichever is populated
@@ -230,18 +228,12 @@ public class BLDSSOrderRequest extends BLDSSRequest {
 
   // For more on Library Privilege, see here:
   // https://support.talis.com/hc/en-us/articles/205864591-British-Library-integration-functional-overview
-  private String getLibraryPrivilege(Document doc, Map<String, String> okapiHeaders) {
-    ConfigurationService configurationService = new ConfigurationService();
-    Config config = configurationService.getConfigurationEntry("generalSettings", okapiHeaders, "UI-PLUGIN-ILL-CONNECTOR-BLDSS");
-    JSONObject jsonObject = new JSONObject(config.getValue());
-    boolean libPriv = jsonObject.getBoolean("libraryPrivilege");
+  private String getLibraryPrivilege(JSONObject generalSettings) {
+    boolean libPriv = generalSettings.getBoolean("libraryPrivilege");
     return libPriv ? "1" : "0";
   }
 
-  private Boolean getIsOutsideUk(Map<String, String> okapiHeaders) {
-    ConfigurationService configurationService = new ConfigurationService();
-    Config config = configurationService.getConfigurationEntry("generalSettings", okapiHeaders, "UI-PLUGIN-ILL-CONNECTOR-BLDSS");
-    JSONObject jsonObject = new JSONObject(config.getValue());
-    return jsonObject.getBoolean("outsideUk");
+  private Boolean getIsOutsideUk(JSONObject generalSettings) {
+    return generalSettings.getBoolean("outsideUk");
   }
 }
@@ -1,13 +1,17 @@
 package org.folio.util;
 
-import org.folio.rest.jaxrs.model.Config;
-import org.folio.service.configuration.ConfigurationService;
-import org.json.JSONObject;
+import org.folio.http.Deadline;
+import org.folio.http.EndpointGroup;
+import org.folio.http.EndpointGuard;
+import org.folio.http.HttpClientRegistry;
+import org.folio.http.OutboundRequest;
+import org.folio.http.OutboundResponse;
+import org.folio.http.RateLimiter;
+import org.folio.metrics.StageMetrics;
+import org.folio.metrics.events.BLDSSRequestEvent;
 
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -30,43 +34,66 @@ public class BLDSSRequest {
     this.needsAuth = needsAuth;
   }
 
-  public CompletableFuture<HttpResponse<String>> makeRequest(Map<String, String> headers) {
-    CompletableFuture<HttpResponse<String>> future = new CompletableFuture<>();
-    HttpClient client = HttpClient.newHttpClient();
-    HttpRequest.Builder builder = HttpRequest.newBuilder()
-      .header("Content-type", "application/xml");
+  public CompletableFuture<OutboundResponse> makeRequest(Map<String, String> headers) {
+    return BLDSSSettings.load(headers).thenCompose(settings -> makeRequest(headers, settings));
+  }
+
+  // Make the request using settings we already have, once the rate
+  // limiter and then our endpoint group's guard let us. The token comes
+  // first so waiting for one doesn't hold up a bulkhead slot
+  public CompletableFuture<OutboundResponse> makeRequest(Map<String, String> headers, BLDSSSettings settings) {
+    BLDSSRequestEvent event = new BLDSSRequestEvent();
+    event.begin();
+    CompletableFuture<OutboundResponse> response = RateLimiter.forKey(settings.getRateLimitKey())
+      .acquire(settings.getPriority())
+      .thenCompose(v -> EndpointGuard.forGroup(getEndpointGroup()).call(() -> send(headers, settings)));
+    return event.commitOn(response, (r, t) -> {
+      event.setRequest(headers);
+      event.method = this.httpMethod;
+      event.path = this.path;
+      event.setPayloadSize(this.reqPayload != null ? this.reqPayload.getBytes(StandardCharsets.UTF_8).length : 0);
+      if (r != null) {
+        event.statusCode = r.statusCode();
+        event.responseSize = r.bodyAsBytes() != null ? r.bodyAsBytes().length : 0;
+      }
+    });
+  }
 
-    switch(this.httpMethod) {
-      case "GET":
-        builder.GET();
-        break;
-      case "POST":
-        builder.POST(HttpRequest.BodyPublishers.ofString(this.reqPayload));
-        break;
-      case "PUT":
-        builder.PUT(HttpRequest.BodyPublishers.ofString(this.reqPayload));
-        break;
-      case "DELETE":
-        builder.DELETE();
-        break;
+  public EndpointGroup getEndpointGroup() {
+    switch (this.type) {
+      case "order":
+        return EndpointGroup.ORDERS;
+      case "cancel":
+        return EndpointGroup.CANCELS;
+      default:
+        return EndpointGroup.REFERENCE;
     }
-    ConfigurationService configurationService = new ConfigurationService();
-    Config config = configurationService.getConfigurationEntry("apiSettings", headers, "UI-PLUGIN-ILL-CONNECTOR-BLDSS");
-    JSONObject conf = new JSONObject(config.getValue());
+  }
+
+  // The auth header is timestamped so it's built just before we send
+  private CompletableFuture<OutboundResponse> send(Map<String, String> headers, BLDSSSettings settings) {
+    OutboundRequest request = StageMetrics.time("request_build", headers, () -> {
+      URI uri = URI.create(settings.getApiSettings().getString("apiUrl") + this.path);
+      OutboundRequest built = new OutboundRequest(this.httpMethod, uri)
+        .header("Content-type", "application/xml")
+        .deadline(Deadline.from(headers));
+
+      if (this.httpMethod.equals("POST") || this.httpMethod.equals("PUT")) {
+        built.body(this.reqPayload);
+      }
+      return built;
+    });
 
     if (this.needsAuth) {
-      BLDSSAuth auth = new BLDSSAuth(this.httpMethod, this.path, this.parameters, this.reqPayload, conf);
-      String authHeader = auth.getHeaderString();
-      builder.header("BLDSS-API-Authentication", authHeader);
+      String authHeader = StageMetrics.time("request_sign", headers, () -> {
+        BLDSSAuth auth = new BLDSSAuth(this.httpMethod, this.path, this.parameters, this.reqPayload, settings.getSigner());
+        return auth.getHeaderString();
+      });
+      request.header("BLDSS-API-Authentication", authHeader);
     }
 
-    builder.uri(URI.create(conf.getString("apiUrl") + this.path));
-    HttpRequest request = builder.build();
-    return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-      .thenApply(apiResponse -> {
-        future.complete(apiResponse);
-        return apiResponse;
-      });
+    return StageMetrics.timeAsync("upstream_http", headers, () ->
+      HttpClientRegistry.transport().send(request, settings.getTenant()));
   }
 
   public String getReqType() {
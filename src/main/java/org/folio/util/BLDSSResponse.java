@@ -14,18 +14,16 @@ import java.util.Arrays;
 
 public class BLDSSResponse {
 
-  private final XMLUtil xmlUtil;
   private final Element result;
   private final Document doc;
   private final String status;
 
   public BLDSSResponse(String responseText) {
-    this.xmlUtil = new XMLUtil();
     // Parse the response document into something we can use
-    this.doc = xmlUtil.parse(responseText);
+    this.doc = XMLUtil.parse(responseText);
     // A response should contain a "result" element
-    this.result = (Element) xmlUtil.getNode(doc, "result");
-    Element statusEl = (Element) xmlUtil.getNode(doc, "status");
+    this.result = (Element) XMLUtil.getNode(doc, "result");
+    Element statusEl = (Element) XMLUtil.getNode(doc, "status");
     this.status = statusEl.getTextContent();
   }
 
@@ -57,22 +55,22 @@ public class BLDSSResponse {
   }
 
   public String getCustomerReference() {
-    Element el = (Element) this.xmlUtil.getNode(this.doc, "customerReference");
+    Element el = (Element) XMLUtil.getNode(this.doc, "customerReference");
     return el.getTextContent();
   }
 
   public String getOrderline() {
-    Element el = (Element) this.xmlUtil.getNode(this.doc, "orderline");
+    Element el = (Element) XMLUtil.getNode(this.doc, "orderline");
     return el.getTextContent();
   }
 
   public String getTimestamp() {
-    Element el = (Element) this.xmlUtil.getNode(this.doc, "timestamp");
+    Element el = (Element) XMLUtil.getNode(this.doc, "timestamp");
     return el.getTextContent();
   }
 
   public String getMessage() {
-    Element el = (Element) this.xmlUtil.getNode(this.doc, "message");
+    Element el = (Element) XMLUtil.getNode(this.doc, "message");
     return el.getTextContent();
   }
 
@@ -81,12 +79,12 @@ public class BLDSSResponse {
   }
 
   public String getEstimatedDespatchDate() {
-    Element el = (Element) this.xmlUtil.getNode(this.doc, "estimatedDespatchDate");
+    Element el = (Element) XMLUtil.getNode(this.doc, "estimatedDespatchDate");
     return el.getTextContent();
   }
 
   public String getNote() {
-    Element el = (Element) this.xmlUtil.getNode(this.doc, "note");
+    Element el = (Element) XMLUtil.getNode(this.doc, "note");
     return el.getTextContent();
   }
 
@@ -0,0 +1,94 @@
+package org.folio.util;
+
+import org.folio.common.OkapiParams;
+import org.folio.exception.HttpException;
+import org.folio.http.RateLimiter;
+import org.folio.rest.jaxrs.model.Config;
+import org.folio.service.configuration.ConfigurationService;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/*
+  A snapshot of a tenant's BLDSS connector settings
+
+  Everything a BLDSS request needs from the tenant's configuration, read
+  with a single configuration lookup so a batch of requests can share it,
+  plus the priority the requests should be given by the RateLimiter
+*/
+public class BLDSSSettings {
+
+  private static final String MODULE = "UI-PLUGIN-ILL-CONNECTOR-BLDSS";
+
+  private final String tenant;
+  private final JSONObject apiSettings;
+  private final JSONObject generalSettings;
+  private final RateLimiter.Priority priority;
+  private volatile BLDSSSigner signer;
+
+  BLDSSSettings(String tenant, JSONObject apiSettings, JSONObject generalSettings, RateLimiter.Priority priority) {
+    this.tenant = tenant;
+    this.apiSettings = apiSettings;
+    this.generalSettings = generalSettings;
+    this.priority = priority;
+  }
+
+  public static CompletableFuture<BLDSSSettings> load(Map<String, String> headers) {
+    String tenant = new OkapiParams(headers).getTenant();
+    return new ConfigurationService().getConfigurationsEntries(headers, MODULE)
+      .thenApply(configs -> {
+        JSONObject apiSettings = null;
+        JSONObject generalSettings = null;
+        for (Config config : configs.getConfigs()) {
+          if ("apiSettings".equals(config.getConfigName())) {
+            apiSettings = new JSONObject(config.getValue());
+          } else if ("generalSettings".equals(config.getConfigName())) {
+            generalSettings = new JSONObject(config.getValue());
+          }
+        }
+        return new BLDSSSettings(tenant, apiSettings, generalSettings, RateLimiter.Priority.INTERACTIVE);
+      });
+  }
+
+  // The same settings, for requests nobody is waiting on
+  public BLDSSSettings forBatch() {
+    return new BLDSSSettings(tenant, apiSettings, generalSettings, RateLimiter.Priority.BATCH);
+  }
+
+  public String getTenant() {
+    return tenant;
+  }
+
+  public RateLimiter.Priority getPriority() {
+    return priority;
+  }
+
+  // The key BLDSS rate limits us by
+  public String getRateLimitKey() {
+    return tenant + ":" + getApiSettings().optString("apiKey");
+  }
+
+  public JSONObject getApiSettings() {
+    if (apiSettings == null) {
+      throw new HttpException(500, "BLDSS apiSettings have not been configured");
+    }
+    return apiSettings;
+  }
+
+  public JSONObject getGeneralSettings() {
+    if (generalSettings == null) {
+      throw new HttpException(500, "BLDSS generalSettings have not been configured");
+    }
+    return generalSettings;
+  }
+
+  public BLDSSSigner getSigner() {
+    BLDSSSigner current = signer;
+    if (current == null) {
+      current = BLDSSSigner.forTenant(tenant, getApiSettings());
+      signer = current;
+    }
+    return current;
+  }
+}
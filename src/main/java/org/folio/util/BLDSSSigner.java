@@ -0,0 +1,271 @@
+package org.folio.util;
+
+import org.json.JSONObject;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+  Calculates BLDSS request signatures, see
+  https://apitest.bldss.bl.uk/docs/guide/single.html#hmac
+
+  One signer is held per tenant with its HMAC key already prepared. Each
+  thread signs with its own clone of the signer's Mac and builds the
+  request string straight into a reusable byte buffer, URL encoding as it
+  goes, so signing a request doesn't need a Mac lookup, a sorted map or
+  any intermediate strings.
+*/
+public class BLDSSSigner {
+
+  private static final String HMAC_SHA1_ALGORITHM = "HmacSHA1";
+  private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+  private static final ConcurrentHashMap<String, BLDSSSigner> signers = new ConcurrentHashMap<>();
+  private static final ThreadLocal<ByteBuilder> buffers = ThreadLocal.withInitial(ByteBuilder::new);
+
+  private final String apiApplication;
+  private final String apiApplicationAuth;
+  private final String apiKey;
+  private final String apiKeyAuth;
+  private final Mac prototype;
+  private final ThreadLocal<Mac> macs;
+
+  BLDSSSigner(String apiApplication, String apiApplicationAuth, String apiKey, String apiKeyAuth) {
+    this.apiApplication = apiApplication;
+    this.apiApplicationAuth = apiApplicationAuth;
+    this.apiKey = apiKey;
+    this.apiKeyAuth = apiKeyAuth;
+    this.prototype = newMac();
+    this.macs = ThreadLocal.withInitial(this::cloneMac);
+  }
+
+  // Get the signer for this tenant, replacing it if the tenant's
+  // credentials have changed since we last saw them
+  public static BLDSSSigner forTenant(String tenant, JSONObject conf) {
+    String apiApplication = conf.getString("apiApplication");
+    String apiApplicationAuth = conf.getString("apiApplicationAuth");
+    String apiKey = conf.getString("apiKey");
+    String apiKeyAuth = conf.getString("apiKeyAuth");
+    BLDSSSigner signer = signers.get(tenant);
+    if (signer == null || !signer.matches(apiApplication, apiApplicationAuth, apiKey, apiKeyAuth)) {
+      signer = new BLDSSSigner(apiApplication, apiApplicationAuth, apiKey, apiKeyAuth);
+      signers.put(tenant, signer);
+    }
+    return signer;
+  }
+
+  public String getApiApplication() {
+    return apiApplication;
+  }
+
+  public String getApiKey() {
+    return apiKey;
+  }
+
+  // Return the base64 encoded HMAC-SHA1 of the request string for a request
+  public String sign(
+    String httpMethod,
+    String path,
+    Map<String, String> requestParameters,
+    String payload,
+    String requestTime,
+    String nonce,
+    String signatureMethod
+  ) {
+    Parameters params = new Parameters(6 + (requestParameters != null ? requestParameters.size() : 0));
+    // First add our authentication request parameters
+    params.put("api_application", apiApplication);
+    params.put("api_key", apiKey);
+    params.put("request", payload);
+    params.put("request_time", requestTime);
+    params.put("nonce", nonce);
+    params.put("signature_method", signatureMethod);
+    // Now add our request parameters
+    if (requestParameters != null) {
+      for (Map.Entry<String, String> entry : requestParameters.entrySet()) {
+        params.put(entry.getKey(), entry.getValue());
+      }
+    }
+    params.sort();
+
+    // <method>&<encoded path>&<encoded parameter string>, where the
+    // parameter string is itself made of encoded keys and values, so
+    // those end up encoded twice
+    ByteBuilder buffer = buffers.get();
+    buffer.reset();
+    buffer.appendAscii(httpMethod);
+    buffer.append('&');
+    encode(buffer, path, false);
+    buffer.append('&');
+    boolean first = true;
+    for (int i = 0; i < params.size; i++) {
+      String key = params.keys[i];
+      String value = params.values[i];
+      if (key == null || value == null) {
+        continue;
+      }
+      if (!first) {
+        buffer.appendAscii("%26");
+      }
+      encode(buffer, key, true);
+      buffer.appendAscii("%3D");
+      encode(buffer, value, true);
+      first = false;
+    }
+
+    Mac mac = macs.get();
+    mac.update(buffer.bytes, 0, buffer.length);
+    return Base64.getEncoder().encodeToString(mac.doFinal());
+  }
+
+  private boolean matches(String apiApplication, String apiApplicationAuth, String apiKey, String apiKeyAuth) {
+    return Objects.equals(this.apiApplication, apiApplication)
+      && Objects.equals(this.apiApplicationAuth, apiApplicationAuth)
+      && Objects.equals(this.apiKey, apiKey)
+      && Objects.equals(this.apiKeyAuth, apiKeyAuth);
+  }
+
+  private Mac newMac() {
+    try {
+      byte[] key = (apiApplicationAuth + "&" + apiKeyAuth).getBytes(StandardCharsets.UTF_8);
+      Mac mac = Mac.getInstance(HMAC_SHA1_ALGORITHM);
+      mac.init(new SecretKeySpec(key, HMAC_SHA1_ALGORITHM));
+      return mac;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Unable to initialise " + HMAC_SHA1_ALGORITHM, e);
+    }
+  }
+
+  private Mac cloneMac() {
+    try {
+      return (Mac) prototype.clone();
+    } catch (CloneNotSupportedException e) {
+      // Not every provider can clone, fall back to a new instance
+      return newMac();
+    }
+  }
+
+  // URL encode a value the way URLEncoder does (UTF-8, spaces as '+'),
+  // optionally encoding the result a second time
+  private static void encode(ByteBuilder buffer, String value, boolean twice) {
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c >= 0x80) {
+        // Non ASCII, let the JDK produce the UTF-8 and encode from there
+        encodeBytes(buffer, value.substring(i).getBytes(StandardCharsets.UTF_8), twice);
+        return;
+      }
+      encodeByte(buffer, (byte) c, twice);
+    }
+  }
+
+  private static void encodeBytes(ByteBuilder buffer, byte[] bytes, boolean twice) {
+    for (byte b : bytes) {
+      encodeByte(buffer, b, twice);
+    }
+  }
+
+  private static void encodeByte(ByteBuilder buffer, byte b, boolean twice) {
+    if (isUnreserved(b)) {
+      buffer.append(b);
+    } else if (b == ' ') {
+      if (twice) {
+        buffer.appendAscii("%2B");
+      } else {
+        buffer.append('+');
+      }
+    } else {
+      if (twice) {
+        buffer.appendAscii("%25");
+      } else {
+        buffer.append('%');
+      }
+      buffer.append(HEX[(b >> 4) & 0xF]);
+      buffer.append(HEX[b & 0xF]);
+    }
+  }
+
+  private static boolean isUnreserved(byte b) {
+    return (b >= 'a' && b <= 'z')
+      || (b >= 'A' && b <= 'Z')
+      || (b >= '0' && b <= '9')
+      || b == '.' || b == '-' || b == '*' || b == '_';
+  }
+
+  // Parameters sorted case insensitively, a later value for the same
+  // (case insensitive) key replaces an earlier one
+  private static class Parameters {
+    private final String[] keys;
+    private final String[] values;
+    private int size;
+
+    private Parameters(int capacity) {
+      this.keys = new String[capacity];
+      this.values = new String[capacity];
+    }
+
+    private void put(String key, String value) {
+      if (key == null) {
+        return;
+      }
+      for (int i = 0; i < size; i++) {
+        if (keys[i].equalsIgnoreCase(key)) {
+          values[i] = value;
+          return;
+        }
+      }
+      keys[size] = key;
+      values[size] = value;
+      size++;
+    }
+
+    // A handful of entries, insertion sort is all we need
+    private void sort() {
+      for (int i = 1; i < size; i++) {
+        String key = keys[i];
+        String value = values[i];
+        int j = i - 1;
+        while (j >= 0 && String.CASE_INSENSITIVE_ORDER.compare(keys[j], key) > 0) {
+          keys[j + 1] = keys[j];
+          values[j + 1] = values[j];
+          j--;
+        }
+        keys[j + 1] = key;
+        values[j + 1] = value;
+      }
+    }
+  }
+
+  private static class ByteBuilder {
+    private byte[] bytes = new byte[1024];
+    private int length;
+
+    private void reset() {
+      length = 0;
+    }
+
+    private void append(byte b) {
+      if (length == bytes.length) {
+        bytes = Arrays.copyOf(bytes, bytes.length * 2);
+      }
+      bytes[length++] = b;
+    }
+
+    private void append(char c) {
+      append((byte) c);
+    }
+
+    private void appendAscii(String value) {
+      for (int i = 0; i < value.length(); i++) {
+        append((byte) value.charAt(i));
+      }
+    }
+  }
+}
@@ -0,0 +1,225 @@
+package org.folio.util;
+
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.folio.config.Constants.JOURNAL_COMPACT_THRESHOLD;
+import static org.folio.config.Constants.JOURNAL_FSYNC;
+
+/*
+  An append-only journal of entries that still need processing
+
+  Each line of <name>.journal is a JSON record, either adding an entry or
+  marking one as done. Opening the journal replays it and returns the
+  entries that were added but never marked as done, in the order they were
+  added. Entries that can't be processed are moved to <name>.dead, which
+  is only ever appended to and is left for someone to look at.
+
+  All file access happens on the journal's own thread, so callers never
+  block on disk. Once enough entries have been marked as done the journal
+  is rewritten with just the outstanding ones.
+*/
+public class DurableJournal {
+
+  private static final Logger logger = LogManager.getLogger(DurableJournal.class);
+
+  private final String name;
+  private final Path file;
+  private final Path deadLetterFile;
+  private final int compactThreshold;
+  private final ExecutorService executor;
+
+  // Only touched on the journal's thread
+  private final LinkedHashMap<String, JsonObject> pending = new LinkedHashMap<>();
+  private FileChannel channel;
+  private int doneSinceCompaction;
+
+  public DurableJournal(Path dir, String name) {
+    this(dir, name, JOURNAL_COMPACT_THRESHOLD);
+  }
+
+  DurableJournal(Path dir, String name, int compactThreshold) {
+    this.name = name;
+    this.compactThreshold = compactThreshold;
+    this.file = dir.resolve(name + ".journal");
+    this.deadLetterFile = dir.resolve(name + ".dead");
+    this.executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "journal-" + name);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  // Replay the journal, returning the entries still outstanding
+  public CompletableFuture<List<JsonObject>> open() {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        Files.createDirectories(file.getParent());
+        if (Files.exists(file)) {
+          replay();
+        }
+        compact();
+        logger.info("Journal {} opened with {} outstanding entries", name, pending.size());
+        return new ArrayList<>(pending.values());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, executor);
+  }
+
+  // Record an entry, the future completes once it is on disk
+  public CompletableFuture<Void> add(String id, JsonObject entry) {
+    return CompletableFuture.runAsync(() -> {
+      write(channel, record("add", id).put("entry", entry));
+      pending.put(id, entry);
+    }, executor);
+  }
+
+  // Record that an entry no longer needs processing
+  public CompletableFuture<Void> done(String id) {
+    return CompletableFuture.runAsync(() -> markDone(id), executor);
+  }
+
+  // Move an entry to the dead letter file
+  public CompletableFuture<Void> deadLetter(String id, JsonObject entry, String reason) {
+    return CompletableFuture.runAsync(() -> {
+      try (FileChannel dead = FileChannel.open(deadLetterFile,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+        write(dead, record("dead", id)
+          .put("reason", reason)
+          .put("deadAt", System.currentTimeMillis())
+          .put("entry", entry));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      markDone(id);
+    }, executor);
+  }
+
+  public void close() {
+    executor.execute(() -> {
+      try {
+        if (channel != null) {
+          channel.close();
+          channel = null;
+        }
+      } catch (IOException e) {
+        logger.warn("Unable to close journal " + name, e);
+      }
+    });
+    executor.shutdown();
+    try {
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void markDone(String id) {
+    if (pending.remove(id) == null) {
+      return;
+    }
+    write(channel, record("done", id));
+    doneSinceCompaction++;
+    if (doneSinceCompaction >= compactThreshold) {
+      try {
+        compact();
+      } catch (IOException e) {
+        // Not fatal, we'll carry on appending to the existing journal
+        logger.warn("Unable to compact journal " + name, e);
+      }
+    }
+  }
+
+  private void replay() throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      int lineNumber = 0;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        if (line.isEmpty()) {
+          continue;
+        }
+        JsonObject record;
+        try {
+          record = new JsonObject(line);
+        } catch (DecodeException e) {
+          // Most likely a write cut short when we last stopped
+          logger.warn("Skipping unreadable line {} of journal {}", lineNumber, name);
+          continue;
+        }
+        String id = record.getString("id");
+        if ("add".equals(record.getString("op"))) {
+          pending.put(id, record.getJsonObject("entry"));
+        } else {
+          pending.remove(id);
+        }
+      }
+    }
+  }
+
+  // Rewrite the journal with only the outstanding entries
+  private void compact() throws IOException {
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel out = FileChannel.open(tmp,
+      StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      for (Map.Entry<String, JsonObject> entry : pending.entrySet()) {
+        write(out, record("add", entry.getKey()).put("entry", entry.getValue()), false);
+      }
+      out.force(true);
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    FileChannel previous = channel;
+    channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    if (previous != null) {
+      previous.close();
+    }
+    doneSinceCompaction = 0;
+  }
+
+  private JsonObject record(String op, String id) {
+    return new JsonObject().put("op", op).put("id", id);
+  }
+
+  private void write(FileChannel out, JsonObject record) {
+    write(out, record, JOURNAL_FSYNC);
+  }
+
+  private void write(FileChannel out, JsonObject record, boolean sync) {
+    if (out == null) {
+      throw new IllegalStateException("Journal " + name + " is not open");
+    }
+    ByteBuffer buffer = ByteBuffer.wrap((record.encode() + "\n").getBytes(StandardCharsets.UTF_8));
+    try {
+      while (buffer.hasRemaining()) {
+        out.write(buffer);
+      }
+      if (sync) {
+        out.force(false);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
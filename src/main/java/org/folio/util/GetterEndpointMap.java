@@ -1,22 +1,24 @@
 package org.folio.util;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
-class GetterEndpoint {
-  private String endpoint;
-  private Boolean needsAuth;
+import static org.folio.config.Constants.REFERENCE_DATA_TTL_MS;
 
-  public void setEndpoint(String endpoint) {
-    this.endpoint = endpoint;
-  }
-
-  public void setNeedsAuth(Boolean needsAuth) {
-    this.needsAuth = needsAuth;
-  }
+class GetterEndpoint {
+  private final String endpoint;
+  private final Boolean needsAuth;
+  // How long a response can be served from the reference data cache,
+  // 0 means always go to BLDSS
+  private final long cacheTtlMs;
 
-  public GetterEndpoint(String endpoint, Boolean needsAuth) {
+  public GetterEndpoint(String endpoint, Boolean needsAuth, long cacheTtlMs) {
     this.endpoint = endpoint;
     this.needsAuth = needsAuth;
+    this.cacheTtlMs = cacheTtlMs;
   }
 
   public String getEndpoint() {
@@ -26,59 +28,103 @@ class GetterEndpoint {
   public Boolean getNeedsAuth() {
     return needsAuth;
   }
+
+  public long getCacheTtlMs() {
+    return cacheTtlMs;
+  }
 }
 
+/*
+  The BLDSS endpoints available via the getter, along with their caching
+  policy. The map never changes so it's built once.
+*/
 public class GetterEndpointMap {
-  private final HashMap<String, GetterEndpoint> endpoints = new HashMap<>();
+  private static final Map<String, GetterEndpoint> endpoints = buildEndpoints();
+
+  private GetterEndpointMap() {
+  }
+
+  private static Map<String, GetterEndpoint> buildEndpoints() {
+    HashMap<String, GetterEndpoint> map = new HashMap<>();
 
-  public GetterEndpointMap() {
-    endpoints.put(
+    // Prices depend on the request so are never cached
+    map.put(
       "prices",
       new GetterEndpoint(
         "prices",
-        true
+        true,
+        0
       )
     );
 
-    endpoints.put(
+    // The reference lists hardly ever change
+    map.put(
       "services",
       new GetterEndpoint(
         "reference/services",
-        false
+        false,
+        REFERENCE_DATA_TTL_MS
       )
     );
 
-    endpoints.put(
+    map.put(
       "formats",
       new GetterEndpoint(
         "reference/formats",
-        false
+        false,
+        REFERENCE_DATA_TTL_MS
       )
     );
 
-    endpoints.put(
+    map.put(
       "speeds",
       new GetterEndpoint(
         "reference/speeds",
-        false
+        false,
+        REFERENCE_DATA_TTL_MS
       )
     );
 
-    endpoints.put(
+    map.put(
       "quality",
       new GetterEndpoint(
         "reference/quality",
-        false
+        false,
+        REFERENCE_DATA_TTL_MS
       )
     );
 
+    return Collections.unmodifiableMap(map);
   }
 
-  public String getEndpoint(String key) {
+  public static boolean hasEndpoint(String key) {
+    return endpoints.containsKey(key);
+  }
+
+  public static String getEndpoint(String key) {
     return endpoints.get(key).getEndpoint();
   }
 
-  public Boolean getNeedsAuth(String key) {
+  public static Boolean getNeedsAuth(String key) {
     return endpoints.get(key).getNeedsAuth();
   }
+
+  public static long getCacheTtlMs(String key) {
+    return endpoints.get(key).getCacheTtlMs();
+  }
+
+  public static boolean isCached(String key) {
+    return getCacheTtlMs(key) > 0;
+  }
+
+  // The keys of every endpoint whose responses we cache
+  public static List<String> getCachedKeys() {
+    List<String> keys = new ArrayList<>();
+    for (Map.Entry<String, GetterEndpoint> entry : endpoints.entrySet()) {
+      if (entry.getValue().getCacheTtlMs() > 0) {
+        keys.add(entry.getKey());
+      }
+    }
+    return keys;
+  }
 }
@@ -0,0 +1,101 @@
+package org.folio.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.EncodeException;
+import io.vertx.core.json.jackson.DatabindCodec;
+import org.folio.rest.jaxrs.model.BibliographicInfo;
+import org.folio.rest.jaxrs.model.Configs;
+import org.folio.rest.jaxrs.model.ISO18626.SupplyingAgencyMessage;
+import org.folio.rest.jaxrs.model.PublicationInfo;
+
+import java.io.IOException;
+
+/*
+  Jackson readers and writers for the models we decode and encode on every
+  request, built once from the same mapper JsonObject.mapTo / mapFrom use so
+  the JSON is the same, but reading and writing straight from and to bytes
+  rather than going through a JsonObject
+*/
+public final class JsonCodecs {
+
+  private static final ObjectMapper mapper = DatabindCodec.mapper();
+  private static final ObjectReader treeReader = mapper.reader();
+
+  public static final Codec<BibliographicInfo> BIBLIOGRAPHIC_INFO = new Codec<>(BibliographicInfo.class);
+  public static final Codec<PublicationInfo> PUBLICATION_INFO = new Codec<>(PublicationInfo.class);
+  public static final Codec<Configs> CONFIGS = new Codec<>(Configs.class);
+  public static final Codec<SupplyingAgencyMessage> SUPPLYING_AGENCY_MESSAGE = new Codec<>(SupplyingAgencyMessage.class);
+
+  // Prevent instantiation
+  private JsonCodecs() {}
+
+  // Parse a document we only need parts of, the parts can then be
+  // decoded from the tree
+  public static JsonNode readTree(String json) {
+    try {
+      return treeReader.readTree(json);
+    } catch (IOException e) {
+      throw new DecodeException("Failed to decode: " + e.getMessage());
+    }
+  }
+
+  public static final class Codec<T> {
+    private final Class<T> type;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+
+    private Codec(Class<T> type) {
+      this.type = type;
+      this.reader = mapper.readerFor(type);
+      this.writer = mapper.writerFor(type);
+    }
+
+    public T decode(byte[] json) {
+      try {
+        return reader.readValue(json);
+      } catch (IOException e) {
+        throw new DecodeException("Failed to decode " + type.getSimpleName() + ": " + e.getMessage());
+      }
+    }
+
+    public T decode(String json) {
+      try {
+        return reader.readValue(json);
+      } catch (IOException e) {
+        throw new DecodeException("Failed to decode " + type.getSimpleName() + ": " + e.getMessage());
+      }
+    }
+
+    // A missing or null node decodes to null
+    public T decode(JsonNode json) {
+      if (json == null || json.isMissingNode() || json.isNull()) {
+        return null;
+      }
+      try {
+        return reader.readValue(json);
+      } catch (IOException e) {
+        throw new DecodeException("Failed to decode " + type.getSimpleName() + ": " + e.getMessage());
+      }
+    }
+
+    public byte[] encode(T value) {
+      try {
+        return writer.writeValueAsBytes(value);
+      } catch (IOException e) {
+        throw new EncodeException("Failed to encode " + type.getSimpleName() + ": " + e.getMessage());
+      }
+    }
+
+    public String encodeToString(T value) {
+      try {
+        return writer.writeValueAsString(value);
+      } catch (IOException e) {
+        throw new EncodeException("Failed to encode " + type.getSimpleName() + ": " + e.getMessage());
+      }
+    }
+  }
+}
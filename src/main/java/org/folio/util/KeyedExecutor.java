@@ -0,0 +1,93 @@
+package org.folio.util;
+
+import org.folio.metrics.ConnectorMetrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+  Runs tasks in order per key and in parallel across keys
+
+  Each key has its own chain: a task starts once the previous task for
+  the same key has completed, successfully or not, so tasks for a key
+  never overlap or overtake each other even when they finish
+  asynchronously. Tasks run on a shared pool of threads, and only while
+  they're starting their work, so a task waiting on a slow call holds up
+  the tasks for its own key and nothing else. A key is forgotten once
+  nothing is queued for it.
+
+  Reports <name>_queue_depth, <name>_keys, <name>_queue_wait_seconds and
+  <name>_latency_seconds.
+*/
+public class KeyedExecutor {
+
+  private static final CompletableFuture<Void> IDLE = CompletableFuture.completedFuture(null);
+
+  private final ExecutorService executor;
+  // The last task queued for each key, guarded by itself
+  private final Map<String, CompletableFuture<Void>> tails = new HashMap<>();
+  private final AtomicInteger depth = new AtomicInteger();
+  private final ConnectorMetrics.Timer queueWait;
+  private final ConnectorMetrics.Timer latency;
+
+  public KeyedExecutor(String name, int threads) {
+    AtomicInteger count = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+      Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.queueWait = ConnectorMetrics.timer(name + "_queue_wait_seconds");
+    this.latency = ConnectorMetrics.timer(name + "_latency_seconds");
+    ConnectorMetrics.gauge(name + "_queue_depth", depth::get);
+    ConnectorMetrics.gauge(name + "_keys", this::keys);
+  }
+
+  // Run a task after every task already submitted for this key has finished
+  public <T> CompletableFuture<T> submit(String key, Supplier<CompletableFuture<T>> task) {
+    String chain = key != null ? key : "";
+    long queuedAt = System.nanoTime();
+    depth.incrementAndGet();
+    CompletableFuture<T> result;
+    CompletableFuture<Void> tail;
+    synchronized (tails) {
+      result = tails.getOrDefault(chain, IDLE).thenComposeAsync(v -> {
+        queueWait.recordSince(queuedAt);
+        return task.get();
+      }, executor);
+      tail = result.handle((r, t) -> null);
+      tails.put(chain, tail);
+    }
+    tail.thenRun(() -> {
+      synchronized (tails) {
+        tails.remove(chain, tail);
+      }
+    });
+    return result.whenComplete((r, t) -> {
+      depth.decrementAndGet();
+      latency.recordSince(queuedAt);
+    });
+  }
+
+  // Keys with a task queued or running
+  public int keys() {
+    synchronized (tails) {
+      return tails.size();
+    }
+  }
+
+  public void shutdown(long timeoutMs) {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
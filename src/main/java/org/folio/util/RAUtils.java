@@ -1,15 +1,17 @@
 package org.folio.util;
 
-import io.vertx.core.json.JsonObject;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.folio.common.OkapiParams;
+import org.folio.http.Deadline;
+import org.folio.http.HttpClientRegistry;
+import org.folio.http.OutboundRequest;
+import org.folio.http.OutboundResponse;
+import org.folio.metrics.StageMetrics;
+import org.folio.metrics.events.RaForwardEvent;
 import org.folio.rest.jaxrs.model.ISO18626.SupplyingAgencyMessage;
 
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -24,39 +26,47 @@ public final class RAUtils {
 
   // Receive a message and headers, create request and return the
   // resulting CompletableFuture
-  public static CompletableFuture<HttpResponse<String>> sendRequestToRa(
-    HttpRequest.Builder request,
+  public static CompletableFuture<OutboundResponse> sendRequestToRa(
+    OutboundRequest request,
     Map<String, String> headers
   ) {
     logger.info("BLDSS connector sending message");
-    HttpClient client = HttpClient.newBuilder()
-      .build();
 
     // Add our existing headers
-    for (Map.Entry<String, String> entry : headers.entrySet()) {
-      request.header(entry.getKey(), entry.getValue());
-    }
+    request.headers(headers);
     // Add additional missing headers
     request.header("Content-type", "application/json");
     request.header("Accept", "application/json");
 
-    HttpRequest builtRequest = request.build();
-    // Send the request, receive the response, convert it into a response object
-    // then complete the future with it
-    return client.sendAsync(builtRequest, HttpResponse.BodyHandlers.ofString());
+    // Send the request and return the future completing with the response
+    RaForwardEvent event = new RaForwardEvent();
+    event.begin();
+    CompletableFuture<OutboundResponse> response = StageMetrics.timeAsync("ra_forward", headers, () ->
+      HttpClientRegistry.transport().send(request, new OkapiParams(headers).getTenant()));
+    return event.commitOn(response, (r, t) -> {
+      event.setRequest(headers);
+      event.uri = request.getUri().toString();
+      event.setPayloadSize(request.getBody() != null ? request.getBody().length : 0);
+      if (r != null) {
+        event.statusCode = r.statusCode();
+        event.responseSize = r.bodyAsBytes() != null ? r.bodyAsBytes().length : 0;
+      }
+    });
   }
 
-  public static HttpRequest.Builder buildRequestForSa(
+  public static OutboundRequest buildRequestForSa(
     Map<String, String> okapiHeaders,
     SupplyingAgencyMessage supplyingAgencyMessage
   ) {
     OkapiParams okapiParams = new OkapiParams(okapiHeaders);
 
+    String body = JsonCodecs.SUPPLYING_AGENCY_MESSAGE.encodeToString(supplyingAgencyMessage);
     logger.info("BLDSS connector building message:");
-    logger.info(JsonObject.mapFrom(supplyingAgencyMessage).toString());
+    logger.info(body);
 
-    return HttpRequest.newBuilder()
-      .uri(URI.create(okapiParams.getUrl() + RA_API + "/sa-update"))
-      .POST(HttpRequest.BodyPublishers.ofString(JsonObject.mapFrom(supplyingAgencyMessage).toString()));
+    return OutboundRequest.post(
+      URI.create(okapiParams.getUrl() + RA_API + "/sa-update"),
+      body
+    ).deadline(Deadline.from(okapiHeaders));
   }
 }
@@ -3,6 +3,7 @@ package org.folio.util;
 import io.vertx.core.json.JsonObject;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.folio.metrics.events.SupplyingAgencyMessageEvent;
 import org.folio.rest.jaxrs.model.*;
 import org.folio.rest.jaxrs.model.ISO18626.SamDeliveryInfo;
 import org.folio.rest.jaxrs.model.ISO18626.SamStatusInfo;
@@ -12,30 +13,34 @@ import org.json.JSONObject;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
+import static org.folio.config.Constants.BLDSS_DATE_FORMAT;
 import static org.folio.config.Constants.ISO18626_DATE_FORMAT;
 import static org.folio.config.Constants.SUPPLYING_AGENCY_ID;
 
 public class SupplyingAgency {
 
   static final Logger logger = LogManager.getLogger("SupplyingAgency");
+  private static final XMLInputFactory xmlInputFactory = createXMLInputFactory();
 
   Map<String, SupplyingAgencyMessageInfo.AnswerYesNo> answerYesNoMap;
   Map<String, SupplyingAgencyMessageInfo.ReasonForMessage> reasonForMessageMap;
   Map<String, SupplyingAgencyMessageInfo.ReasonUnfilled> reasonUnfilledMap;
   Map<String, SupplyingAgencyMessageInfo.ReasonRetry> reasonRetryMap;
   Map<String, SamStatusInfo.Status> statusMap;
-  XMLUtil xmlUtil;
 
   public SupplyingAgency() {
-    this.xmlUtil = new XMLUtil();
     this.answerYesNoMap = bldssStatusToAnswerYesNoMap();
     this.reasonForMessageMap = bldssCodeToReasonForMessage();
     this.reasonUnfilledMap = bldssCodeToReasonUnfulfilled();
@@ -47,9 +52,25 @@ public class SupplyingAgency {
   // to a request to the BLDSS API and build an ISO18626 Supplying Agency
   // Message from it
   public SupplyingAgencyMessage buildMessageFromOrderlineUpdate(String orderlineUpdate) {
+    SupplyingAgencyMessageEvent event = new SupplyingAgencyMessageEvent();
+    event.begin();
+    try {
+      return messageFromOrderlineUpdate(orderlineUpdate);
+    } catch (RuntimeException e) {
+      event.setFailed(true);
+      throw e;
+    } finally {
+      event.commit(() -> {
+        event.messageType = "orderlineUpdate";
+        event.setPayloadSize(orderlineUpdate.getBytes(StandardCharsets.UTF_8).length);
+      });
+    }
+  }
+
+  private SupplyingAgencyMessage messageFromOrderlineUpdate(String orderlineUpdate) {
 
     // Parse what we've received into something we can use
-    Document doc = this.xmlUtil.parse(orderlineUpdate);
+    Document doc = XMLUtil.parse(orderlineUpdate);
 
     AgencyId supplierId = new AgencyId()
       .withAgencyIdType(AgencyId.AgencyIdType.ISIL)
@@ -59,10 +80,10 @@ public class SupplyingAgency {
       .withAgencyIdType(AgencyId.AgencyIdType.ISIL)
       .withAgencyIdValue("MY_REQUESTER_ID");
 
-    Element orderlineEl = (Element) this.xmlUtil.getNode(doc, "orderline");
+    Element orderlineEl = (Element) XMLUtil.getNode(doc, "orderline");
     String supplierRequestId = orderlineEl.getAttribute("id");
 
-    Element event = (Element) this.xmlUtil.getNode(doc,"event");
+    Element event = (Element) XMLUtil.getNode(doc,"event");
     String time = event.getAttribute("time");
 
     // Header
@@ -102,7 +123,36 @@ public class SupplyingAgency {
     return sam;
   }
 
-  public SupplyingAgencyMessage buildOrderMessageFromBLResponse(
+  // Pick the orderline id out of a BLDSS orderline update without building
+  // a DOM, returning null if there isn't one
+  public static String extractOrderlineId(String orderlineUpdate) {
+    try {
+      XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(new StringReader(orderlineUpdate));
+      try {
+        while (reader.hasNext()) {
+          if (reader.next() == XMLStreamConstants.START_ELEMENT && "orderline".equals(reader.getLocalName())) {
+            return reader.getAttributeValue(null, "id");
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      logger.warn("Unable to read orderline id from update: " + e.getMessage());
+    }
+    return null;
+  }
+
+  public CompletableFuture<SupplyingAgencyMessage> buildOrderMessageFromBLResponse(
+    String blResponseString,
+    BLDSSRequest bldssRequest,
+    Map<String, String> okapiHeaders
+  ) {
+    return recordMessage("order", blResponseString, okapiHeaders, () ->
+      orderMessageFromBLResponse(blResponseString, bldssRequest, okapiHeaders));
+  }
+
+  private CompletableFuture<SupplyingAgencyMessage> orderMessageFromBLResponse(
     String blResponseString,
     BLDSSRequest bldssRequest,
     Map<String, String> okapiHeaders
@@ -114,7 +164,7 @@ public class SupplyingAgency {
 
     // If we don't have a response type we can't proceed
     if (bldssResponse.getResponseType() == null) {
-      return null;
+      return CompletableFuture.completedFuture(null);
     }
 
     String customerReference = bldssResponse.getCustomerReference();
@@ -160,21 +210,31 @@ public class SupplyingAgency {
       .withLastChange(timestamp);
 
     // Get the agency ID from the config and substitute it into the message
-    AgencyId agency = getRequestingAgency(okapiHeaders);
-    SupplyingAgencyMessageHeader header = buildMessageHeader(
-      SUPPLYING_AGENCY_ID,
-      agency,
-      customerReference,
-      orderline,
-      timestamp
-    );
-    return new SupplyingAgencyMessage()
-        .withHeader(header)
-        .withMessageInfo(messageInfo)
-        .withStatusInfo(statusInfo);
+    return getRequestingAgency(okapiHeaders).thenApply(agency -> {
+      SupplyingAgencyMessageHeader header = buildMessageHeader(
+        SUPPLYING_AGENCY_ID,
+        agency,
+        customerReference,
+        orderline,
+        timestamp
+      );
+      return new SupplyingAgencyMessage()
+          .withHeader(header)
+          .withMessageInfo(messageInfo)
+          .withStatusInfo(statusInfo);
+    });
+  }
+
+  public CompletableFuture<SupplyingAgencyMessage> buildCancelMessageFromBLResponse(
+    String blResponseString,
+    BLDSSCancelRequest bldssRequest,
+    Map<String, String> okapiHeaders
+  ) {
+    return recordMessage("cancel", blResponseString, okapiHeaders, () ->
+      cancelMessageFromBLResponse(blResponseString, bldssRequest, okapiHeaders));
   }
 
-  public SupplyingAgencyMessage buildCancelMessageFromBLResponse(
+  private CompletableFuture<SupplyingAgencyMessage> cancelMessageFromBLResponse(
     String blResponseString,
     BLDSSCancelRequest bldssRequest,
     Map<String, String> okapiHeaders
@@ -187,7 +247,7 @@ public class SupplyingAgency {
     // If we don't have a response type we can't proceed
     String type = bldssRequest.getReqType();
     if (type == null) {
-      return null;
+      return CompletableFuture.completedFuture(null);
     }
 
     String customerReference = bldssRequest.getLocalReqId();
@@ -219,20 +279,20 @@ public class SupplyingAgency {
       .withLastChange(timestamp);
 
     // Get the agency ID from the config and substitute it into the message
-    CompletableFuture<SupplyingAgencyMessage> future = new CompletableFuture<>();
-    AgencyId agency = getRequestingAgency(okapiHeaders);
-    SupplyingAgencyMessageHeader header = buildMessageHeader(
-      SUPPLYING_AGENCY_ID,
-      agency,
-      customerReference,
-      orderline,
-      timestamp
-    );
-
-    return new SupplyingAgencyMessage()
-        .withHeader(header)
-        .withMessageInfo(messageInfo)
-        .withStatusInfo(statusInfo);
+    return getRequestingAgency(okapiHeaders).thenApply(agency -> {
+      SupplyingAgencyMessageHeader header = buildMessageHeader(
+        SUPPLYING_AGENCY_ID,
+        agency,
+        customerReference,
+        orderline,
+        timestamp
+      );
+
+      return new SupplyingAgencyMessage()
+          .withHeader(header)
+          .withMessageInfo(messageInfo)
+          .withStatusInfo(statusInfo);
+    });
   }
 
   private SupplyingAgencyMessageHeader buildMessageHeader(
@@ -258,8 +318,8 @@ public class SupplyingAgency {
       .withReasonForMessage(this.reasonForMessageMap.get(code));
 
     // In case our mapping falls short, add everything into the note field
-    Element eventType = (Element) this.xmlUtil.getNode(doc, "eventType");
-    Element additionalInfo = (Element) this.xmlUtil.getNode(doc, "additionalInfo");
+    Element eventType = (Element) XMLUtil.getNode(doc, "eventType");
+    Element additionalInfo = (Element) XMLUtil.getNode(doc, "additionalInfo");
     String note = code + ": " + eventType.getTextContent() + " " + additionalInfo.getTextContent();
     messageInfo.setNote(note);
 
@@ -299,7 +359,7 @@ public class SupplyingAgency {
     String code = getEventCode(doc);
 
     // If we're receiving a message containing dispatch info
-    Element additionalInfo = (Element) this.xmlUtil.getNode(doc, "additionalInfo");
+    Element additionalInfo = (Element) XMLUtil.getNode(doc, "additionalInfo");
     if (code.equals("12")) {
       if (additionalInfo.getTextContent().length() > 0) {
         String date = DateTimeUtils.bldssToIso(additionalInfo.getTextContent());
@@ -314,43 +374,69 @@ public class SupplyingAgency {
     return null;
   }
 
-  public String buildConfirmation(JsonObject isoConfirmation) {
+  // Build a message from a BLDSS response, as a SupplyingAgencyMessageEvent
+  private CompletableFuture<SupplyingAgencyMessage> recordMessage(
+    String messageType,
+    String blResponseString,
+    Map<String, String> okapiHeaders,
+    Supplier<CompletableFuture<SupplyingAgencyMessage>> build
+  ) {
+    SupplyingAgencyMessageEvent event = new SupplyingAgencyMessageEvent();
+    event.begin();
+    CompletableFuture<SupplyingAgencyMessage> message;
     try {
-      DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-      DocumentBuilder db = dbf.newDocumentBuilder();
-      Document doc = db.newDocument();
-      Element rootEl = doc.createElement("updateResponse");
-      doc.appendChild(rootEl);
-
-      String outDt = DateTimeUtils.isoToBldss(isoConfirmation.getJsonObject("Header").getString("Timestamp"));
-      Element timestamp = doc.createElement("timestamp");
-      timestamp.setTextContent(outDt);
-      rootEl.appendChild(timestamp);
-
-      Element status = doc.createElement("status");
-      status.setTextContent("0");
-      rootEl.appendChild(status);
-
-      Element message = doc.createElement("message");
-      rootEl.appendChild(message);
-
-      String out = this.xmlUtil.docAsString(doc, true);
-      return out;
-    } catch (ParserConfigurationException e) {
-      e.printStackTrace();
+      message = build.get();
+    } catch (RuntimeException e) {
+      message = new CompletableFuture<>();
+      message.completeExceptionally(e);
     }
-    return null;
+    return event.commitOn(message, (sam, t) -> {
+      event.setRequest(okapiHeaders);
+      event.messageType = messageType;
+      event.setPayloadSize(blResponseString != null ? blResponseString.getBytes(StandardCharsets.UTF_8).length : 0);
+    });
+  }
+
+  public String buildConfirmation(JsonObject isoConfirmation) {
+    String outDt = DateTimeUtils.isoToBldss(isoConfirmation.getJsonObject("Header").getString("Timestamp"));
+    return buildConfirmation(outDt);
+  }
+
+  // Confirm an orderline update we've accepted but not yet passed on to
+  // the RA, so there's no RA confirmation to take the timestamp from
+  public String buildLocalConfirmation() {
+    return buildConfirmation(DateTimeUtils.dtToString(ZonedDateTime.now(), BLDSS_DATE_FORMAT));
   }
 
-  public AgencyId getRequestingAgency(Map<String, String> okapiHeaders) {
-    CompletableFuture<AgencyId> future = new CompletableFuture<>();
+  private String buildConfirmation(String outDt) {
+    Document doc = XMLUtil.newDocument();
+    Element rootEl = doc.createElement("updateResponse");
+    doc.appendChild(rootEl);
+
+    Element timestamp = doc.createElement("timestamp");
+    timestamp.setTextContent(outDt);
+    rootEl.appendChild(timestamp);
+
+    Element status = doc.createElement("status");
+    status.setTextContent("0");
+    rootEl.appendChild(status);
+
+    Element message = doc.createElement("message");
+    rootEl.appendChild(message);
+
+    return XMLUtil.docAsString(doc, true);
+  }
+
+  public CompletableFuture<AgencyId> getRequestingAgency(Map<String, String> okapiHeaders) {
     ConfigurationService configurationService = new ConfigurationService();
-    Config config = configurationService.getConfigurationEntry("generalSettings", okapiHeaders, "UI-ILL-RA");
-    JSONObject conf = new JSONObject(config.getValue());
-    AgencyId.AgencyIdType agencyIdType = AgencyId.AgencyIdType.valueOf(conf.getString("requestingAgencyIdType"));
-    return new AgencyId()
-      .withAgencyIdType(agencyIdType)
-      .withAgencyIdValue(conf.getString("requestingAgencyIdValue"));
+    return configurationService.getConfigurationEntry("generalSettings", okapiHeaders, "UI-ILL-RA")
+      .thenApply(config -> {
+        JSONObject conf = new JSONObject(config.getValue());
+        AgencyId.AgencyIdType agencyIdType = AgencyId.AgencyIdType.valueOf(conf.getString("requestingAgencyIdType"));
+        return new AgencyId()
+          .withAgencyIdType(agencyIdType)
+          .withAgencyIdValue(conf.getString("requestingAgencyIdValue"));
+      });
   }
 
   private Map<String, SupplyingAgencyMessageInfo.AnswerYesNo> bldssStatusToAnswerYesNoMap() {
@@ -554,9 +640,16 @@ public class SupplyingAgency {
     }};
   }
 
+  private static XMLInputFactory createXMLInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
   private String getEventCode(Document doc) {
     // Get the BLDSS event code
-    Element eventType = (Element) this.xmlUtil.getNode(doc, "eventType");
+    Element eventType = (Element) XMLUtil.getNode(doc, "eventType");
     return eventType.getAttribute("id");
   }
 }
@@ -0,0 +1,205 @@
+package org.folio.util;
+
+import org.folio.exception.ConnectorQueryException;
+import org.json.JSONObject;
+import org.json.XML;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+  Converts an element of an XML document to JSON in a single pass over the
+  document, producing the same JSON as running the element's XML through
+  org.json's XML.toJSONObject:
+
+  - Attributes and trimmed text are type coerced, CDATA is left as it is
+  - Text ends up under "content", an element that only has text becomes
+    that text and an empty element becomes ""
+  - Repeated names within an element are gathered into an array
+  - Namespace declarations are plain attributes, less any that repeat a
+    declaration already in scope, as serialising the element would drop them
+
+  That last rule means an element's JSON isn't known until it closes, so we
+  build org.json objects as we go and serialise the result once
+*/
+public class XMLJsonConverter {
+
+  private static final String CONTENT = "content";
+  private static final String XMLNS = "xmlns";
+  private static final String REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+  private static final XMLInputFactory factory = createFactory();
+
+  private XMLJsonConverter() {
+  }
+
+  // Take an XML string and return a specified element tree JSONified, the
+  // element must appear exactly once in the document
+  public static String toJson(String xml, String startElement, String nodeName) {
+    try {
+      return convert(factory.createXMLStreamReader(new StringReader(xml)), startElement, nodeName, xml);
+    } catch (XMLStreamException e) {
+      throw new ConnectorQueryException(e.getMessage());
+    }
+  }
+
+  public static String toJson(InputStream xml, String startElement, String nodeName) {
+    try {
+      return convert(factory.createXMLStreamReader(xml), startElement, nodeName, null);
+    } catch (XMLStreamException e) {
+      throw new ConnectorQueryException(e.getMessage());
+    }
+  }
+
+  private static String convert(XMLStreamReader reader, String startElement, String nodeName, String xml) throws XMLStreamException {
+    JSONObject root = new JSONObject();
+    Deque<Frame> stack = new ArrayDeque<>();
+    int found = 0;
+
+    try {
+      while (reader.hasNext()) {
+        int event = reader.next();
+        switch (event) {
+          case XMLStreamConstants.START_ELEMENT:
+            String name = getName(reader);
+            if (name.equals(nodeName)) {
+              found++;
+            }
+            // We only build the first matching element, any more and
+            // we'll be complaining once we've counted them
+            if (!stack.isEmpty() || (found == 1 && name.equals(nodeName))) {
+              Frame parent = stack.peek();
+              if (parent != null) {
+                parent.flushText();
+              }
+              stack.push(new Frame(name, reader, parent));
+            }
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.SPACE:
+          case XMLStreamConstants.ENTITY_REFERENCE:
+            if (!stack.isEmpty()) {
+              stack.peek().text.append(reader.getText());
+            }
+            break;
+          case XMLStreamConstants.CDATA:
+            if (!stack.isEmpty()) {
+              Frame frame = stack.peek();
+              frame.flushText();
+              String cdata = reader.getText();
+              if (cdata.length() > 0) {
+                frame.json.accumulate(CONTENT, cdata);
+              }
+            }
+            break;
+          case XMLStreamConstants.COMMENT:
+          case XMLStreamConstants.PROCESSING_INSTRUCTION:
+            // These split text into separately trimmed pieces
+            if (!stack.isEmpty()) {
+              stack.peek().flushText();
+            }
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            if (!stack.isEmpty()) {
+              Frame frame = stack.pop();
+              frame.flushText();
+              JSONObject parent = stack.isEmpty() ? root : stack.peek().json;
+              parent.accumulate(frame.name, frame.value());
+            }
+            break;
+          default:
+            break;
+        }
+      }
+    } finally {
+      reader.close();
+    }
+
+    if (found != 1) {
+      throw new ConnectorQueryException(
+        "Unexpected number of response " + nodeName + " elements: " + found +
+          (xml != null ? "\n" + xml : "")
+      );
+    }
+    return root.get(startElement).toString();
+  }
+
+  // Names as they appear in the document, prefix and all
+  private static String getName(XMLStreamReader reader) {
+    String prefix = reader.getPrefix();
+    String localName = reader.getLocalName();
+    return prefix != null && prefix.length() > 0 ? prefix + ":" + localName : localName;
+  }
+
+  private static XMLInputFactory createFactory() {
+    XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    // Namespace declarations should come through as plain attributes
+    xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    // CDATA isn't coerced, so we need to know when we're reading it
+    if (xmlInputFactory.isPropertySupported(REPORT_CDATA)) {
+      xmlInputFactory.setProperty(REPORT_CDATA, true);
+    }
+    return xmlInputFactory;
+  }
+
+  private static class Frame {
+    private final String name;
+    private final JSONObject json = new JSONObject();
+    private final StringBuilder text = new StringBuilder();
+    // Namespace declarations in scope, shared with the parent until we
+    // declare one of our own
+    private Map<String, String> namespaces;
+
+    private Frame(String name, XMLStreamReader reader, Frame parent) {
+      this.name = name;
+      this.namespaces = parent != null ? parent.namespaces : new HashMap<>();
+      boolean ownNamespaces = false;
+      for (int i = 0; i < reader.getAttributeCount(); i++) {
+        String prefix = reader.getAttributePrefix(i);
+        String localName = reader.getAttributeLocalName(i);
+        String attributeName = prefix != null && prefix.length() > 0 ? prefix + ":" + localName : localName;
+        String value = reader.getAttributeValue(i);
+        if (XMLNS.equals(attributeName) || XMLNS.equals(prefix)) {
+          if (value.equals(namespaces.get(attributeName))) {
+            continue;
+          }
+          if (!ownNamespaces) {
+            namespaces = new HashMap<>(namespaces);
+            ownNamespaces = true;
+          }
+          namespaces.put(attributeName, value);
+        }
+        json.accumulate(attributeName, XML.stringToValue(value));
+      }
+    }
+
+    private void flushText() {
+      if (text.length() > 0) {
+        String content = text.toString().trim();
+        if (content.length() > 0) {
+          json.accumulate(CONTENT, XML.stringToValue(content));
+        }
+        text.setLength(0);
+      }
+    }
+
+    private Object value() {
+      if (json.length() == 0) {
+        return "";
+      }
+      if (json.length() == 1 && json.opt(CONTENT) != null) {
+        return json.opt(CONTENT);
+      }
+      return json;
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package org.folio.util;
+
+import org.folio.exception.ConnectorQueryException;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+  A small element tree for building request payloads, written out with an
+  XMLStreamWriter into a per thread buffer
+
+  The output is the same as building the equivalent DOM and serialising it
+  with XMLUtil.docAsString(doc, false), declaration and all
+*/
+public class XMLPayload {
+
+  private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>";
+  private static final XMLOutputFactory factory = XMLOutputFactory.newInstance();
+  private static final ThreadLocal<StringBuilderWriter> buffers = ThreadLocal.withInitial(StringBuilderWriter::new);
+
+  private final String name;
+  private final String value;
+  private final List<XMLPayload> children = new ArrayList<>();
+
+  private XMLPayload(String name, String value) {
+    this.name = name;
+    this.value = value;
+  }
+
+  public static XMLPayload element(String name) {
+    return new XMLPayload(name, null);
+  }
+
+  // Add an element containing some text, so long as there is some text
+  public XMLPayload add(String name, String value) {
+    if (value != null && value.length() > 0) {
+      children.add(new XMLPayload(name, value));
+    }
+    return this;
+  }
+
+  public XMLPayload add(XMLPayload child) {
+    children.add(child);
+    return this;
+  }
+
+  // Add an element, so long as it has something in it
+  public XMLPayload addIfNotEmpty(XMLPayload child) {
+    if (!child.isEmpty()) {
+      children.add(child);
+    }
+    return this;
+  }
+
+  public boolean isEmpty() {
+    return value == null && children.isEmpty();
+  }
+
+  public String toXml() {
+    StringBuilderWriter buffer = buffers.get();
+    buffer.reset();
+    try {
+      buffer.write(DECLARATION);
+      XMLStreamWriter writer = factory.createXMLStreamWriter(buffer);
+      write(writer);
+      // Closes an empty root element, which is otherwise left open
+      writer.writeEndDocument();
+      writer.flush();
+      writer.close();
+    } catch (XMLStreamException e) {
+      throw new ConnectorQueryException("Unable to write " + name + ": " + e.getMessage());
+    }
+    return buffer.toString();
+  }
+
+  private void write(XMLStreamWriter writer) throws XMLStreamException {
+    if (isEmpty()) {
+      writer.writeEmptyElement(name);
+      return;
+    }
+    writer.writeStartElement(name);
+    if (value != null) {
+      writeText(writer, value);
+    }
+    for (XMLPayload child : children) {
+      child.write(writer);
+    }
+    writer.writeEndElement();
+  }
+
+  // The DOM serialiser writes some characters as character references
+  // where the stream writer would leave them as they are
+  private static void writeText(XMLStreamWriter writer, String text) throws XMLStreamException {
+    int start = 0;
+    int i = 0;
+    while (i < text.length()) {
+      int codePoint = text.codePointAt(i);
+      int next = i + Character.charCount(codePoint);
+      if (needsCharacterReference(codePoint)) {
+        writer.writeCharacters(text.substring(start, i));
+        writer.writeEntityRef("#" + codePoint);
+        start = next;
+      }
+      i = next;
+    }
+    writer.writeCharacters(text.substring(start));
+  }
+
+  private static boolean needsCharacterReference(int codePoint) {
+    return codePoint == '\r'
+      || (codePoint >= 0x7F && codePoint <= 0x9F)
+      || codePoint > 0xFFFF;
+  }
+
+  // StringWriter is backed by a synchronized StringBuffer, we don't need that
+  private static class StringBuilderWriter extends Writer {
+    private final StringBuilder builder = new StringBuilder(2048);
+
+    private void reset() {
+      builder.setLength(0);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+      builder.append(cbuf, off, len);
+    }
+
+    @Override
+    public void write(String str) {
+      builder.append(str);
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+      builder.append(str, off, off + len);
+    }
+
+    @Override
+    public void write(int c) {
+      builder.append((char) c);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+      return builder.toString();
+    }
+  }
+}
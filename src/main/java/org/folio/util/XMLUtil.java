@@ -1,7 +1,8 @@
 package org.folio.util;
 
 import org.folio.exception.ConnectorQueryException;
-import org.json.XML;
+import org.folio.metrics.ConnectorMetrics;
+import org.folio.metrics.events.XmlParseEvent;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -14,6 +15,7 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
@@ -21,64 +23,77 @@ import javax.xml.transform.stream.StreamResult;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 
+/*
+  Stateless XML helpers, safe to use from any thread
+
+  The factories are looked up once, each thread then keeps its own
+  DocumentBuilder and Transformer since neither of those is thread safe
+*/
 public class XMLUtil {
 
-  private DocumentBuilder db;
-  private Document doc;
+  private static final DocumentBuilderFactory documentBuilderFactory = createDocumentBuilderFactory();
+  private static final TransformerFactory transformerFactory = TransformerFactory.newInstance();
 
-  public void setDb(DocumentBuilder db) {
-    this.db = db;
-  }
+  private static final ThreadLocal<DocumentBuilder> documentBuilders = ThreadLocal.withInitial(XMLUtil::newDocumentBuilder);
+  private static final ThreadLocal<Transformer> transformers = ThreadLocal.withInitial(XMLUtil::newTransformer);
 
-  public void setDoc(Document doc) {
-    this.doc = doc;
-  }
+  private static final ConnectorMetrics.Timer parseTime = ConnectorMetrics.timer("xml_parse_seconds");
+  private static final ConnectorMetrics.Timer serializeTime = ConnectorMetrics.timer("xml_serialize_seconds");
 
-  public Document getDoc() {
-    return doc;
+  private XMLUtil() {
   }
 
-  public XMLUtil() {
-    DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+  public static Document parse(String xml) {
+    long start = System.nanoTime();
+    XmlParseEvent event = new XmlParseEvent();
+    event.begin();
     try {
-      dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-      this.setDb(dbf.newDocumentBuilder());
-    } catch (ParserConfigurationException e) {
-      e.printStackTrace();
+      DocumentBuilder db = documentBuilders.get();
+      db.reset();
+      Document parsed = db.parse(new InputSource(new StringReader(xml)));
+      parsed.getDocumentElement().normalize();
+      return parsed;
+    } catch(IOException | SAXException e) {
+      event.setFailed(true);
+      throw new ConnectorQueryException("Unable to parse XML: " + e.getMessage());
+    } finally {
+      parseTime.recordSince(start);
+      event.commit(() -> event.setPayloadSize(xml != null ? xml.getBytes(StandardCharsets.UTF_8).length : 0));
     }
+  }
 
+  // An empty document to build on
+  public static Document newDocument() {
+    DocumentBuilder db = documentBuilders.get();
+    db.reset();
+    return db.newDocument();
   }
 
-  public Document parse(String xml) {
-    try {
-      Document parsed = this.db.parse(new InputSource(new StringReader(xml)));
-      parsed.getDocumentElement().normalize();
-      this.setDoc(parsed);
-    } catch(IOException | SAXException e) {
-      e.printStackTrace();
-    }
-    return this.getDoc();
+  public static String docAsString(Document doc, Boolean omitXmlDeclaration) {
+    return nodeAsString(doc, omitXmlDeclaration);
   }
 
-  public String docAsString(Document doc, Boolean omitXmlDeclaration) {
+  public static String nodeAsString(Node node, Boolean omitXmlDeclaration) {
+    long start = System.nanoTime();
     StringWriter writer = new StringWriter();
     try {
-      DOMSource domSource = new DOMSource(doc);
-      StreamResult result = new StreamResult(writer);
-      TransformerFactory tf = TransformerFactory.newInstance();
-      Transformer transformer = tf.newTransformer();
+      Transformer transformer = transformers.get();
+      transformer.reset();
       if (omitXmlDeclaration) {
         transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
       }
-      transformer.transform(domSource, result);
+      transformer.transform(new DOMSource(node), new StreamResult(writer));
     } catch(TransformerException e) {
       e.printStackTrace();
+    } finally {
+      serializeTime.recordSince(start);
     }
     return writer.toString();
   }
 
-  public Node getNode(Document doc, String nodeName) {
+  public static Node getNode(Document doc, String nodeName) {
     NodeList nodes = doc.getElementsByTagName(nodeName);
     if (nodes.getLength() != 1) {
       throw(new ConnectorQueryException(
@@ -90,20 +105,34 @@ public class XMLUtil {
   }
 
   // Take an XML string and return a specified element tree JSONified
-  public String getJson(String xml, String startElement, String nodeName) {
-    // We need to take the entire "result" node and convert it to JSON
-    String output = "";
-    StringWriter writer = new StringWriter();
-    Document doc = this.parse(xml);
-    Node result = this.getNode(doc, nodeName);
+  public static String getJson(String xml, String startElement, String nodeName) {
+    return XMLJsonConverter.toJson(xml, startElement, nodeName);
+  }
+
+  private static DocumentBuilderFactory createDocumentBuilderFactory() {
+    DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
     try {
-      Transformer t = TransformerFactory.newInstance().newTransformer();
-      t.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-      t.transform(new DOMSource(result), new StreamResult(writer));
-      output = writer.toString();
-    } catch (TransformerException e) {
+      dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+    } catch (ParserConfigurationException e) {
       e.printStackTrace();
     }
-    return XML.toJSONObject(output).get(startElement).toString();
+    return dbf;
+  }
+
+  // The factories aren't thread safe, but we only hit them once per thread
+  private static synchronized DocumentBuilder newDocumentBuilder() {
+    try {
+      return documentBuilderFactory.newDocumentBuilder();
+    } catch (ParserConfigurationException e) {
+      throw new IllegalStateException("Unable to create a DocumentBuilder", e);
+    }
+  }
+
+  private static synchronized Transformer newTransformer() {
+    try {
+      return transformerFactory.newTransformer();
+    } catch (TransformerConfigurationException e) {
+      throw new IllegalStateException("Unable to create a Transformer", e);
+    }
   }
 }
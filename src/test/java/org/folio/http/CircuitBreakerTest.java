@@ -0,0 +1,81 @@
+package org.folio.http;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+  @Test
+  public void opensAfterEnoughFailuresInARow() {
+    CircuitBreaker breaker = new CircuitBreaker("test", 3, 60000);
+    fail(breaker);
+    fail(breaker);
+    succeed(breaker);
+    fail(breaker);
+    fail(breaker);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+    fail(breaker);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertFalse(breaker.tryAcquire());
+  }
+
+  @Test
+  public void closesAgainWhenTheTrialCallSucceeds() {
+    CircuitBreaker breaker = opened(100);
+    assertFalse(breaker.tryAcquire());
+
+    await().atMost(2, TimeUnit.SECONDS).until(breaker::tryAcquire);
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    // Only the one trial call goes through
+    assertFalse(breaker.tryAcquire());
+
+    breaker.onSuccess();
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    assertTrue(breaker.tryAcquire());
+  }
+
+  @Test
+  public void reopensWhenTheTrialCallFails() {
+    CircuitBreaker breaker = opened(100);
+    await().atMost(2, TimeUnit.SECONDS).until(breaker::tryAcquire);
+
+    breaker.onFailure();
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertFalse(breaker.tryAcquire());
+  }
+
+  @Test
+  public void triesAnotherCallWhenTheTrialOneIsIgnored() {
+    CircuitBreaker breaker = opened(100);
+    await().atMost(2, TimeUnit.SECONDS).until(breaker::tryAcquire);
+
+    breaker.onIgnored();
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    assertTrue(breaker.tryAcquire());
+    assertFalse(breaker.tryAcquire());
+  }
+
+  private static CircuitBreaker opened(long openMs) {
+    CircuitBreaker breaker = new CircuitBreaker("test", 1, openMs);
+    fail(breaker);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    return breaker;
+  }
+
+  private static void fail(CircuitBreaker breaker) {
+    assertTrue(breaker.tryAcquire());
+    breaker.onFailure();
+  }
+
+  private static void succeed(CircuitBreaker breaker) {
+    assertTrue(breaker.tryAcquire());
+    breaker.onSuccess();
+  }
+}
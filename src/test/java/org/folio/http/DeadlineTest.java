@@ -0,0 +1,96 @@
+package org.folio.http;
+
+import org.folio.exception.DeadlineExceededException;
+import org.folio.exception.HttpException;
+import org.folio.metrics.StageMetrics;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DeadlineTest {
+
+  @Test
+  public void failsARequestThatIsNotDoneInTimeWithA504() {
+    Map<String, String> headers = headers();
+    Deadline.start(headers, 100);
+    long start = System.nanoTime();
+    CompletableFuture<String> bounded = Deadline.from(headers).bound(new CompletableFuture<>());
+
+    // As ConnectorAPI answers, so the failure arrives wrapped
+    CompletableFuture<Void> answered = bounded.thenAccept(value -> fail("Expected the deadline to pass"));
+    try {
+      answered.join();
+      fail("Expected the deadline to pass");
+    } catch (CompletionException e) {
+      assertTrue(e.getCause() instanceof DeadlineExceededException);
+      assertEquals(504, ((HttpException) e.getCause()).getCode());
+    }
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 90);
+  }
+
+  @Test
+  public void leavesARequestDoneInTimeAlone() {
+    Map<String, String> headers = headers();
+    Deadline.start(headers, 1000);
+    CompletableFuture<String> work = new CompletableFuture<>();
+    CompletableFuture<String> bounded = Deadline.from(headers).bound(work);
+
+    work.complete("done");
+    assertEquals("done", bounded.join());
+  }
+
+  @Test
+  public void givesUpOnAnOutboundCallOnceTheDeadlinePasses() {
+    Map<String, String> headers = headers();
+    Deadline.start(headers, 0);
+    OutboundRequest request = OutboundRequest.get(URI.create("http://bldss/api/orders")).deadline(Deadline.from(headers));
+
+    assertEquals(0, request.getTimeoutMillis());
+    Throwable failure = request.failure(new IllegalStateException("timed out"));
+    assertTrue(failure instanceof DeadlineExceededException);
+    assertEquals(504, ((HttpException) failure).getCode());
+  }
+
+  @Test
+  public void isNotPassedOnToOtherModules() {
+    Map<String, String> headers = headers();
+    Deadline.start(headers, 1000);
+    StageMetrics.forEndpoint(headers, "action");
+    headers.put("X-Connector-Other", "ours");
+
+    OutboundRequest request = OutboundRequest.get(URI.create("http://okapi:9130/configurations/entries"))
+      .headers(headers);
+    assertEquals("deadline_test", request.getHeaders().get("x-okapi-tenant"));
+    assertEquals("token", request.getHeaders().get("x-okapi-token"));
+    assertEquals(2, request.getHeaders().size());
+  }
+
+  @Test
+  public void isNotInheritedByWorkCarriedOnAfterResponding() {
+    Map<String, String> headers = headers();
+    Deadline.start(headers, 1000);
+
+    Map<String, String> detached = Deadline.detach(headers);
+    assertNull(Deadline.from(detached));
+    assertEquals("deadline_test", detached.get("x-okapi-tenant"));
+    assertFalse(Deadline.from(headers).isExpired());
+  }
+
+  private static Map<String, String> headers() {
+    Map<String, String> headers = new HashMap<>();
+    headers.put("x-okapi-tenant", "deadline_test");
+    headers.put("x-okapi-token", "token");
+    return headers;
+  }
+}
@@ -0,0 +1,140 @@
+package org.folio.http;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HedgerTest {
+
+  private final List<CompletableFuture<String>> attempts = Collections.synchronizedList(new ArrayList<>());
+  private final Supplier<CompletableFuture<String>> attempt = () -> {
+    CompletableFuture<String> future = new CompletableFuture<>();
+    attempts.add(future);
+    return future;
+  };
+
+  @Test
+  public void doesNotHedgeUntilItKnowsHowLongCallsTake() {
+    Hedger hedger = new Hedger(5, 50, 100);
+    CompletableFuture<String> result = hedger.call(attempt);
+
+    await().during(100, TimeUnit.MILLISECONDS).atMost(1, TimeUnit.SECONDS).until(() -> attempts.size() == 1);
+    attempts.get(0).complete("primary");
+    assertEquals("primary", result.join());
+  }
+
+  @Test
+  public void usesTheHedgeWhenItWins() {
+    Hedger hedger = warmedUp(100);
+    CompletableFuture<String> result = hedger.call(attempt);
+
+    await().atMost(1, TimeUnit.SECONDS).until(() -> attempts.size() == 2);
+    attempts.get(1).complete("hedge");
+    assertEquals("hedge", result.join());
+    assertTrue(attempts.get(0).isCancelled());
+  }
+
+  @Test
+  public void cancelsTheHedgeWhenThePrimaryWins() {
+    Hedger hedger = warmedUp(100);
+    CompletableFuture<String> result = hedger.call(attempt);
+
+    await().atMost(1, TimeUnit.SECONDS).until(() -> attempts.size() == 2);
+    attempts.get(0).complete("primary");
+    assertEquals("primary", result.join());
+    assertTrue(attempts.get(1).isCancelled());
+  }
+
+  @Test
+  public void cancelsAHedgeThatStartsAsThePrimaryFinishes() {
+    Hedger hedger = warmedUp(100);
+    List<CompletableFuture<String>> started = Collections.synchronizedList(new ArrayList<>());
+    CompletableFuture<String> result = hedger.call(() -> {
+      CompletableFuture<String> future = new CompletableFuture<>();
+      started.add(future);
+      if (started.size() == 2) {
+        // The primary finishes before the hedge has been handed over
+        started.get(0).complete("primary");
+      }
+      return future;
+    });
+
+    await().atMost(1, TimeUnit.SECONDS).until(() -> started.size() == 2);
+    assertEquals("primary", result.join());
+    await().atMost(1, TimeUnit.SECONDS).until(() -> started.get(1).isCancelled());
+  }
+
+  @Test
+  public void waitsForTheOtherAttemptWhenOneFails() {
+    Hedger hedger = warmedUp(100);
+    CompletableFuture<String> result = hedger.call(attempt);
+
+    await().atMost(1, TimeUnit.SECONDS).until(() -> attempts.size() == 2);
+    attempts.get(0).completeExceptionally(new IllegalStateException("primary failed"));
+    assertFalse(result.isDone());
+    attempts.get(1).complete("hedge");
+    assertEquals("hedge", result.join());
+  }
+
+  @Test
+  public void failsOnceBothAttemptsHave() {
+    Hedger hedger = warmedUp(100);
+    CompletableFuture<String> result = hedger.call(attempt);
+
+    await().atMost(1, TimeUnit.SECONDS).until(() -> attempts.size() == 2);
+    IllegalStateException hedgeFailed = new IllegalStateException("hedge failed");
+    attempts.get(1).completeExceptionally(hedgeFailed);
+    assertFalse(result.isDone());
+    attempts.get(0).completeExceptionally(new IllegalStateException("primary failed"));
+    try {
+      result.join();
+      fail("Expected the call to fail");
+    } catch (CompletionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void onlyHedgesWhatTheBudgetCovers() {
+    // Half a hedge's worth of budget per call
+    Hedger hedger = warmedUp(50);
+
+    CompletableFuture<String> first = hedger.call(attempt);
+    await().during(100, TimeUnit.MILLISECONDS).atMost(1, TimeUnit.SECONDS).until(() -> attempts.size() == 1);
+    attempts.get(0).complete("first");
+    assertEquals("first", first.join());
+
+    CompletableFuture<String> second = hedger.call(attempt);
+    await().atMost(1, TimeUnit.SECONDS).until(() -> attempts.size() == 3);
+    attempts.get(1).complete("second");
+    assertEquals("second", second.join());
+    assertTrue(attempts.get(2).isCancelled());
+
+    CompletableFuture<String> third = hedger.call(attempt);
+    await().during(100, TimeUnit.MILLISECONDS).atMost(1, TimeUnit.SECONDS).until(() -> attempts.size() == 4);
+    attempts.get(3).complete("third");
+    assertEquals("third", third.join());
+  }
+
+  // A hedger that hedges calls taking longer than 10ms
+  private static Hedger warmedUp(double budgetPercent) {
+    Hedger hedger = new Hedger(5, 50, budgetPercent);
+    for (int i = 0; i < 5; i++) {
+      hedger.record(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    assertTrue(hedger.getDelayMillis() >= 0);
+    return hedger;
+  }
+}
@@ -0,0 +1,110 @@
+package org.folio.http;
+
+import org.folio.exception.HttpException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RateLimiterTest {
+
+  @Test
+  public void letsABurstThroughThenPacesCalls() {
+    RateLimiter limiter = new RateLimiter(20, 3, 10, 5000);
+    for (int i = 0; i < 3; i++) {
+      assertTrue(limiter.acquire(RateLimiter.Priority.INTERACTIVE).isDone());
+    }
+    long start = System.nanoTime();
+    CompletableFuture<Void> paced = limiter.acquire(RateLimiter.Priority.INTERACTIVE);
+    assertFalse(paced.isDone());
+    paced.join();
+    // One token every 50ms
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 30);
+  }
+
+  @Test
+  public void letsInteractiveCallersThroughBeforeBatchOnes() {
+    RateLimiter limiter = new RateLimiter(20, 1, 10, 5000);
+    limiter.acquire(RateLimiter.Priority.BATCH).join();
+
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    CompletableFuture<Void> batch1 = limiter.acquire(RateLimiter.Priority.BATCH).thenRun(() -> order.add("batch1"));
+    CompletableFuture<Void> batch2 = limiter.acquire(RateLimiter.Priority.BATCH).thenRun(() -> order.add("batch2"));
+    CompletableFuture<Void> interactive = limiter.acquire(RateLimiter.Priority.INTERACTIVE)
+      .thenRun(() -> order.add("interactive"));
+    CompletableFuture.allOf(batch1, batch2, interactive).join();
+
+    assertEquals(List.of("interactive", "batch1", "batch2"), order);
+  }
+
+  @Test
+  public void makesRoomForAnInteractiveCallerByTurningAwayTheNewestBatchOne() {
+    RateLimiter limiter = new RateLimiter(20, 1, 2, 5000);
+    limiter.acquire(RateLimiter.Priority.INTERACTIVE).join();
+    CompletableFuture<Void> oldestBatch = limiter.acquire(RateLimiter.Priority.BATCH);
+    CompletableFuture<Void> newestBatch = limiter.acquire(RateLimiter.Priority.BATCH);
+
+    // A full queue turns away another batch caller straight away
+    assertTooManyRequests(limiter.acquire(RateLimiter.Priority.BATCH), "Too many requests");
+
+    CompletableFuture<Void> interactive = limiter.acquire(RateLimiter.Priority.INTERACTIVE);
+    assertTooManyRequests(newestBatch, "Too many requests");
+    interactive.join();
+    oldestBatch.join();
+  }
+
+  @Test
+  public void turnsAwayAnInteractiveCallerWhenTheQueueIsFullOfThem() {
+    RateLimiter limiter = new RateLimiter(20, 1, 2, 5000);
+    limiter.acquire(RateLimiter.Priority.INTERACTIVE).join();
+    CompletableFuture<Void> first = limiter.acquire(RateLimiter.Priority.INTERACTIVE);
+    CompletableFuture<Void> second = limiter.acquire(RateLimiter.Priority.INTERACTIVE);
+
+    assertTooManyRequests(limiter.acquire(RateLimiter.Priority.INTERACTIVE), "Too many requests");
+    first.join();
+    second.join();
+  }
+
+  @Test
+  public void turnsAwayCallersThatWaitTooLong() {
+    // A token a second, but nobody waits more than 100ms for one
+    RateLimiter limiter = new RateLimiter(1, 1, 10, 100);
+    limiter.acquire(RateLimiter.Priority.INTERACTIVE).join();
+    long start = System.nanoTime();
+    CompletableFuture<Void> waiting = limiter.acquire(RateLimiter.Priority.BATCH);
+
+    await().atMost(800, TimeUnit.MILLISECONDS).until(waiting::isDone);
+    assertTooManyRequests(waiting, "Timed out");
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+  }
+
+  @Test
+  public void doesNotLimitWithoutARate() {
+    RateLimiter limiter = new RateLimiter(0, 1, 1, 100);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(limiter.acquire(RateLimiter.Priority.BATCH).isDone());
+    }
+  }
+
+  private static void assertTooManyRequests(CompletableFuture<Void> future, String message) {
+    try {
+      future.join();
+      fail("Expected a 429");
+    } catch (CompletionException e) {
+      assertTrue(e.getCause() instanceof HttpException);
+      HttpException cause = (HttpException) e.getCause();
+      assertEquals(429, cause.getCode());
+      assertTrue(cause.getError().getMessage(), cause.getError().getMessage().contains(message));
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package org.folio.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrometheusFormatTest {
+
+  @Test
+  public void onlyRendersTheCallingTenantsSeries() {
+    ConnectorMetrics.counter("format_test_total", "tenant", "format_one").add(3);
+    ConnectorMetrics.counter("format_test_total", "tenant", "format_two").add(5);
+    ConnectorMetrics.timer("format_test_seconds", "stage", "upstream_http", "tenant", "format_two").record(2_000_000_000L);
+    ConnectorMetrics.gauge("format_test_gauge", () -> 7, "group", "search");
+
+    String rendered = PrometheusFormat.render("format_one");
+
+    assertTrue(rendered.contains("# TYPE format_test_total counter\n"));
+    assertTrue(rendered.contains("format_test_total{tenant=\"format_one\"} 3\n"));
+    assertFalse(rendered.contains("format_two"));
+    // Nothing left of the timer, so no # TYPE line either
+    assertFalse(rendered.contains("format_test_seconds"));
+    // Series that aren't a tenant's are everyone's
+    assertTrue(rendered.contains("format_test_gauge{group=\"search\"} 7\n"));
+  }
+
+  @Test
+  public void rendersTimersAsSummaries() {
+    ConnectorMetrics.timer("format_summary_seconds", "tenant", "format_summary").record(1_500_000_000L);
+
+    String rendered = PrometheusFormat.render("format_summary");
+
+    assertTrue(rendered.contains("# TYPE format_summary_seconds summary\n"));
+    assertTrue(rendered.contains("format_summary_seconds_count{tenant=\"format_summary\"} 1\n"));
+    assertTrue(rendered.contains("format_summary_seconds_sum{tenant=\"format_summary\"} 1.5\n"));
+  }
+}
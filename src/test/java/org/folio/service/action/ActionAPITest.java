@@ -0,0 +1,175 @@
+package org.folio.service.action;
+
+import org.folio.exception.HttpException;
+import org.folio.rest.jaxrs.model.ActionRequest;
+import org.folio.rest.jaxrs.model.ActionResponse;
+import org.folio.rest.jaxrs.model.BulkActionResponse;
+import org.folio.rest.jaxrs.model.BulkActionResult;
+import org.folio.util.BLDSSActionResponse;
+import org.folio.util.BLDSSSettings;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.folio.config.Constants.BULK_ACTION_MAX_ITEMS;
+import static org.folio.config.Constants.BULK_ACTION_PARALLELISM;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ActionAPITest {
+
+  private final StubActions actions = new StubActions();
+
+  @Test
+  public void answersInRequestOrderWhateverOrderTheActionsFinishIn() {
+    CompletableFuture<BulkActionResponse> bulk = actions.performBulkAction(
+      requests("submitRequest", "submitRequest", "cancel"), headers(), null);
+
+    ActionResponse third = actions.finish(2);
+    ActionResponse first = actions.finish(0);
+    assertFalse(bulk.isDone());
+    ActionResponse second = actions.finish(1);
+
+    List<BulkActionResult> results = bulk.join().getResults();
+    assertEquals(3, results.size());
+    assertSame(first, results.get(0).getResponse());
+    assertSame(second, results.get(1).getResponse());
+    assertSame(third, results.get(2).getResponse());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(i, (int) results.get(i).getIndex());
+      assertEquals(BulkActionResult.Status.OK, results.get(i).getStatus());
+    }
+    assertEquals("cancel", results.get(2).getActionName());
+    assertEquals(3, actions.notified.get());
+  }
+
+  @Test
+  public void reportsEachFailedActionWithoutFailingTheBatch() {
+    CompletableFuture<BulkActionResponse> bulk = actions.performBulkAction(
+      requests("submitRequest", "renew", "cancel"), headers(), null);
+
+    actions.finish(0);
+    actions.fail(2, new HttpException(500, "BLDSS said no"));
+
+    List<BulkActionResult> results = bulk.join().getResults();
+    assertEquals(3, (int) bulk.join().getTotalRecords());
+    assertEquals(BulkActionResult.Status.OK, results.get(0).getStatus());
+    assertEquals(BulkActionResult.Status.ERROR, results.get(1).getStatus());
+    assertEquals("Unknown action: renew", results.get(1).getError());
+    assertEquals(BulkActionResult.Status.ERROR, results.get(2).getStatus());
+    assertEquals("BLDSS said no", results.get(2).getError());
+    // Only the action that succeeded tells the RA
+    assertEquals(1, actions.notified.get());
+  }
+
+  @Test
+  public void turnsDownABatchWithTooManyActions() {
+    String[] names = new String[BULK_ACTION_MAX_ITEMS + 1];
+    Arrays.fill(names, "submitRequest");
+    try {
+      actions.performBulkAction(requests(names), null, headers()).join();
+      fail("Expected the batch to be turned down");
+    } catch (CompletionException e) {
+      assertTrue(e.getCause() instanceof HttpException);
+      assertEquals(400, ((HttpException) e.getCause()).getCode());
+    }
+    assertEquals(0, actions.started.size());
+  }
+
+  @Test
+  public void performsAtMostTheConfiguredNumberOfActionsAtOnce() {
+    int count = BULK_ACTION_PARALLELISM * 3 + 1;
+    String[] names = new String[count];
+    Arrays.fill(names, "submitRequest");
+    CompletableFuture<BulkActionResponse> bulk = actions.performBulkAction(requests(names), headers(), null);
+    assertEquals(BULK_ACTION_PARALLELISM, actions.started.size());
+
+    // Finishing one lets the next one start
+    actions.finish(0);
+    assertEquals(BULK_ACTION_PARALLELISM + 1, actions.started.size());
+
+    while (!bulk.isDone()) {
+      for (Integer index : new ArrayList<>(actions.started.keySet())) {
+        if (!actions.started.get(index).isDone()) {
+          actions.finish(index);
+        }
+      }
+    }
+    assertEquals(BULK_ACTION_PARALLELISM, actions.mostInFlight.get());
+    assertEquals(count, actions.started.size());
+    for (BulkActionResult result : bulk.join().getResults()) {
+      assertEquals(BulkActionResult.Status.OK, result.getStatus());
+    }
+  }
+
+  private static List<ActionRequest> requests(String... names) {
+    List<ActionRequest> requests = new ArrayList<>();
+    for (int i = 0; i < names.length; i++) {
+      requests.add(new ActionRequest().withActionName(names[i]).withActionMetadata(String.valueOf(i)));
+    }
+    return requests;
+  }
+
+  private static Map<String, String> headers() {
+    Map<String, String> headers = new HashMap<>();
+    headers.put("x-okapi-tenant", "diku");
+    headers.put("x-okapi-token", "token");
+    return headers;
+  }
+
+  // Actions that wait until the test finishes them, keyed by their
+  // position in the batch, and an RA that's always told straight away
+  private static class StubActions extends ActionAPI {
+    private final Map<Integer, CompletableFuture<BLDSSActionResponse>> started = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger mostInFlight = new AtomicInteger();
+    private final AtomicInteger notified = new AtomicInteger();
+
+    @Override
+    public CompletableFuture<BLDSSActionResponse> performOrderAction(String payload, Map<String, String> headers, BLDSSSettings settings) {
+      return start(payload);
+    }
+
+    @Override
+    public CompletableFuture<BLDSSActionResponse> performCancelAction(String payload, Map<String, String> headers, BLDSSSettings settings) {
+      return start(payload);
+    }
+
+    @Override
+    public CompletableFuture<Void> notifyRequestingAgency(BLDSSActionResponse response, Map<String, String> requestHeaders) {
+      notified.incrementAndGet();
+      return CompletableFuture.completedFuture(null);
+    }
+
+    private CompletableFuture<BLDSSActionResponse> start(String payload) {
+      mostInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      CompletableFuture<BLDSSActionResponse> future = new CompletableFuture<>();
+      started.put(Integer.valueOf(payload), future);
+      return future;
+    }
+
+    private ActionResponse finish(int index) {
+      ActionResponse response = new ActionResponse();
+      inFlight.decrementAndGet();
+      started.get(index).complete(new BLDSSActionResponse("<apiResponse/>", response, null));
+      return response;
+    }
+
+    private void fail(int index, Throwable t) {
+      inFlight.decrementAndGet();
+      started.get(index).completeExceptionally(t);
+    }
+  }
+}
@@ -0,0 +1,195 @@
+package org.folio.service.configuration;
+
+import org.folio.rest.jaxrs.model.Config;
+import org.folio.rest.jaxrs.model.Configs;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConfigurationCacheTest {
+
+  private final AtomicInteger loads = new AtomicInteger();
+  private final List<CompletableFuture<Configs>> pending = Collections.synchronizedList(new ArrayList<>());
+
+  // Each load waits until the test completes it
+  private final Supplier<CompletableFuture<Configs>> slowLoader = () -> {
+    loads.incrementAndGet();
+    CompletableFuture<Configs> future = new CompletableFuture<>();
+    pending.add(future);
+    return future;
+  };
+
+  @Test
+  public void sharesOneLoadBetweenConcurrentMisses() throws Exception {
+    ConfigurationCache cache = new ConfigurationCache(60000, 60000, 10);
+    ExecutorService callers = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<CompletableFuture<Configs>>> results = new ArrayList<>();
+      for (int i = 0; i < 50; i++) {
+        results.add(callers.submit(() -> cache.get("diku", "ILL", slowLoader)));
+      }
+      List<CompletableFuture<Configs>> futures = new ArrayList<>();
+      for (Future<CompletableFuture<Configs>> result : results) {
+        futures.add(result.get());
+      }
+      assertEquals(1, loads.get());
+
+      Configs configs = configs("loaded");
+      pending.get(0).complete(configs);
+      for (CompletableFuture<Configs> future : futures) {
+        assertSame(configs, future.join());
+      }
+      assertSame(configs, cache.get("diku", "ILL", slowLoader).join());
+      assertEquals(1, loads.get());
+    } finally {
+      callers.shutdownNow();
+    }
+  }
+
+  @Test
+  public void reloadsOnceAnEntryExpires() {
+    ConfigurationCache cache = new ConfigurationCache(100, 60000, 10);
+    assertEquals("first", value(cache.get("diku", "ILL", loader("first")).join()));
+    assertEquals("first", value(cache.get("diku", "ILL", loader("second")).join()));
+
+    await().atMost(2, TimeUnit.SECONDS).until(() -> "second".equals(value(cache.get("diku", "ILL", loader("second")).join())));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void servesTheOldEntryWhileASingleRefreshReplacesIt() {
+    ConfigurationCache cache = new ConfigurationCache(60000, 50, 10);
+    cache.get("diku", "ILL", loader("first")).join();
+    await().pollDelay(60, TimeUnit.MILLISECONDS).atMost(1, TimeUnit.SECONDS).until(() -> true);
+
+    // Due a refresh, but still served while it runs
+    assertEquals("first", value(cache.get("diku", "ILL", slowLoader).join()));
+    assertEquals("first", value(cache.get("diku", "ILL", slowLoader).join()));
+    assertEquals(2, loads.get());
+
+    pending.get(0).complete(configs("refreshed"));
+    assertEquals("refreshed", value(cache.get("diku", "ILL", slowLoader).join()));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void keepsServingTheOldEntryWhenARefreshFails() {
+    ConfigurationCache cache = new ConfigurationCache(60000, 50, 10);
+    cache.get("diku", "ILL", loader("first")).join();
+    await().pollDelay(60, TimeUnit.MILLISECONDS).atMost(1, TimeUnit.SECONDS).until(() -> true);
+
+    assertEquals("first", value(cache.get("diku", "ILL", failingLoader()).join()));
+    assertEquals("first", value(cache.get("diku", "ILL", loader("second")).join()));
+    // The failed refresh let another one go ahead
+    assertEquals("second", value(cache.get("diku", "ILL", loader("third")).join()));
+  }
+
+  @Test
+  public void doesNotCacheFailures() {
+    ConfigurationCache cache = new ConfigurationCache(60000, 60000, 10);
+    try {
+      cache.get("diku", "ILL", failingLoader()).join();
+      fail("Expected the load to fail");
+    } catch (CompletionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    assertEquals(0, cache.size());
+    assertEquals("loaded", value(cache.get("diku", "ILL", loader("loaded")).join()));
+  }
+
+  @Test
+  public void evictsTheLeastRecentlyUsedEntry() {
+    ConfigurationCache cache = new ConfigurationCache(60000, 60000, 3);
+    cache.get("a", "ILL", loader("a")).join();
+    cache.get("b", "ILL", loader("b")).join();
+    cache.get("c", "ILL", loader("c")).join();
+    // a is now more recently used than b
+    cache.get("a", "ILL", loader("a")).join();
+
+    cache.get("d", "ILL", loader("d")).join();
+    assertEquals(3, cache.size());
+    assertEquals(4, loads.get());
+
+    cache.get("a", "ILL", loader("a")).join();
+    cache.get("c", "ILL", loader("c")).join();
+    cache.get("d", "ILL", loader("d")).join();
+    assertEquals(4, loads.get());
+
+    cache.get("b", "ILL", loader("b")).join();
+    assertEquals(5, loads.get());
+    assertEquals(3, cache.size());
+  }
+
+  @Test
+  public void doesNotEvictLoadsStillInFlight() {
+    ConfigurationCache cache = new ConfigurationCache(60000, 60000, 1);
+    CompletableFuture<Configs> first = cache.get("a", "ILL", slowLoader);
+    CompletableFuture<Configs> second = cache.get("b", "ILL", slowLoader);
+    assertEquals(2, cache.size());
+
+    pending.get(0).complete(configs("a"));
+    pending.get(1).complete(configs("b"));
+    assertEquals("a", value(first.join()));
+    assertEquals("b", value(second.join()));
+
+    // Now they've loaded there's something to evict
+    cache.get("c", "ILL", loader("c")).join();
+    assertEquals(1, cache.size());
+    assertFalse(cache.get("c", "ILL", failingLoader()).isCompletedExceptionally());
+  }
+
+  @Test
+  public void forgetsATenantsEntries() {
+    ConfigurationCache cache = new ConfigurationCache(60000, 60000, 10);
+    cache.get("diku", "ILL", loader("diku")).join();
+    cache.get("diku", "OTHER", loader("diku")).join();
+    cache.get("dikuu", "ILL", loader("dikuu")).join();
+
+    cache.invalidate("diku");
+    assertEquals(1, cache.size());
+    assertEquals("dikuu", value(cache.get("dikuu", "ILL", loader("reloaded")).join()));
+  }
+
+  private Supplier<CompletableFuture<Configs>> loader(String value) {
+    return () -> {
+      loads.incrementAndGet();
+      return CompletableFuture.completedFuture(configs(value));
+    };
+  }
+
+  private Supplier<CompletableFuture<Configs>> failingLoader() {
+    return () -> {
+      loads.incrementAndGet();
+      CompletableFuture<Configs> future = new CompletableFuture<>();
+      future.completeExceptionally(new IllegalStateException("mod-configuration is unavailable"));
+      return future;
+    };
+  }
+
+  private static Configs configs(String value) {
+    Configs configs = new Configs();
+    configs.getConfigs().add(new Config().withValue(value));
+    return configs;
+  }
+
+  private static String value(Configs configs) {
+    return configs.getConfigs().get(0).getValue();
+  }
+}
@@ -0,0 +1,169 @@
+package org.folio.service.getter;
+
+import org.folio.exception.EndpointUnavailableException;
+import org.folio.http.Deadline;
+import org.folio.rest.jaxrs.model.GetterResponse;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReferenceDataCacheTest {
+
+  // Stands in for ConnectorGetter, each fetch waits until the test completes it
+  private final List<CompletableFuture<GetterResponse>> fetches = Collections.synchronizedList(new ArrayList<>());
+  private final List<Map<String, String>> fetchedWith = Collections.synchronizedList(new ArrayList<>());
+  private final BiFunction<String, Map<String, String>, CompletableFuture<GetterResponse>> fetcher = (toGet, headers) -> {
+    fetchedWith.add(headers);
+    CompletableFuture<GetterResponse> future = new CompletableFuture<>();
+    fetches.add(future);
+    return future;
+  };
+
+  @Test
+  public void sharesOneFetchBetweenConcurrentMisses() {
+    ReferenceDataCache cache = new ReferenceDataCache(fetcher, toGet -> 60000, 0);
+    CompletableFuture<GetterResponse> first = cache.get("diku", "services", headers());
+    CompletableFuture<GetterResponse> second = cache.get("diku", "services", headers());
+    assertEquals(1, fetches.size());
+
+    GetterResponse response = response("services");
+    fetches.get(0).complete(response);
+    assertSame(response, first.join());
+    assertSame(response, second.join());
+    assertSame(response, cache.get("diku", "services", headers()).join());
+    assertEquals(1, fetches.size());
+  }
+
+  @Test
+  public void servesTheExpiredEntryWhenBLDSSIsUnavailable() {
+    ReferenceDataCache cache = new ReferenceDataCache(fetcher, toGet -> 50, 0);
+    GetterResponse expired = loaded(cache, "services");
+    await().pollDelay(60, TimeUnit.MILLISECONDS).atMost(1, TimeUnit.SECONDS).until(() -> true);
+
+    CompletableFuture<GetterResponse> result = cache.get("diku", "services", headers());
+    assertEquals(2, fetches.size());
+    fetches.get(1).completeExceptionally(new EndpointUnavailableException("BLDSS circuit is open"));
+    assertSame(expired, result.join());
+
+    // The expired entry was put back, so the next request tries again
+    CompletableFuture<GetterResponse> retried = cache.get("diku", "services", headers());
+    assertEquals(3, fetches.size());
+    GetterResponse fresh = response("fresh");
+    fetches.get(2).complete(fresh);
+    assertSame(fresh, retried.join());
+  }
+
+  @Test
+  public void doesNotCacheOtherFailures() {
+    ReferenceDataCache cache = new ReferenceDataCache(fetcher, toGet -> 50, 0);
+    loaded(cache, "services");
+    await().pollDelay(60, TimeUnit.MILLISECONDS).atMost(1, TimeUnit.SECONDS).until(() -> true);
+
+    CompletableFuture<GetterResponse> result = cache.get("diku", "services", headers());
+    fetches.get(1).completeExceptionally(new IllegalStateException("BLDSS answered 500"));
+    try {
+      result.join();
+      fail("Expected the fetch to fail");
+    } catch (CompletionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+
+    cache.get("diku", "services", headers());
+    assertEquals(3, fetches.size());
+  }
+
+  @Test
+  public void refreshesADueEntryOnceWhileServingIt() {
+    ReferenceDataCache cache = new ReferenceDataCache(fetcher, toGet -> 60000, 50);
+    GetterResponse old = loaded(cache, "services");
+    await().pollDelay(60, TimeUnit.MILLISECONDS).atMost(1, TimeUnit.SECONDS).until(() -> true);
+
+    assertSame(old, cache.get("diku", "services", headers()).join());
+    assertSame(old, cache.get("diku", "services", headers()).join());
+    assertEquals(2, fetches.size());
+
+    GetterResponse fresh = response("fresh");
+    fetches.get(1).complete(fresh);
+    assertSame(fresh, cache.get("diku", "services", headers()).join());
+    assertEquals(2, fetches.size());
+  }
+
+  @Test
+  public void letsAnotherRequestRefreshWhenARefreshFails() {
+    ReferenceDataCache cache = new ReferenceDataCache(fetcher, toGet -> 60000, 50);
+    GetterResponse old = loaded(cache, "services");
+    await().pollDelay(60, TimeUnit.MILLISECONDS).atMost(1, TimeUnit.SECONDS).until(() -> true);
+
+    assertSame(old, cache.get("diku", "services", headers()).join());
+    fetches.get(1).completeExceptionally(new IllegalStateException("BLDSS answered 500"));
+    assertEquals(2, fetches.size());
+
+    assertSame(old, cache.get("diku", "services", headers()).join());
+    assertEquals(3, fetches.size());
+  }
+
+  @Test
+  public void fetchesWithoutTheCallersDeadline() {
+    ReferenceDataCache cache = new ReferenceDataCache(fetcher, toGet -> 60000, 0);
+    Map<String, String> headers = headers();
+    Deadline.start(headers, 1000);
+    cache.get("diku", "services", headers);
+
+    assertNull(Deadline.from(fetchedWith.get(0)));
+    assertEquals("diku", fetchedWith.get(0).get("x-okapi-tenant"));
+  }
+
+  @Test
+  public void forgetsATenantsEntries() {
+    ReferenceDataCache cache = new ReferenceDataCache(fetcher, toGet -> 60000, 0);
+    loaded(cache, "services");
+    cache.get("diku", "formats", headers());
+    fetches.get(1).complete(response("formats"));
+    cache.get("dikuu", "services", headers());
+    fetches.get(2).complete(response("dikuu"));
+
+    cache.invalidate("diku");
+    cache.get("diku", "services", headers());
+    cache.get("diku", "formats", headers());
+    assertEquals(5, fetches.size());
+    assertFalse(fetches.get(3).isDone());
+
+    assertEquals("dikuu", cache.get("dikuu", "services", headers()).join().getResult());
+    assertEquals(5, fetches.size());
+  }
+
+  private GetterResponse loaded(ReferenceDataCache cache, String result) {
+    CompletableFuture<GetterResponse> future = cache.get("diku", "services", headers());
+    GetterResponse response = response(result);
+    fetches.get(fetches.size() - 1).complete(response);
+    assertSame(response, future.join());
+    return response;
+  }
+
+  private static GetterResponse response(String result) {
+    return new GetterResponse().withResult(result);
+  }
+
+  private static Map<String, String> headers() {
+    Map<String, String> headers = new HashMap<>();
+    headers.put("x-okapi-tenant", "diku");
+    headers.put("x-okapi-token", "token");
+    return headers;
+  }
+}
@@ -0,0 +1,123 @@
+package org.folio.service.inbox;
+
+import io.vertx.core.json.JsonObject;
+import org.folio.exception.HttpException;
+import org.folio.http.HttpClientRegistry;
+import org.folio.http.OutboundResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SaUpdateInboxTest {
+
+  private static final String UPDATE = "<orderline id=\"00001234-001\">"
+    + "<event time=\"2012-08-07 12:32:31.000 GMT\">"
+    + "<eventType id=\"9\">Order confirmed</eventType>"
+    + "<additionalInfo>Estimated despatch date: 08-08-2012</additionalInfo>"
+    + "</event></orderline>";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private SaUpdateInbox inbox;
+
+  @Before
+  public void setUp() {
+    inbox = new SaUpdateInbox(folder.getRoot().toPath(), 2);
+    inbox.start().join();
+  }
+
+  @After
+  public void tearDown() {
+    inbox.stop();
+  }
+
+  @Test
+  public void journalsAnUpdateWithoutTheToken() throws IOException {
+    inbox.accept(UPDATE, headers()).join();
+
+    List<String> lines = journalLines();
+    assertEquals(1, lines.size());
+    assertFalse(lines.get(0).contains("secret-token"));
+    JsonObject entry = new JsonObject(lines.get(0)).getJsonObject("entry");
+    assertEquals(UPDATE, entry.getString("body"));
+    assertEquals("inbox_test", entry.getJsonObject("headers").getString("x-okapi-tenant"));
+    assertEquals("http://okapi:9130", entry.getJsonObject("headers").getString("x-okapi-url"));
+  }
+
+  @Test
+  public void turnsDownAnUpdateThatIsNotXml() throws IOException {
+    assertBadRequest("this is not an orderline update");
+  }
+
+  @Test
+  public void turnsDownAnUpdateWithoutAnOrderline() throws IOException {
+    assertBadRequest("<orderlines/>");
+  }
+
+  @Test
+  public void turnsDownAnUpdateWithoutAnEvent() throws IOException {
+    assertBadRequest("<orderline id=\"00001234-001\"/>");
+  }
+
+  @Test
+  public void forwardsAnUpdateWithoutEverOpeningTheJournal() {
+    Path dir = folder.getRoot().toPath().resolve("never-started");
+    SaUpdateInbox sync = new SaUpdateInbox(dir, 2);
+    List<String> sent = new ArrayList<>();
+    HttpClientRegistry.use((request, tenant) -> {
+      sent.add(request.getUri().toString());
+      return CompletableFuture.completedFuture(new OutboundResponse(200, new HashMap<>(), "{}".getBytes()));
+    });
+    try {
+      assertEquals(200, sync.forward(UPDATE, headers()).join().statusCode());
+      assertEquals(1, sent.size());
+      assertTrue(sent.get(0).startsWith("http://okapi:9130/"));
+      assertFalse(Files.exists(dir));
+    } finally {
+      sync.stop();
+    }
+  }
+
+  private void assertBadRequest(String update) throws IOException {
+    try {
+      inbox.accept(update, headers()).join();
+      fail("Expected " + update + " to be turned down");
+    } catch (CompletionException e) {
+      assertTrue(e.getCause() instanceof HttpException);
+      assertEquals(400, ((HttpException) e.getCause()).getCode());
+    }
+    assertTrue(journalLines().isEmpty());
+  }
+
+  private List<String> journalLines() throws IOException {
+    Path journal = folder.getRoot().toPath().resolve("sa-update-inbox.journal");
+    return Files.readAllLines(journal);
+  }
+
+  private static Map<String, String> headers() {
+    Map<String, String> headers = new HashMap<>();
+    headers.put("x-okapi-tenant", "inbox_test");
+    headers.put("x-okapi-token", "secret-token");
+    headers.put("x-okapi-url", "http://okapi:9130");
+    headers.put("content-type", "application/xml");
+    return headers;
+  }
+}
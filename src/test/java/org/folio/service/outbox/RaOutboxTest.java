@@ -0,0 +1,335 @@
+package org.folio.service.outbox;
+
+import io.vertx.core.Vertx;
+import org.folio.http.HttpClientRegistry;
+import org.folio.http.OutboundRequest;
+import org.folio.http.OutboundResponse;
+import org.folio.http.OutboundTransport;
+import org.folio.http.TenantTokens;
+import org.folio.rest.jaxrs.model.ISO18626.SupplyingAgencyMessage;
+import org.folio.rest.jaxrs.model.SupplyingAgencyMessageHeader;
+import org.folio.rest.jaxrs.model.SupplyingAgencyMessageInfo;
+import org.folio.util.JsonCodecs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RaOutboxTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Vertx vertx;
+  private FakeRa ra;
+  private final List<RaOutbox> outboxes = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+    ra = new FakeRa();
+    HttpClientRegistry.use(ra);
+  }
+
+  @After
+  public void tearDown() {
+    outboxes.forEach(RaOutbox::stop);
+    ra.shutdown();
+    vertx.close();
+  }
+
+  @Test
+  public void deliversEachRequestsMessagesInOrder() {
+    ra.respondWith(sent -> 200);
+    RaOutbox outbox = start(4, 3, 10);
+    Map<String, String> headers = headers("outbox_order", "token");
+    for (int i = 0; i < 10; i++) {
+      for (String request : List.of("a", "b", "c")) {
+        outbox.enqueue(message(request, i), headers).join();
+      }
+    }
+
+    await().atMost(10, TimeUnit.SECONDS).until(() -> ra.sent().size() == 30);
+    for (String request : List.of("a", "b", "c")) {
+      List<Integer> order = new ArrayList<>();
+      for (Sent sent : ra.sent()) {
+        if (sent.request.equals(request)) {
+          order.add(sent.sequence);
+        }
+      }
+      assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), order);
+    }
+    assertEquals(1, ra.maxInFlightPerRequest());
+    assertTrue(ra.maxInFlight() <= 4);
+    await().atMost(5, TimeUnit.SECONDS).until(() -> outbox.getPending() == 0);
+  }
+
+  @Test
+  public void retriesWithBackoffWithoutLettingLaterMessagesOvertake() {
+    AtomicInteger failures = new AtomicInteger(2);
+    ra.respondWith(sent -> sent.sequence == 0 && failures.getAndDecrement() > 0 ? 503 : 200);
+    RaOutbox outbox = start(4, 5, 100);
+    Map<String, String> headers = headers("outbox_retry", "token");
+    outbox.enqueue(message("a", 0), headers).join();
+    outbox.enqueue(message("a", 1), headers).join();
+
+    await().atMost(10, TimeUnit.SECONDS).until(() -> ra.sent().size() == 4);
+    List<Sent> sent = ra.sent();
+    assertEquals(List.of(0, 0, 0, 1), sequences(sent));
+    // Backoff doubles from 100ms, with up to half of it taken off at random
+    assertTrue(sent.get(1).at - sent.get(0).at >= 50);
+    assertTrue(sent.get(2).at - sent.get(1).at >= 100);
+    await().atMost(5, TimeUnit.SECONDS).until(() -> outbox.getPending() == 0);
+  }
+
+  @Test
+  public void deadLettersAMessageThatRunsOutOfAttempts() throws IOException {
+    ra.respondWith(sent -> sent.sequence == 0 ? 500 : 200);
+    RaOutbox outbox = start(4, 3, 10);
+    Map<String, String> headers = headers("outbox_attempts", "token");
+    outbox.enqueue(message("a", 0), headers).join();
+    outbox.enqueue(message("a", 1), headers).join();
+
+    // The next message goes once the first is given up on
+    await().atMost(10, TimeUnit.SECONDS).until(() -> ra.sent().size() == 4);
+    assertEquals(List.of(0, 0, 0, 1), sequences(ra.sent()));
+    await().atMost(5, TimeUnit.SECONDS).until(() -> deadLetters().size() == 1);
+    assertTrue(deadLetters().get(0).contains("RA responded 500"));
+  }
+
+  @Test
+  public void deadLettersAMessageTheRaRejects() throws IOException {
+    ra.respondWith(sent -> sent.sequence == 0 ? 422 : 200);
+    RaOutbox outbox = start(4, 5, 10);
+    Map<String, String> headers = headers("outbox_rejected", "token");
+    outbox.enqueue(message("a", 0), headers).join();
+    outbox.enqueue(message("a", 1), headers).join();
+
+    await().atMost(10, TimeUnit.SECONDS).until(() -> ra.sent().size() == 2);
+    assertEquals(List.of(0, 1), sequences(ra.sent()));
+    await().atMost(5, TimeUnit.SECONDS).until(() -> deadLetters().size() == 1);
+  }
+
+  @Test
+  public void sendsEachMessageWithTheTokenOfTheRequestThatQueuedIt() {
+    ra.respondWith(sent -> 200);
+    RaOutbox outbox = start(4, 3, 10);
+    outbox.enqueue(message("a", 0), headers("outbox_own_token", "alice")).join();
+    // Someone else calling us since doesn't change who the message is from
+    TenantTokens.getInstance().remember(headers("outbox_own_token", "bob"));
+    outbox.enqueue(message("b", 0), headers("outbox_own_token", "carol")).join();
+
+    await().atMost(10, TimeUnit.SECONDS).until(() -> outbox.getPending() == 0);
+    Map<String, String> tokens = new HashMap<>();
+    for (Sent sent : ra.sent()) {
+      tokens.put(sent.request, sent.token);
+    }
+    assertEquals("alice", tokens.get("a"));
+    assertEquals("carol", tokens.get("b"));
+  }
+
+  @Test
+  public void deadLettersAMessageWhoseOwnTokenIsTurnedDown() throws IOException {
+    ra.respondWith(sent -> "forbidden".equals(sent.token) ? 403 : 200);
+    RaOutbox outbox = start(4, 5, 10);
+    TenantTokens.getInstance().remember(headers("outbox_forbidden", "allowed"));
+    outbox.enqueue(message("a", 0), headers("outbox_forbidden", "forbidden")).join();
+    outbox.enqueue(message("a", 1), headers("outbox_forbidden", "allowed")).join();
+
+    // Not sent again as someone else
+    await().atMost(10, TimeUnit.SECONDS).until(() -> outbox.getPending() == 0);
+    assertEquals(List.of(0, 1), sequences(ra.sent()));
+    assertEquals("allowed", ra.sent().get(1).token);
+    await().atMost(5, TimeUnit.SECONDS).until(() -> deadLetters().size() == 1);
+    assertTrue(deadLetters().get(0).contains("RA responded 403"));
+  }
+
+  @Test
+  public void replaysUndeliveredMessagesWithoutStoringTheToken() throws IOException {
+    ra.respondWith(sent -> null);
+    RaOutbox outbox = start(4, 5, 10);
+    Map<String, String> headers = headers("outbox_replay", "secret-token");
+    outbox.enqueue(message("a", 0), headers).join();
+    outbox.enqueue(message("a", 1), headers).join();
+    await().atMost(5, TimeUnit.SECONDS).until(() -> ra.sent().size() == 1);
+    outbox.stop();
+    outboxes.remove(outbox);
+
+    String journal = new String(Files.readAllBytes(folder.getRoot().toPath().resolve("ra-outbox.journal")));
+    assertFalse(journal.contains("secret-token"));
+    assertTrue(journal.contains("outbox_replay"));
+
+    // Replayed messages go with the tenant's latest token
+    ra.respondWith(sent -> 200);
+    TenantTokens.getInstance().remember(headers("outbox_replay", "latest-token"));
+    RaOutbox restarted = start(4, 5, 10);
+    await().atMost(10, TimeUnit.SECONDS).until(() -> restarted.getPending() == 0 && ra.sent().size() == 3);
+    List<Sent> sent = ra.sent();
+    assertEquals(List.of(0, 0, 1), sequences(sent));
+    assertEquals("secret-token", sent.get(0).token);
+    assertEquals("latest-token", sent.get(1).token);
+    assertEquals("latest-token", sent.get(2).token);
+  }
+
+  @Test
+  public void holdsReplayedMessagesUntilTheTenantHasAWorkingToken() throws IOException {
+    ra.respondWith(sent -> null);
+    RaOutbox outbox = start(4, 1, 10);
+    Map<String, String> headers = headers("outbox_replay_token", "first-token");
+    outbox.enqueue(message("a", 0), headers).join();
+    outbox.enqueue(message("a", 1), headers).join();
+    outbox.enqueue(message("b", 0), headers).join();
+    await().atMost(5, TimeUnit.SECONDS).until(() -> ra.sent().size() == 2);
+    outbox.stop();
+    outboxes.remove(outbox);
+
+    ra.respondWith(sent -> "expired".equals(sent.token) ? 401 : 200);
+    TenantTokens.getInstance().remember(headers("outbox_replay_token", "expired"));
+    // One attempt, so a 401 counted as one would be dead lettered
+    RaOutbox restarted = start(4, 1, 10);
+
+    // Both requests are held rather than retried
+    await().atMost(10, TimeUnit.SECONDS).until(() -> ra.sent().size() == 4);
+    await().during(300, TimeUnit.MILLISECONDS).atMost(1, TimeUnit.SECONDS).until(() -> ra.sent().size() == 4);
+    assertEquals(3, restarted.getPending());
+
+    TenantTokens.getInstance().remember(headers("outbox_replay_token", "renewed"));
+    await().atMost(10, TimeUnit.SECONDS).until(() -> restarted.getPending() == 0);
+    List<Sent> sent = ra.sent();
+    assertEquals(7, sent.size());
+    for (Sent renewed : sent.subList(4, 7)) {
+      assertEquals("renewed", renewed.token);
+    }
+    assertTrue(deadLetters().isEmpty());
+  }
+
+  private RaOutbox start(int concurrency, int maxAttempts, long backoffInitialMs) {
+    RaOutbox outbox = new RaOutbox(folder.getRoot().toPath(), concurrency, maxAttempts, backoffInitialMs, backoffInitialMs * 8);
+    outboxes.add(outbox);
+    outbox.start(vertx).join();
+    return outbox;
+  }
+
+  private List<String> deadLetters() throws IOException {
+    Path dead = folder.getRoot().toPath().resolve("ra-outbox.dead");
+    return Files.exists(dead) ? Files.readAllLines(dead) : Collections.emptyList();
+  }
+
+  private static Map<String, String> headers(String tenant, String token) {
+    Map<String, String> headers = new HashMap<>();
+    headers.put("x-okapi-tenant", tenant);
+    headers.put("x-okapi-token", token);
+    headers.put("x-okapi-url", "http://okapi:9130");
+    return headers;
+  }
+
+  private static SupplyingAgencyMessage message(String request, int sequence) {
+    return new SupplyingAgencyMessage()
+      .withHeader(new SupplyingAgencyMessageHeader().withSupplyingAgencyRequestId(request))
+      .withMessageInfo(new SupplyingAgencyMessageInfo().withNote(Integer.toString(sequence)));
+  }
+
+  private static List<Integer> sequences(List<Sent> sent) {
+    List<Integer> sequences = new ArrayList<>();
+    for (Sent message : sent) {
+      sequences.add(message.sequence);
+    }
+    return sequences;
+  }
+
+  private static class Sent {
+    private final String request;
+    private final int sequence;
+    private final String token;
+    private final long at = System.currentTimeMillis();
+
+    private Sent(OutboundRequest request) {
+      SupplyingAgencyMessage message = JsonCodecs.SUPPLYING_AGENCY_MESSAGE.decode(new String(request.getBody()));
+      this.request = message.getHeader().getSupplyingAgencyRequestId();
+      this.sequence = Integer.parseInt(message.getMessageInfo().getNote());
+      this.token = request.getHeaders().get("x-okapi-token");
+    }
+  }
+
+  // Answers each message after a few milliseconds with whatever status the
+  // test asks for, or never if that's null
+  private static class FakeRa implements OutboundTransport {
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+    private final List<Sent> sent = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, AtomicInteger> inFlightPerRequest = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlightPerRequest = new AtomicInteger();
+    private final Random random = new Random(18626);
+    private volatile Function<Sent, Integer> responder;
+
+    void respondWith(Function<Sent, Integer> responder) {
+      this.responder = responder;
+    }
+
+    @Override
+    public CompletableFuture<OutboundResponse> send(OutboundRequest request, String tenant) {
+      Sent message = new Sent(request);
+      sent.add(message);
+      Integer status = responder.apply(message);
+      CompletableFuture<OutboundResponse> response = new CompletableFuture<>();
+      if (status == null) {
+        return response;
+      }
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      AtomicInteger forRequest = inFlightPerRequest.computeIfAbsent(message.request, k -> new AtomicInteger());
+      maxInFlightPerRequest.accumulateAndGet(forRequest.incrementAndGet(), Math::max);
+      int delay;
+      synchronized (random) {
+        delay = 1 + random.nextInt(10);
+      }
+      scheduler.schedule(() -> {
+        forRequest.decrementAndGet();
+        inFlight.decrementAndGet();
+        response.complete(new OutboundResponse(status, new HashMap<>(), "{}".getBytes()));
+      }, delay, TimeUnit.MILLISECONDS);
+      return response;
+    }
+
+    List<Sent> sent() {
+      synchronized (sent) {
+        return new ArrayList<>(sent);
+      }
+    }
+
+    int maxInFlight() {
+      return maxInFlight.get();
+    }
+
+    int maxInFlightPerRequest() {
+      return maxInFlightPerRequest.get();
+    }
+
+    void shutdown() {
+      scheduler.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package org.folio.service.search;
+
+import org.folio.rest.jaxrs.model.BibliographicInfo;
+import org.folio.rest.jaxrs.model.BibliographicItemId;
+import org.folio.rest.jaxrs.model.PublicationInfo;
+import org.folio.rest.jaxrs.model.Result;
+import org.folio.rest.jaxrs.model.SearchResponse;
+import org.folio.rest.jaxrs.model.SearchResultMetadata;
+import org.folio.util.ISO18626Util;
+import org.folio.util.XMLUtil;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+/*
+  How SearchAPI read search responses before SearchResultReader: parse
+  the whole response into a DOM and look each field up with
+  getElementsByTagName. Kept as the reference SearchResultReader is
+  checked and benchmarked against.
+*/
+final class LegacySearchResponseParser {
+
+  private LegacySearchResponseParser() {
+  }
+
+  static SearchResponse prepareResponse(String response) {
+    Document doc = XMLUtil.parse(response);
+    SearchResponse searchResponse = new SearchResponse();
+    NodeList results = doc.getElementsByTagName("record");
+    ArrayList<Result> returnResults = new ArrayList<>();
+    for (int temp = 0; temp < results.getLength(); temp++) {
+      Node node = results.item(temp);
+      if (node.getNodeType() == Node.ELEMENT_NODE) {
+        Result result = new Result();
+        Element element = (Element) node;
+        Element metadata = (Element) element.getElementsByTagName("metadata").item(0);
+        Element titleLevel = (Element) metadata.getElementsByTagName("titleLevel").item(0);
+        Element itemLevel = (Element) metadata.getElementsByTagName("itemLevel").item(0);
+        Element itemOfInterestLevel = (Element) metadata.getElementsByTagName("itemOfInterestLevel").item(0);
+
+        BibliographicInfo bibinfo = new BibliographicInfo();
+        bibinfo.setSupplierUniqueRecordId(getDescendant(element, "uin", 0));
+
+        ArrayList<Element> titles = new ArrayList<>();
+        titles.add(itemOfInterestLevel);
+        titles.add(titleLevel);
+        bibinfo.setTitle(extractMetadata(titles, "title"));
+
+        ArrayList<Element> authors = new ArrayList<>();
+        authors.add(itemOfInterestLevel);
+        authors.add(titleLevel);
+        bibinfo.setAuthor(extractMetadata(authors, "author"));
+
+        bibinfo.setSeriesTitle(getDescendant(itemLevel, "title", 0));
+        bibinfo.setEdition(getDescendant(itemLevel, "edition", 0));
+        bibinfo.setTitleOfComponent(getDescendant(itemOfInterestLevel, "title", 0));
+        bibinfo.setAuthorOfComponent(getDescendant(itemOfInterestLevel, "author", 0));
+        bibinfo.setVolume(getDescendant(itemLevel, "volume", 0));
+        bibinfo.setIssue(getDescendant(itemLevel, "issue", 0));
+
+        ArrayList<BibliographicItemId> identifiers = getIdentifiers(titleLevel);
+        if (identifiers.size() > 0) {
+          bibinfo.setBibliographicItemId(identifiers);
+        }
+
+        PublicationInfo pubInfo = new PublicationInfo();
+        pubInfo.setPublisher(getDescendant(titleLevel, "publisher", 0));
+        ISO18626Util isoUtil = new ISO18626Util();
+        String blType = getDescendant(element, "type", 0);
+        String isoType = isoUtil.bldssToIsoType(blType);
+        pubInfo.setPublicationType(PublicationInfo.PublicationType.fromValue(isoType));
+
+        SearchResultMetadata resultMetadata = new SearchResultMetadata();
+        resultMetadata.setBibliographicInfo(bibinfo);
+        resultMetadata.setPublicationInfo(pubInfo);
+
+        result.setMetadata(resultMetadata);
+
+        result.setAbstract(getDescendant(element, "abstractText", 0));
+
+        returnResults.add(result);
+
+      }
+    }
+    NodeList totalRecordsNodes = doc.getElementsByTagName("numberOfRecords");
+    Node totalRecords = totalRecordsNodes.item(0);
+    searchResponse.setTotalRecords(Integer.parseInt(totalRecords.getTextContent()));
+
+    searchResponse.setResults(returnResults);
+
+    return searchResponse;
+  }
+
+  private static String extractMetadata(ArrayList<Element> sources, String name) {
+    String toReturn = null;
+    for(Element source: sources) {
+      toReturn = getDescendant(source, name, 0);
+      if (toReturn != null) {
+        break;
+      }
+    }
+    return toReturn;
+  }
+
+  private static String getDescendant(Node node, String target, Integer idx) {
+    Element element = (Element) node;
+    NodeList nodeList = element.getElementsByTagName(target);
+    if (idx < 0 || nodeList.getLength() < idx + 1) {
+      return null;
+    }
+    return nodeList.item(idx).getTextContent();
+  }
+
+  private static ArrayList<BibliographicItemId> getIdentifiers(Element titleLevel) {
+    String delimiterRegex = "\\|";
+    ArrayList<String> types = new ArrayList<>();
+    ArrayList<BibliographicItemId> toReturn = new ArrayList<>();
+    types.add("isbn");
+    types.add("issn");
+    types.add("ismn");
+    for (String type : types) {
+      String value = getDescendant(titleLevel, type, 0);
+      if (value != null && value.length() > 0) {
+        String[] valueSplut = value.split(delimiterRegex);
+        for (String splut: valueSplut) {
+          BibliographicItemId bibliographicItemId = new BibliographicItemId();
+          bibliographicItemId.setBibliographicItemIdentifierCode(
+            BibliographicItemId.BibliographicItemIdentifierCode.fromValue(type.toUpperCase(Locale.ROOT))
+          );
+          bibliographicItemId.setBibliographicItemIdentifier(splut);
+          toReturn.add(bibliographicItemId);
+        }
+      }
+    }
+    return toReturn;
+  }
+}
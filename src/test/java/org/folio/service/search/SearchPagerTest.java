@@ -0,0 +1,113 @@
+package org.folio.service.search;
+
+import org.folio.rest.jaxrs.model.Result;
+import org.folio.rest.jaxrs.model.SearchResponse;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SearchPagerTest {
+
+  private static final int TOTAL = 95;
+
+  private final List<Integer> fetched = Collections.synchronizedList(new ArrayList<>());
+  // Chunk starts BLDSS returns fewer records for than were asked for
+  private final Set<Integer> shortChunks = new HashSet<>();
+
+  @Test
+  public void slicesAWindowOutOfOneChunk() {
+    SearchResponse response = pager(false).page(12, 5).join();
+    assertEquals(Arrays.asList(12, 13, 14, 15, 16), positions(response));
+    assertEquals(Collections.singletonList(10), fetched);
+    assertEquals(TOTAL, response.getTotalRecords().intValue());
+    assertEquals(12, response.getOffset().intValue());
+    assertEquals(5, response.getLimit().intValue());
+  }
+
+  @Test
+  public void stitchesAWindowSpanningChunks() {
+    SearchResponse response = pager(false).page(17, 25).join();
+    assertEquals(range(17, 42), positions(response));
+    assertEquals(Arrays.asList(10, 20, 30, 40), fetched);
+  }
+
+  @Test
+  public void stopsAtTheLastRecord() {
+    SearchResponse response = pager(false).page(88, 20).join();
+    assertEquals(range(88, 95), positions(response));
+    assertEquals(Arrays.asList(80, 90), fetched);
+  }
+
+  @Test
+  public void keepsRecordsInPlaceWhenAChunkIsShort() {
+    shortChunks.add(20);
+    SearchResponse response = pager(false).page(15, 30).join();
+    // The chunk at 20 only has 20..24, what follows must still be 30 onwards
+    List<Integer> expected = new ArrayList<>(range(15, 25));
+    expected.addAll(range(30, 45));
+    assertEquals(expected, positions(response));
+  }
+
+  @Test
+  public void keepsRecordsInPlaceWhenTheFirstChunkIsShort() {
+    shortChunks.add(10);
+    // The chunk at 10 only has 10..14
+    List<Integer> expected = new ArrayList<>(range(12, 15));
+    expected.addAll(range(20, 25));
+    assertEquals(expected, positions(pager(false).page(12, 13).join()));
+    assertEquals(Collections.emptyList(), positions(pager(false).page(16, 2).join()));
+  }
+
+  @Test
+  public void prefetchesTheNextChunk() {
+    pager(true).page(0, 8).join();
+    assertEquals(Arrays.asList(0, 10), fetched);
+  }
+
+  @Test
+  public void doesNotPrefetchPastTheEnd() {
+    pager(true).page(85, 10).join();
+    assertEquals(Arrays.asList(80, 90), fetched);
+  }
+
+  private SearchPager pager(boolean prefetch) {
+    return new SearchPager(10, 2, prefetch, (start, size) -> {
+      fetched.add(start);
+      int end = Math.min(TOTAL, start + (shortChunks.contains(start) ? size / 2 : size));
+      SearchResponse response = new SearchResponse();
+      response.setTotalRecords(TOTAL);
+      response.setOffset(start);
+      response.setLimit(size);
+      List<Result> results = new ArrayList<>();
+      for (int position = start; position < end; position++) {
+        results.add(new Result().withAbstract(Integer.toString(position)));
+      }
+      response.setResults(results);
+      return CompletableFuture.supplyAsync(() -> response);
+    });
+  }
+
+  private static List<Integer> positions(SearchResponse response) {
+    return response.getResults().stream()
+      .map(result -> Integer.valueOf(result.getAbstract()))
+      .collect(Collectors.toList());
+  }
+
+  private static List<Integer> range(int from, int to) {
+    List<Integer> range = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      range.add(i);
+    }
+    return range;
+  }
+}
@@ -0,0 +1,114 @@
+package org.folio.service.search;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class SearchPlanCacheTest {
+
+  private final AtomicInteger compiled = new AtomicInteger();
+  private final Function<String, SearchPlan> compiler = cql -> {
+    compiled.incrementAndGet();
+    return new SearchPlan(Collections.singletonList("SearchRequest.searchTerm=" + cql));
+  };
+
+  @Test
+  public void compilesEachQueryOnce() {
+    SearchPlanCache cache = new SearchPlanCache(10);
+    SearchPlan plan = cache.get("title=a", compiler);
+    assertSame(plan, cache.get("title=a", compiler));
+    assertEquals(1, compiled.get());
+    assertEquals("SearchRequest.searchTerm=title=a", plan.getCacheKey());
+  }
+
+  @Test
+  public void evictsTheLeastRecentlyUsedPlan() {
+    SearchPlanCache cache = new SearchPlanCache(3);
+    SearchPlan a = cache.get("a", compiler);
+    cache.get("b", compiler);
+    cache.get("c", compiler);
+    // a is now more recently used than b
+    assertSame(a, cache.get("a", compiler));
+
+    cache.get("d", compiler);
+    assertEquals(3, cache.size());
+    assertEquals(4, compiled.get());
+
+    cache.get("a", compiler);
+    cache.get("c", compiler);
+    cache.get("d", compiler);
+    assertEquals(4, compiled.get());
+
+    cache.get("b", compiler);
+    assertEquals(5, compiled.get());
+    assertEquals(3, cache.size());
+  }
+
+  @Test
+  public void keepsFrequentlyUsedPlansUnderChurn() {
+    SearchPlanCache cache = new SearchPlanCache(50);
+    SearchPlan popular = cache.get("popular", compiler);
+    for (int i = 0; i < 1000; i++) {
+      cache.get("once-" + i, compiler);
+      assertSame(popular, cache.get("popular", compiler));
+    }
+    assertEquals(50, cache.size());
+    assertEquals(1001, compiled.get());
+  }
+
+  @Test
+  public void doesNotCacheQueriesThatFailToCompile() {
+    SearchPlanCache cache = new SearchPlanCache(10);
+    for (int i = 0; i < 2; i++) {
+      try {
+        cache.get("bad", cql -> {
+          compiled.incrementAndGet();
+          throw new IllegalArgumentException(cql);
+        });
+        fail("Expected the compiler's exception");
+      } catch (IllegalArgumentException e) {
+        assertEquals("bad", e.getMessage());
+      }
+    }
+    assertEquals(2, compiled.get());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void sharesOnePlanBetweenThreads() throws Exception {
+    SearchPlanCache cache = new SearchPlanCache(100);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<SearchPlan>> plans = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        String cql = "q" + (i % 20);
+        plans.add(executor.submit(() -> cache.get(cql, compiler)));
+      }
+      Set<SearchPlan> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+      Set<String> keys = new HashSet<>();
+      for (Future<SearchPlan> plan : plans) {
+        distinct.add(plan.get());
+        keys.add(plan.get().getCacheKey());
+      }
+      assertEquals(20, keys.size());
+      assertEquals(20, distinct.size());
+      assertEquals(20, cache.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
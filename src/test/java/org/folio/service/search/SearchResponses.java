@@ -0,0 +1,102 @@
+package org.folio.service.search;
+
+import java.util.Random;
+
+/*
+  Builds BLDSS search responses with as many records as needed, each
+  with a random selection of the fields we read
+*/
+final class SearchResponses {
+
+  private static final String[] TYPES = { "article", "book", "journal", "newspaper", "conference", "thesis", "score" };
+  private static final String[] WORDS = {
+    "library", "Société", "history", "of", "the", "&", "<science>", "日本語", "📚", "proceedings", "\"quoted\"", "journal"
+  };
+
+  private SearchResponses() {
+  }
+
+  static String page(Random random, int records, int totalRecords) {
+    StringBuilder xml = new StringBuilder(records * 800);
+    xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+      .append("<apiResponse><timestamp>2021-04-01 13:00:00.000 BST</timestamp><status>0</status>")
+      .append("<message>Search results</message><result>")
+      .append("<numberOfRecords>").append(totalRecords).append("</numberOfRecords><records>");
+    for (int i = 0; i < records; i++) {
+      xml.append("<record>");
+      xml.append("<uin>BLL01").append(100000000 + random.nextInt(900000000)).append("</uin>");
+      xml.append("<type>").append(TYPES[random.nextInt(TYPES.length)]).append("</type>");
+      xml.append("<isAvailableImmediateley>").append(random.nextBoolean()).append("</isAvailableImmediateley>");
+      xml.append("<metadata><titleLevel>");
+      field(xml, random, "title");
+      field(xml, random, "author");
+      identifiers(xml, random, "isbn");
+      identifiers(xml, random, "issn");
+      identifiers(xml, random, "ismn");
+      field(xml, random, "publisher");
+      field(xml, random, "shelfmark");
+      xml.append("</titleLevel><itemLevel>");
+      field(xml, random, "year");
+      field(xml, random, "title");
+      field(xml, random, "volume");
+      field(xml, random, "issue");
+      field(xml, random, "edition");
+      xml.append("</itemLevel><itemOfInterestLevel>");
+      field(xml, random, "title");
+      field(xml, random, "author");
+      field(xml, random, "author");
+      field(xml, random, "pages");
+      xml.append("</itemOfInterestLevel></metadata>");
+      field(xml, random, "abstractText");
+      xml.append("</record>");
+    }
+    return xml.append("</records></result></apiResponse>").toString();
+  }
+
+  private static void field(StringBuilder xml, Random random, String name) {
+    if (random.nextInt(3) > 0) {
+      xml.append('<').append(name).append('>');
+      int words = random.nextInt(8);
+      for (int i = 0; i < words; i++) {
+        if (i > 0) {
+          xml.append(' ');
+        }
+        escape(xml, WORDS[random.nextInt(WORDS.length)]);
+      }
+      xml.append("</").append(name).append('>');
+    }
+  }
+
+  private static void identifiers(StringBuilder xml, Random random, String name) {
+    if (random.nextBoolean()) {
+      xml.append('<').append(name).append('>');
+      int count = random.nextInt(3);
+      for (int i = 0; i < count; i++) {
+        if (i > 0) {
+          xml.append('|');
+        }
+        xml.append(1000000000L + random.nextInt(1000000000));
+      }
+      xml.append("</").append(name).append('>');
+    }
+  }
+
+  private static void escape(StringBuilder xml, String text) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '&':
+          xml.append("&amp;");
+          break;
+        case '<':
+          xml.append("&lt;");
+          break;
+        case '>':
+          xml.append("&gt;");
+          break;
+        default:
+          xml.append(c);
+      }
+    }
+  }
+}
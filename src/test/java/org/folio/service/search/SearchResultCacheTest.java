@@ -0,0 +1,153 @@
+package org.folio.service.search;
+
+import org.folio.rest.jaxrs.model.SearchResponse;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SearchResultCacheTest {
+
+  private final AtomicInteger searches = new AtomicInteger();
+
+  @Test
+  public void evictsTheLeastRecentlyUsedResponsesOnceOverTheByteLimit() {
+    // Room for two 100 byte responses keyed k1, k2... (each key counts another 4 bytes)
+    SearchResultCache cache = new SearchResultCache(60000, 250);
+    cache.get("k1", loader(1, 100)).join();
+    cache.get("k2", loader(2, 100)).join();
+    assertEquals(208, cache.bytes());
+    // k1 is now more recently used than k2
+    cache.get("k1", loader(1, 100)).join();
+
+    cache.get("k3", loader(3, 100)).join();
+    assertEquals(2, cache.size());
+    assertEquals(208, cache.bytes());
+    assertNull(cache.getStale("k2"));
+    assertEquals(3, searches.get());
+
+    cache.get("k1", loader(1, 100)).join();
+    cache.get("k3", loader(3, 100)).join();
+    assertEquals(3, searches.get());
+  }
+
+  @Test
+  public void doesNotCacheAResponseBiggerThanTheWholeCache() {
+    SearchResultCache cache = new SearchResultCache(60000, 250);
+    cache.get("k1", loader(1, 100)).join();
+
+    assertEquals(2, (int) cache.get("k2", loader(2, 1000)).join().getTotalRecords());
+    assertEquals(1, cache.size());
+    assertEquals(104, cache.bytes());
+  }
+
+  @Test
+  public void searchesAgainOnceAResponseExpiresButKeepsItForServingStale() {
+    SearchResultCache cache = new SearchResultCache(100, 10000);
+    SearchResponse first = cache.get("k1", loader(1, 100)).join();
+    assertSame(first, cache.get("k1", loader(2, 100)).join());
+
+    await().pollDelay(110, TimeUnit.MILLISECONDS).atMost(1, TimeUnit.SECONDS).until(() -> true);
+    assertSame(first, cache.getStale("k1"));
+
+    // The expired entry is only replaced once the new search succeeds
+    try {
+      cache.get("k1", failingLoader()).join();
+      fail("Expected the search to fail");
+    } catch (CompletionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    assertSame(first, cache.getStale("k1"));
+
+    assertEquals(2, (int) cache.get("k1", loader(2, 100)).join().getTotalRecords());
+    assertEquals(2, (int) cache.getStale("k1").getTotalRecords());
+  }
+
+  @Test
+  public void doesNotCacheFailedSearches() {
+    SearchResultCache cache = new SearchResultCache(60000, 10000);
+    try {
+      cache.get("k1", failingLoader()).join();
+      fail("Expected the search to fail");
+    } catch (CompletionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    assertEquals(0, cache.size());
+    assertNull(cache.getStale("k1"));
+
+    assertEquals(1, (int) cache.get("k1", loader(1, 100)).join().getTotalRecords());
+    assertEquals(2, searches.get());
+  }
+
+  @Test
+  public void sharesOneSearchBetweenConcurrentMisses() throws Exception {
+    SearchResultCache cache = new SearchResultCache(60000, 10000);
+    List<CompletableFuture<SearchResultCache.Loaded>> pending = Collections.synchronizedList(new ArrayList<>());
+    Supplier<CompletableFuture<SearchResultCache.Loaded>> slowLoader = () -> {
+      searches.incrementAndGet();
+      CompletableFuture<SearchResultCache.Loaded> future = new CompletableFuture<>();
+      pending.add(future);
+      return future;
+    };
+    long hits = cache.getHits();
+    long misses = cache.getMisses();
+
+    ExecutorService callers = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<CompletableFuture<SearchResponse>>> results = new ArrayList<>();
+      for (int i = 0; i < 50; i++) {
+        results.add(callers.submit(() -> cache.get("k1", slowLoader)));
+      }
+      List<CompletableFuture<SearchResponse>> futures = new ArrayList<>();
+      for (Future<CompletableFuture<SearchResponse>> result : results) {
+        futures.add(result.get());
+      }
+      assertEquals(1, searches.get());
+      assertEquals(1, cache.getMisses() - misses);
+
+      SearchResponse response = new SearchResponse().withTotalRecords(1);
+      pending.get(0).complete(new SearchResultCache.Loaded(response, 100));
+      for (CompletableFuture<SearchResponse> future : futures) {
+        assertSame(response, future.join());
+      }
+      assertSame(response, cache.get("k1", slowLoader).join());
+      assertEquals(1, searches.get());
+      assertEquals(1, cache.getHits() - hits);
+    } finally {
+      callers.shutdownNow();
+    }
+  }
+
+  private Supplier<CompletableFuture<SearchResultCache.Loaded>> loader(int totalRecords, long bytes) {
+    return () -> {
+      searches.incrementAndGet();
+      SearchResponse response = new SearchResponse().withTotalRecords(totalRecords);
+      return CompletableFuture.completedFuture(new SearchResultCache.Loaded(response, bytes));
+    };
+  }
+
+  private Supplier<CompletableFuture<SearchResultCache.Loaded>> failingLoader() {
+    return () -> {
+      searches.incrementAndGet();
+      CompletableFuture<SearchResultCache.Loaded> future = new CompletableFuture<>();
+      future.completeExceptionally(new IllegalStateException("BLDSS is unavailable"));
+      return future;
+    };
+  }
+}
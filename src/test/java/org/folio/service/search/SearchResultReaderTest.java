@@ -0,0 +1,106 @@
+package org.folio.service.search;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.folio.exception.ConnectorQueryException;
+import org.folio.rest.jaxrs.model.BibliographicInfo;
+import org.folio.rest.jaxrs.model.Result;
+import org.folio.rest.jaxrs.model.SearchResponse;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SearchResultReaderTest {
+
+  private final SearchResultReader reader = new SearchResultReader();
+
+  @Test
+  public void readsTheFixtureAsTheDomParserDid() throws IOException {
+    assertSameAsDom(fixture("search/search-response.xml"));
+  }
+
+  @Test
+  public void readsTheFixtureFields() throws IOException {
+    List<Result> results = new ArrayList<>();
+    assertEquals(1342, reader.read(new StringReader(fixture("search/search-response.xml")), results::add));
+    assertEquals(4, results.size());
+
+    BibliographicInfo book = results.get(0).getMetadata().getBibliographicInfo();
+    assertEquals("BLL01012345678", book.getSupplierUniqueRecordId());
+    assertEquals("Proceedings of the Société d'Histoire & d'Archéologie", book.getTitle());
+    assertEquals(2, book.getBibliographicItemId().size());
+    assertEquals("0123456789", book.getBibliographicItemId().get(1).getBibliographicItemIdentifier());
+
+    BibliographicInfo article = results.get(1).getMetadata().getBibliographicInfo();
+    assertEquals("Interlending in the 21st century", article.getTitle());
+    assertEquals("Smith, A.", article.getAuthor());
+    assertEquals("Special issue: Resource <sharing>", article.getSeriesTitle());
+    assertNull(results.get(1).getAbstract());
+
+    assertEquals("Sonate für Klavier", results.get(2).getMetadata().getBibliographicInfo().getTitle());
+    assertEquals("日本語の要約 📚", results.get(2).getAbstract());
+  }
+
+  @Test
+  public void readsLargePagesAsTheDomParserDid() {
+    Random random = new Random(6);
+    for (int i = 0; i < 20; i++) {
+      assertSameAsDom(SearchResponses.page(random, random.nextInt(200), 10000));
+    }
+  }
+
+  @Test
+  public void readsAResponseWithoutRecords() {
+    assertSameAsDom(SearchResponses.page(new Random(1), 0, 0));
+  }
+
+  @Test
+  public void readsRecordsWithoutSections() {
+    String xml = "<apiResponse><result><numberOfRecords>1</numberOfRecords><records>"
+      + "<record><uin>BLL01</uin><type>book</type><metadata><itemLevel><title>Series</title></itemLevel></metadata></record>"
+      + "</records></result></apiResponse>";
+    List<Result> results = new ArrayList<>();
+    assertEquals(1, reader.read(new StringReader(xml), results::add));
+    BibliographicInfo bibinfo = results.get(0).getMetadata().getBibliographicInfo();
+    assertNull(bibinfo.getTitle());
+    assertEquals("Series", bibinfo.getSeriesTitle());
+  }
+
+  @Test(expected = ConnectorQueryException.class)
+  public void rejectsAResponseWithoutNumberOfRecords() {
+    reader.read(new StringReader("<apiResponse><result><records/></result></apiResponse>"), result -> { });
+  }
+
+  @Test(expected = ConnectorQueryException.class)
+  public void rejectsMalformedXml() {
+    reader.read(new StringReader("<apiResponse><result><numberOfRecords>1</result>"), result -> { });
+  }
+
+  private void assertSameAsDom(String xml) {
+    SearchResponse expected = LegacySearchResponseParser.prepareResponse(xml);
+
+    List<Result> results = new ArrayList<>();
+    int totalRecords = reader.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), results::add);
+
+    assertEquals(expected.getTotalRecords().intValue(), totalRecords);
+    assertEquals(
+      new JsonArray(new ArrayList<>(expected.getResults())).encodePrettily(),
+      new JsonArray(new ArrayList<>(results)).encodePrettily());
+  }
+
+  static String fixture(String name) throws IOException {
+    try (InputStream in = SearchResultReaderTest.class.getClassLoader().getResourceAsStream(name)) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
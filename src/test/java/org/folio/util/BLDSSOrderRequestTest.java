@@ -0,0 +1,100 @@
+package org.folio.util;
+
+import io.vertx.core.json.JsonObject;
+import org.folio.exception.HttpException;
+import org.folio.http.RateLimiter;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BLDSSOrderRequestTest {
+
+  private final BLDSSSettings settings = new BLDSSSettings("order_test", new JSONObject(),
+    new JSONObject().put("libraryPrivilege", false).put("outsideUk", false), RateLimiter.Priority.INTERACTIVE);
+
+  @Test
+  public void buildsAnOrderFromACompleteRequest() throws IOException {
+    String xml = prepare(fixture("json/order-action.json"));
+    assertTrue(xml, xml.contains("<customerReference>abc-123</customerReference>"));
+    assertTrue(xml, xml.contains("<uin>ETOCRN001234567</uin>"));
+    assertTrue(xml, xml.contains("<title>Journal of Interlending</title>"));
+    assertTrue(xml, xml.contains("<volume>12</volume>"));
+    assertTrue(xml, xml.contains("<year>2012</year>"));
+  }
+
+  @Test
+  public void rejectsARequestWithoutSearchResultBibliographicInfo() throws IOException {
+    JsonObject request = new JsonObject(fixture("json/order-action.json"));
+    request.getJsonObject("selectedResult").getJsonObject("metadata").remove("BibliographicInfo");
+    assertBadRequest(request.encode(), "selectedResult.metadata.BibliographicInfo");
+  }
+
+  @Test
+  public void rejectsARequestWithoutSearchResultPublicationInfo() throws IOException {
+    JsonObject request = new JsonObject(fixture("json/order-action.json"));
+    request.getJsonObject("selectedResult").getJsonObject("metadata").putNull("PublicationInfo");
+    assertBadRequest(request.encode(), "selectedResult.metadata.PublicationInfo");
+  }
+
+  @Test
+  public void rejectsARequestWithoutAPublicationType() throws IOException {
+    JsonObject request = new JsonObject(fixture("json/order-action.json"));
+    request.getJsonObject("selectedResult").getJsonObject("metadata").getJsonObject("PublicationInfo")
+      .remove("publicationType");
+    assertBadRequest(request.encode(), "publication type");
+  }
+
+  @Test
+  public void rejectsARequestWithoutSubmissionMetadata() throws IOException {
+    JsonObject request = new JsonObject(fixture("json/order-action.json"));
+    request.remove("submission");
+    assertBadRequest(request.encode(), "submission.submissionMetadata.BibliographicInfo");
+  }
+
+  @Test
+  public void rejectsMalformedInfo() throws IOException {
+    JsonObject request = new JsonObject(fixture("json/order-action.json"));
+    request.getJsonObject("submission").getJsonObject("submissionMetadata").getJsonObject("PublicationInfo")
+      .put("publicationType", "Pamphlet");
+    assertBadRequest(request.encode(), "submission.submissionMetadata.PublicationInfo");
+  }
+
+  @Test
+  public void rejectsARequestThatIsNotJson() {
+    assertBadRequest("{\"localRequestId\": ", "Invalid action request");
+  }
+
+  private String prepare(String payload) {
+    Map<String, String> headers = new HashMap<>();
+    headers.put("x-okapi-tenant", "order_test");
+    headers.put("x-okapi-url", "http://okapi:9130");
+    BLDSSOrderRequest request = new BLDSSOrderRequest("POST", "/api/orders", new HashMap<>(), true);
+    return request.preparePayload(payload, headers, settings);
+  }
+
+  private void assertBadRequest(String payload, String expectedMessage) {
+    try {
+      prepare(payload);
+      fail("Expected a 400 for " + payload);
+    } catch (HttpException e) {
+      assertEquals(400, e.getCode());
+      String message = e.getError().getMessage();
+      assertTrue(message, message.contains(expectedMessage));
+    }
+  }
+
+  private static String fixture(String name) throws IOException {
+    try (InputStream in = BLDSSOrderRequestTest.class.getClassLoader().getResourceAsStream(name)) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
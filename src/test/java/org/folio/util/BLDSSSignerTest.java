@@ -0,0 +1,188 @@
+package org.folio.util;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class BLDSSSignerTest {
+
+  private static final String REQUEST_TIME = "1617282000000";
+  private static final String NONCE = "a1B2c3D4e5";
+
+  private final JSONObject conf = conf("app", "appSecret", "key", "keySecret");
+  private final BLDSSSigner signer = new BLDSSSigner("app", "appSecret", "key", "keySecret");
+
+  @Test
+  public void signsARequestWithoutParameters() {
+    assertSameSignature("GET", "/api/reference/formats", null, null);
+    assertSameSignature("GET", "/api/reference/formats", new HashMap<>(), null);
+  }
+
+  @Test
+  public void signsAnOrderPayload() {
+    String payload = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"
+      + "<NewOrderRequest><type>S</type><customerReference>abc-123</customerReference>"
+      + "<callbackUrl>http://okapi:9130/ill-connector/6839f2bf/sa-update</callbackUrl></NewOrderRequest>";
+    assertSameSignature("POST", "/api/orders", new HashMap<>(), payload);
+  }
+
+  @Test
+  public void signsParametersThatDifferOnlyInCase() {
+    HashMap<String, String> params = new HashMap<>();
+    params.put("id", "first");
+    params.put("ID", "second");
+    params.put("Id", "third");
+    params.put("format", "1");
+    params.put("FORMAT", "2");
+    assertSameSignature("PUT", "/api/orders/123", params, null);
+  }
+
+  @Test
+  public void signsParametersThatShareANameWithOurs() {
+    HashMap<String, String> params = new HashMap<>();
+    params.put("API_KEY", "overridden");
+    params.put("Request", "<a/>");
+    params.put("nonce", "mine");
+    assertSameSignature("POST", "/api/orders", params, "<b/>");
+  }
+
+  @Test
+  public void leavesOutParametersWithoutAValue() {
+    HashMap<String, String> params = new HashMap<>();
+    params.put("id", null);
+    params.put("speed", "2");
+    assertSameSignature("GET", "/api/orders", params, null);
+  }
+
+  @Test
+  public void signsNonAsciiPayloads() {
+    assertSameSignature("POST", "/api/orders", new HashMap<>(), "Café crème brûlée");
+    assertSameSignature("POST", "/api/orders", new HashMap<>(), "日本語のタイトル");
+    assertSameSignature("POST", "/api/orders", new HashMap<>(), "📚 books 📖 and more");
+    HashMap<String, String> params = new HashMap<>();
+    params.put("title", "Œuvres complètes");
+    assertSameSignature("GET", "/api/search/été", params, null);
+  }
+
+  @Test
+  public void signsCharactersThatNeedEncoding() {
+    HashMap<String, String> params = new HashMap<>();
+    params.put("query", "a b&c=d+e*f~g-h.i_j%k/l?m#n");
+    assertSameSignature("GET", "/api/search path/x", params, " &=+*~%\t\n\r\"'<>");
+  }
+
+  @Test
+  public void signsRandomRequests() {
+    Random random = new Random(18626);
+    for (int i = 0; i < 500; i++) {
+      HashMap<String, String> params = new HashMap<>();
+      int count = random.nextInt(5);
+      for (int j = 0; j < count; j++) {
+        params.put(randomString(random, 1 + random.nextInt(8)), randomString(random, random.nextInt(20)));
+      }
+      String payload = random.nextBoolean() ? randomString(random, random.nextInt(400)) : null;
+      assertSameSignature(random.nextBoolean() ? "GET" : "POST", "/api/" + randomString(random, 6), params, payload);
+    }
+  }
+
+  @Test
+  public void buildsTheSameHeader() {
+    HashMap<String, String> params = new HashMap<>();
+    params.put("id", "12345");
+    BLDSSAuth auth = new BLDSSAuth("PUT", "/api/orders/12345", params, "<CancelOrderRequest/>", signer);
+    String header = auth.getHeaderString();
+
+    Map<String, String> elements = headerElements(header);
+    String expected = LegacyBLDSSAuth.getHeaderString(
+      "PUT", "/api/orders/12345", params, "<CancelOrderRequest/>",
+      elements.get("request_time"), elements.get("nonce"), conf);
+    assertEquals(expected, header);
+  }
+
+  @Test
+  public void signsTheSameOnEveryThread() throws Exception {
+    HashMap<String, String> params = new HashMap<>();
+    params.put("id", "42");
+    String expected = LegacyBLDSSAuth.getAuthorisation("GET", "/api/orders", params, null, REQUEST_TIME, NONCE, conf);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<String>> signatures = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        signatures.add(executor.submit(() ->
+          signer.sign("GET", "/api/orders", params, null, REQUEST_TIME, NONCE, "HMAC-SHA1")));
+      }
+      for (Future<String> signature : signatures) {
+        assertEquals(expected, signature.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void keepsATenantsSignerUntilItsCredentialsChange() {
+    BLDSSSigner first = BLDSSSigner.forTenant("signer_test", conf);
+    assertSame(first, BLDSSSigner.forTenant("signer_test", conf("app", "appSecret", "key", "keySecret")));
+
+    BLDSSSigner changed = BLDSSSigner.forTenant("signer_test", conf("app", "appSecret", "key", "newSecret"));
+    assertNotSame(first, changed);
+    assertEquals(
+      LegacyBLDSSAuth.getAuthorisation("GET", "/api/orders", null, null, REQUEST_TIME, NONCE,
+        conf("app", "appSecret", "key", "newSecret")),
+      changed.sign("GET", "/api/orders", null, null, REQUEST_TIME, NONCE, "HMAC-SHA1"));
+  }
+
+  private void assertSameSignature(String method, String path, HashMap<String, String> params, String payload) {
+    String expected = LegacyBLDSSAuth.getAuthorisation(method, path, params, payload, REQUEST_TIME, NONCE, conf);
+    String actual = signer.sign(method, path, params, payload, REQUEST_TIME, NONCE, "HMAC-SHA1");
+    assertEquals("Signature of " + method + " " + path + " " + params + " " + payload, expected, actual);
+  }
+
+  private static Map<String, String> headerElements(String header) {
+    Map<String, String> elements = new LinkedHashMap<>();
+    for (String element : header.split(",")) {
+      int equals = element.indexOf('=');
+      elements.put(element.substring(0, equals), element.substring(equals + 1));
+    }
+    return elements;
+  }
+
+  // Mostly ASCII, with some Latin-1, CJK and characters outside the BMP
+  private static String randomString(Random random, int length) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      int kind = random.nextInt(10);
+      if (kind < 6) {
+        builder.append((char) (0x20 + random.nextInt(0x5F)));
+      } else if (kind < 8) {
+        builder.append((char) (0xA0 + random.nextInt(0x60)));
+      } else if (kind < 9) {
+        builder.append((char) (0x4E00 + random.nextInt(0x100)));
+      } else {
+        builder.appendCodePoint(0x1F300 + random.nextInt(0x100));
+      }
+    }
+    return builder.toString();
+  }
+
+  private static JSONObject conf(String apiApplication, String apiApplicationAuth, String apiKey, String apiKeyAuth) {
+    return new JSONObject()
+      .put("apiApplication", apiApplication)
+      .put("apiApplicationAuth", apiApplicationAuth)
+      .put("apiKey", apiKey)
+      .put("apiKeyAuth", apiKeyAuth);
+  }
+}
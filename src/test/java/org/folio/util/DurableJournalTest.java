@@ -0,0 +1,156 @@
+package org.folio.util;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DurableJournalTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final List<DurableJournal> opened = new ArrayList<>();
+
+  @After
+  public void tearDown() {
+    opened.forEach(DurableJournal::close);
+  }
+
+  @Test
+  public void replaysEntriesThatWereNeverDone() {
+    DurableJournal journal = open(100);
+    journal.add("a", entry("a")).join();
+    journal.add("b", entry("b")).join();
+    journal.add("c", entry("c")).join();
+    journal.done("b").join();
+    close(journal);
+
+    assertEquals(List.of("a", "c"), replay());
+  }
+
+  @Test
+  public void movesDeadLettersAside() throws IOException {
+    DurableJournal journal = open(100);
+    journal.add("a", entry("a")).join();
+    journal.add("b", entry("b")).join();
+    journal.deadLetter("a", entry("a"), "RA responded 400").join();
+    close(journal);
+
+    assertEquals(List.of("b"), replay());
+    List<String> dead = Files.readAllLines(folder.getRoot().toPath().resolve("test.dead"));
+    assertEquals(1, dead.size());
+    JsonObject record = new JsonObject(dead.get(0));
+    assertEquals("a", record.getString("id"));
+    assertEquals("RA responded 400", record.getString("reason"));
+    assertEquals(entry("a"), record.getJsonObject("entry"));
+  }
+
+  @Test
+  public void compactsOnceEnoughEntriesAreDone() throws IOException {
+    DurableJournal journal = open(3);
+    for (String id : List.of("a", "b", "c", "d", "e")) {
+      journal.add(id, entry(id)).join();
+    }
+    journal.done("a").join();
+    journal.done("c").join();
+    assertEquals(7, journalLines().size());
+
+    // The third done rewrites the journal with just what's outstanding
+    journal.done("d").join();
+    List<String> lines = journalLines();
+    assertEquals(2, lines.size());
+    assertEquals("b", new JsonObject(lines.get(0)).getString("id"));
+    assertEquals("e", new JsonObject(lines.get(1)).getString("id"));
+
+    // and carries on appending to the new one
+    journal.add("f", entry("f")).join();
+    close(journal);
+    assertEquals(List.of("b", "e", "f"), replay());
+  }
+
+  @Test
+  public void skipsALastLineThatWasCutShort() throws IOException {
+    DurableJournal journal = open(100);
+    journal.add("a", entry("a")).join();
+    journal.add("b", entry("b")).join();
+    close(journal);
+    String cutShort = new JsonObject().put("op", "add").put("id", "c").put("entry", entry("c")).encode();
+    Files.write(journalFile(), cutShort.substring(0, cutShort.length() / 2).getBytes(StandardCharsets.UTF_8),
+      StandardOpenOption.APPEND);
+
+    DurableJournal reopened = new DurableJournal(folder.getRoot().toPath(), "test", 100);
+    opened.add(reopened);
+    assertEquals(List.of("a", "b"), ids(reopened.open().join()));
+    // Opening rewrites the journal, so the next entry doesn't end up on
+    // the same line as the broken one
+    reopened.add("d", entry("d")).join();
+    close(reopened);
+    for (String line : journalLines()) {
+      new JsonObject(line);
+    }
+    assertEquals(List.of("a", "b", "d"), replay());
+  }
+
+  @Test
+  public void opensAJournalThatDoesNotExistYet() throws IOException {
+    Path dir = folder.getRoot().toPath().resolve("not-there-yet");
+    DurableJournal journal = new DurableJournal(dir, "test", 100);
+    opened.add(journal);
+    assertTrue(journal.open().join().isEmpty());
+    assertTrue(Files.exists(dir.resolve("test.journal")));
+    assertFalse(Files.exists(dir.resolve("test.dead")));
+  }
+
+  private DurableJournal open(int compactThreshold) {
+    DurableJournal journal = new DurableJournal(folder.getRoot().toPath(), "test", compactThreshold);
+    opened.add(journal);
+    journal.open().join();
+    return journal;
+  }
+
+  // What a fresh journal finds outstanding on opening
+  private List<String> replay() {
+    DurableJournal journal = new DurableJournal(folder.getRoot().toPath(), "test", 100);
+    opened.add(journal);
+    return ids(journal.open().join());
+  }
+
+  private void close(DurableJournal journal) {
+    opened.remove(journal);
+    journal.close();
+  }
+
+  private Path journalFile() {
+    return folder.getRoot().toPath().resolve("test.journal");
+  }
+
+  private List<String> journalLines() throws IOException {
+    return Files.readAllLines(journalFile());
+  }
+
+  private static JsonObject entry(String id) {
+    return new JsonObject().put("id", id).put("body", "update for " + id);
+  }
+
+  private static List<String> ids(List<JsonObject> entries) {
+    List<String> ids = new ArrayList<>();
+    for (JsonObject entry : entries) {
+      ids.add(entry.getString("id"));
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,152 @@
+package org.folio.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import org.folio.rest.jaxrs.model.AgencyId;
+import org.folio.rest.jaxrs.model.BibliographicInfo;
+import org.folio.rest.jaxrs.model.BibliographicItemId;
+import org.folio.rest.jaxrs.model.BibliographicRecordId;
+import org.folio.rest.jaxrs.model.Configs;
+import org.folio.rest.jaxrs.model.ISO18626.SamStatusInfo;
+import org.folio.rest.jaxrs.model.ISO18626.SupplyingAgencyMessage;
+import org.folio.rest.jaxrs.model.PublicationInfo;
+import org.folio.rest.jaxrs.model.SupplyingAgencyMessageHeader;
+import org.folio.rest.jaxrs.model.SupplyingAgencyMessageInfo;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/*
+  JsonCodecs should read and write exactly what JsonObject.mapTo and
+  mapFrom did
+*/
+public class JsonCodecsTest {
+
+  @Test
+  public void decodesConfigsAsMapToDid() throws IOException {
+    String json = fixture("json/configs.json");
+    Configs expected = new JsonObject(json).mapTo(Configs.class);
+
+    Configs fromBytes = JsonCodecs.CONFIGS.decode(json.getBytes(StandardCharsets.UTF_8));
+    Configs fromString = JsonCodecs.CONFIGS.decode(json);
+    assertSameJson(expected, fromBytes);
+    assertSameJson(expected, fromString);
+    assertEquals(2, fromBytes.getConfigs().size());
+    assertEquals("Réglages généraux 📚", fromBytes.getConfigs().get(1).getDescription());
+  }
+
+  @Test
+  public void encodesBibliographicInfoAsMapFromDid() {
+    assertSameEncoding(JsonCodecs.BIBLIOGRAPHIC_INFO, bibliographicInfo(), BibliographicInfo.class);
+    assertSameEncoding(JsonCodecs.BIBLIOGRAPHIC_INFO, new BibliographicInfo(), BibliographicInfo.class);
+  }
+
+  @Test
+  public void encodesPublicationInfoAsMapFromDid() {
+    PublicationInfo publicationInfo = new PublicationInfo();
+    publicationInfo.setPublisher("Éditions du Seuil");
+    publicationInfo.setPublicationType(PublicationInfo.PublicationType.values()[0]);
+    publicationInfo.setPublicationDate("2010-01-01");
+    assertSameEncoding(JsonCodecs.PUBLICATION_INFO, publicationInfo, PublicationInfo.class);
+  }
+
+  @Test
+  public void encodesSupplyingAgencyMessagesAsMapFromDid() {
+    SupplyingAgencyMessage message = new SupplyingAgencyMessage()
+      .withHeader(new SupplyingAgencyMessageHeader()
+        .withSupplyingAgencyId(new AgencyId().withAgencyIdType(AgencyId.AgencyIdType.ISIL).withAgencyIdValue("MY_SUPPLIER_ID"))
+        .withRequestingAgencyId(new AgencyId().withAgencyIdType(AgencyId.AgencyIdType.ISIL).withAgencyIdValue("MY_REQUESTER_ID"))
+        .withTimestamp(DateTimeUtils.bldssToIso("2012-08-07 12:32:31.000 GMT"))
+        .withRequestingAgencyRequestId("6839f2bf")
+        .withSupplyingAgencyRequestId("00001234-001"))
+      .withMessageInfo(new SupplyingAgencyMessageInfo()
+        .withReasonForMessage(SupplyingAgencyMessageInfo.ReasonForMessage.values()[0])
+        .withAnswerYesNo(SupplyingAgencyMessageInfo.AnswerYesNo.Y)
+        .withNote("9: Order confirmed \"Estimated despatch date\" <08-08-2012> & more"))
+      .withStatusInfo(new SamStatusInfo()
+        .withStatus(SamStatusInfo.Status.values()[0])
+        .withLastChange(DateTimeUtils.bldssToIso("2012-08-07 12:32:31.000 GMT")));
+    assertSameEncoding(JsonCodecs.SUPPLYING_AGENCY_MESSAGE, message, SupplyingAgencyMessage.class);
+  }
+
+  @Test
+  public void decodesPartsOfATree() {
+    BibliographicInfo bibliographicInfo = bibliographicInfo();
+    JsonObject action = new JsonObject()
+      .put("selectedResult", new JsonObject()
+        .put("metadata", new JsonObject().put("BibliographicInfo", JsonObject.mapFrom(bibliographicInfo))))
+      .put("submission", new JsonObject().putNull("submissionMetadata"));
+    JsonNode tree = JsonCodecs.readTree(action.encode());
+
+    assertSameJson(bibliographicInfo,
+      JsonCodecs.BIBLIOGRAPHIC_INFO.decode(tree.path("selectedResult").path("metadata").path("BibliographicInfo")));
+    assertNull(JsonCodecs.PUBLICATION_INFO.decode(tree.path("selectedResult").path("metadata").path("PublicationInfo")));
+    assertNull(JsonCodecs.BIBLIOGRAPHIC_INFO.decode(tree.path("submission").path("submissionMetadata")));
+    assertNull(JsonCodecs.BIBLIOGRAPHIC_INFO.decode((JsonNode) null));
+  }
+
+  @Test(expected = DecodeException.class)
+  public void rejectsMalformedJson() {
+    JsonCodecs.CONFIGS.decode("{\"configs\": [");
+  }
+
+  @Test(expected = DecodeException.class)
+  public void rejectsAMalformedTree() {
+    JsonCodecs.readTree("{\"submission\": ");
+  }
+
+  @Test(expected = DecodeException.class)
+  public void rejectsTheWrongShape() {
+    JsonCodecs.CONFIGS.decode("{\"configs\": \"not a list\"}");
+  }
+
+  private static BibliographicInfo bibliographicInfo() {
+    BibliographicItemId isbn = new BibliographicItemId();
+    isbn.setBibliographicItemIdentifierCode(BibliographicItemId.BibliographicItemIdentifierCode.fromValue("ISBN"));
+    isbn.setBibliographicItemIdentifier("9780123456786");
+    BibliographicRecordId recordId = new BibliographicRecordId();
+    recordId.setBibliographicRecordIdentifierCode(BibliographicRecordId.BibliographicRecordIdentifierCode.values()[0]);
+    recordId.setBibliographicRecordIdentifier("BLL01012345678");
+
+    BibliographicInfo bibliographicInfo = new BibliographicInfo();
+    bibliographicInfo.setSupplierUniqueRecordId("BLL01012345678");
+    bibliographicInfo.setTitle("Proceedings of the Société d'Histoire & d'Archéologie 📚");
+    bibliographicInfo.setAuthor("Dupont, Jean");
+    bibliographicInfo.setTitleOfComponent("Chapter \"one\"");
+    bibliographicInfo.setVolume("42");
+    bibliographicInfo.setPagesRequested("1-10");
+    bibliographicInfo.setBibliographicItemId(Arrays.asList(isbn));
+    bibliographicInfo.setBibliographicRecordId(Arrays.asList(recordId));
+    return bibliographicInfo;
+  }
+
+  // Encoding matches mapFrom, and decoding what was encoded matches mapTo
+  private static <T> void assertSameEncoding(JsonCodecs.Codec<T> codec, T value, Class<T> type) {
+    JsonObject expected = JsonObject.mapFrom(value);
+    String encoded = codec.encodeToString(value);
+    assertEquals(expected, new JsonObject(encoded));
+    // Written as bytes, characters outside the BMP are escaped
+    assertEquals(expected, new JsonObject(new String(codec.encode(value), StandardCharsets.UTF_8)));
+
+    T decoded = codec.decode(encoded);
+    assertSameJson(new JsonObject(encoded).mapTo(type), decoded);
+    assertSameJson(value, decoded);
+  }
+
+  private static void assertSameJson(Object expected, Object actual) {
+    assertEquals(JsonObject.mapFrom(expected), JsonObject.mapFrom(actual));
+  }
+
+  private static String fixture(String name) throws IOException {
+    try (InputStream in = JsonCodecsTest.class.getClassLoader().getResourceAsStream(name)) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
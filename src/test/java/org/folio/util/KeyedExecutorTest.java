@@ -0,0 +1,118 @@
+package org.folio.util;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeyedExecutorTest {
+
+  private final KeyedExecutor executor = new KeyedExecutor("keyed_test", 2);
+  private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+
+  @After
+  public void tearDown() {
+    executor.shutdown(1000);
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void runsEachKeysTasksInOrderWhenTheyFinishAsynchronously() {
+    Random random = new Random(18626);
+    Map<String, List<Integer>> started = new ConcurrentHashMap<>();
+    Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+    AtomicInteger overlaps = new AtomicInteger();
+    List<CompletableFuture<Integer>> results = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      String key = "orderline-" + random.nextInt(5);
+      int task = i;
+      int delay = random.nextInt(5);
+      results.add(executor.submit(key, () -> {
+        if (running.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet() > 1) {
+          overlaps.incrementAndGet();
+        }
+        started.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(task);
+        CompletableFuture<Integer> done = new CompletableFuture<>();
+        scheduler.schedule(() -> {
+          running.get(key).decrementAndGet();
+          done.complete(task);
+        }, delay, TimeUnit.MILLISECONDS);
+        return done;
+      }));
+    }
+    CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+
+    assertEquals(0, overlaps.get());
+    for (List<Integer> tasks : started.values()) {
+      List<Integer> sorted = new ArrayList<>(tasks);
+      Collections.sort(sorted);
+      assertEquals(sorted, tasks);
+    }
+    for (int i = 0; i < results.size(); i++) {
+      assertEquals(Integer.valueOf(i), results.get(i).join());
+    }
+  }
+
+  @Test
+  public void aKeyWaitingOnASlowCallDoesNotHoldUpOtherKeys() {
+    KeyedExecutor single = new KeyedExecutor("keyed_single_test", 1);
+    try {
+      CompletableFuture<String> slow = new CompletableFuture<>();
+      CompletableFuture<String> first = single.submit("a", () -> slow);
+      CompletableFuture<String> second = single.submit("a", () -> CompletableFuture.completedFuture("a2"));
+      // Lands on the only thread while "a" is still waiting
+      CompletableFuture<String> other = single.submit("b", () -> CompletableFuture.completedFuture("b1"));
+
+      assertEquals("b1", other.join());
+      assertFalse(first.isDone());
+      assertFalse(second.isDone());
+
+      slow.complete("a1");
+      assertEquals("a1", first.join());
+      assertEquals("a2", second.join());
+    } finally {
+      single.shutdown(1000);
+    }
+  }
+
+  @Test
+  public void carriesOnAfterATaskFails() {
+    CompletableFuture<String> failed = executor.submit("a", () -> {
+      throw new IllegalStateException("unreadable");
+    });
+    CompletableFuture<String> next = executor.submit("a", () -> CompletableFuture.completedFuture("next"));
+
+    assertEquals("next", next.join());
+    assertTrue(failed.isCompletedExceptionally());
+  }
+
+  @Test
+  public void forgetsKeysWithNothingQueued() {
+    Map<String, CompletableFuture<Void>> slow = new HashMap<>();
+    for (int i = 0; i < 10; i++) {
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      slow.put("key-" + i, future);
+      executor.submit("key-" + i, () -> future);
+    }
+    await().atMost(5, TimeUnit.SECONDS).until(() -> executor.keys() == 10);
+
+    slow.values().forEach(future -> future.complete(null));
+    await().atMost(5, TimeUnit.SECONDS).until(() -> executor.keys() == 0);
+  }
+}
@@ -0,0 +1,112 @@
+package org.folio.util;
+
+import org.json.JSONObject;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/*
+  How BLDSSAuth signed requests before BLDSSSigner: a TreeMap of the
+  parameters, URLEncoder and a new Mac per request. Kept as the reference
+  BLDSSSigner is checked and benchmarked against.
+*/
+final class LegacyBLDSSAuth {
+
+  private static final String HMAC_SHA1_ALGORITHM = "HmacSHA1";
+
+  private LegacyBLDSSAuth() {
+  }
+
+  // The Authorisation header contents for a request made at requestTime
+  // with this nonce
+  static String getHeaderString(
+    String httpMethod,
+    String path,
+    Map<String, String> requestParameters,
+    String payload,
+    String requestTime,
+    String nonce,
+    JSONObject conf
+  ) {
+    String authString = getAuthorisation(httpMethod, path, requestParameters, payload, requestTime, nonce, conf);
+    String[] headerElements = {
+      "api_application=" + conf.getString("apiApplication"),
+      "nonce=" + nonce,
+      "signature_method=HMAC-SHA1",
+      "request_time=" + requestTime,
+      "authorisation=" + authString,
+      "api_key=" + conf.getString("apiKey")
+    };
+    return String.join(",", headerElements);
+  }
+
+  static String getAuthorisation(
+    String httpMethod,
+    String path,
+    Map<String, String> requestParameters,
+    String payload,
+    String requestTime,
+    String nonce,
+    JSONObject conf
+  ) {
+    // TreeMap so we store keys in sorted order
+    Map<String, String> map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    map.put("api_application", conf.getString("apiApplication"));
+    map.put("api_key", conf.getString("apiKey"));
+    map.put("request", payload);
+    map.put("request_time", requestTime);
+    map.put("nonce", nonce);
+    map.put("signature_method", "HMAC-SHA1");
+    if (requestParameters != null) {
+      map.putAll(requestParameters);
+    }
+    String paramString = map.entrySet()
+      .stream()
+      .map(e -> {
+        if (e.getKey() != null && e.getValue() != null) {
+          return encodeValue(e.getKey()) + "=" + encodeValue(e.getValue());
+        } else {
+          return null;
+        }
+      })
+      .filter(Objects::nonNull)
+      .collect(Collectors.joining("&"));
+    String requestString = httpMethod + "&" + encodeValue(path) + "&" + encodeValue(paramString);
+    String hmacKey = conf.getString("apiApplicationAuth") + "&" + conf.getString("apiKeyAuth");
+    return calculateHMAC(requestString, hmacKey);
+  }
+
+  private static String encodeValue(String value) {
+    String output = "";
+    try {
+      output = URLEncoder.encode(value, StandardCharsets.UTF_8.toString());
+    } catch (UnsupportedEncodingException e) {
+      e.printStackTrace();
+    }
+    return output;
+  }
+
+  private static String calculateHMAC(String data, String key) {
+    String output = "";
+    try {
+      SecretKeySpec signingKey = new SecretKeySpec(key.getBytes(), HMAC_SHA1_ALGORITHM);
+      Mac mac = Mac.getInstance(HMAC_SHA1_ALGORITHM);
+      mac.init(signingKey);
+      byte[] rawHmac = mac.doFinal(data.getBytes());
+      output = Base64.getEncoder().encodeToString(rawHmac);
+    } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+      e.printStackTrace();
+    }
+    return output;
+  }
+}
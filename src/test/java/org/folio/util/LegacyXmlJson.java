@@ -0,0 +1,42 @@
+package org.folio.util;
+
+import org.json.XML;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.StringWriter;
+
+/*
+  How XMLUtil.getJson converted XML to JSON before XMLJsonConverter: parse
+  a DOM, serialise the node with a new Transformer and run the text
+  through org.json's XML.toJSONObject. Kept as the reference
+  XMLJsonConverter is checked and benchmarked against.
+*/
+final class LegacyXmlJson {
+
+  private LegacyXmlJson() {
+  }
+
+  static String getJson(String xml, String startElement, String nodeName) {
+    // We need to take the entire "result" node and convert it to JSON
+    String output = "";
+    StringWriter writer = new StringWriter();
+    Document doc = XMLUtil.parse(xml);
+    Node result = XMLUtil.getNode(doc, nodeName);
+    try {
+      Transformer t = TransformerFactory.newInstance().newTransformer();
+      t.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+      t.transform(new DOMSource(result), new StreamResult(writer));
+      output = writer.toString();
+    } catch (TransformerException e) {
+      e.printStackTrace();
+    }
+    return XML.toJSONObject(output).get(startElement).toString();
+  }
+}
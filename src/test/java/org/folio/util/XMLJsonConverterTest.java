@@ -0,0 +1,143 @@
+package org.folio.util;
+
+import org.folio.exception.ConnectorQueryException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class XMLJsonConverterTest {
+
+  @Test
+  public void convertsReferenceDataAsXmlToJsonObjectDid() throws IOException {
+    String xml = fixture("xml/reference-formats.xml");
+    assertSameJson(xml, "apiResponse", "apiResponse");
+    assertSameJson(xml, "result", "result");
+    assertSameJson(xml, "formats", "formats");
+  }
+
+  @Test
+  public void convertsAnOrderResponseAsXmlToJsonObjectDid() throws IOException {
+    String xml = fixture("xml/order-response.xml");
+    assertSameJson(xml, "apiResponse", "apiResponse");
+    assertSameJson(xml, "newOrder", "newOrder");
+    assertSameJson(xml, "totals", "totals");
+    assertSameJson(xml, "title", "title");
+  }
+
+  @Test
+  public void convertsAnSaUpdateAsXmlToJsonObjectDid() throws IOException {
+    assertSameJson(fixture("xml/sa-update.xml"), "orderline", "orderline");
+  }
+
+  @Test
+  public void keepsTheShapesWeRelyOn() throws IOException {
+    JSONObject apiResponse = new JSONObject(XMLJsonConverter.toJson(
+      fixture("xml/reference-formats.xml"), "apiResponse", "apiResponse"));
+    JSONArray formats = apiResponse.getJSONObject("result").getJSONObject("formats").getJSONArray("format");
+    assertEquals(3, formats.length());
+    assertEquals(1, formats.getJSONObject(0).getInt("id"));
+    assertEquals("", formats.getJSONObject(1).get("deliveryModifiers"));
+    assertEquals("Loan <physical> & returnable", formats.getJSONObject(2).get("description"));
+    assertEquals("007", formats.getJSONObject(2).get("leadTime"));
+    assertEquals(Boolean.FALSE, formats.getJSONObject(2).get("available"));
+  }
+
+  @Test
+  public void convertsAnElementUsingAnAncestorsNamespace() {
+    String xml = "<apiResponse xmlns:xsi=\"urn:xsi\"><result><note xsi:nil=\"true\"/>"
+      + "<x:a xmlns:x=\"urn:x\"><x:a xmlns:x=\"urn:x\"/><x:a xmlns:x=\"urn:other\"/></x:a></result></apiResponse>";
+    // Serialising the result element on its own used to fail on the xsi prefix
+    JSONObject expected = new JSONObject(
+      "{\"note\":{\"xsi:nil\":true},\"x:a\":{\"xmlns:x\":\"urn:x\",\"x:a\":[\"\",{\"xmlns:x\":\"urn:other\"}]}}");
+    assertTrue(expected.similar(new JSONObject(XMLJsonConverter.toJson(xml, "result", "result"))));
+    assertSameJson(xml, "apiResponse", "apiResponse");
+  }
+
+  @Test
+  public void readsStreamsAsStrings() throws IOException {
+    String xml = fixture("xml/order-response.xml");
+    assertEquals(
+      XMLJsonConverter.toJson(xml, "apiResponse", "apiResponse"),
+      XMLJsonConverter.toJson(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), "apiResponse", "apiResponse"));
+  }
+
+  @Test
+  public void convertsGeneratedDocumentsAsXmlToJsonObjectDid() {
+    Random random = new Random(12);
+    for (int i = 0; i < 300; i++) {
+      StringBuilder xml = new StringBuilder("<apiResponse><result>");
+      element(xml, random, 0);
+      xml.append("</result></apiResponse>");
+      assertSameJson(xml.toString(), "apiResponse", "apiResponse");
+      assertSameJson(xml.toString(), "result", "result");
+    }
+  }
+
+  @Test(expected = ConnectorQueryException.class)
+  public void rejectsAMissingElement() {
+    XMLJsonConverter.toJson("<apiResponse><result/></apiResponse>", "newOrder", "newOrder");
+  }
+
+  @Test(expected = ConnectorQueryException.class)
+  public void rejectsARepeatedElement() {
+    XMLJsonConverter.toJson("<apiResponse><result/><result/></apiResponse>", "result", "result");
+  }
+
+  private static void assertSameJson(String xml, String startElement, String nodeName) {
+    String expected = LegacyXmlJson.getJson(xml, startElement, nodeName);
+    String actual = XMLJsonConverter.toJson(xml, startElement, nodeName);
+    String message = nodeName + " of " + xml;
+    if (expected.startsWith("{")) {
+      assertTrue(message + "\nexpected " + expected + "\nbut was " + actual,
+        new JSONObject(expected).similar(new JSONObject(actual)));
+    } else {
+      assertEquals(message, expected, actual);
+    }
+  }
+
+  private static final String[] NAMES = { "a", "b", "c", "format", "x:y" };
+  private static final String[] TEXTS = {
+    "", " ", "text", "  padded  ", "12", "007", "-3.5", "1e3", "true", "null", "&amp;", "&lt;tag&gt;",
+    "Société", "日本語", "📚", "0x1F", "<![CDATA[ raw <cdata> ]]>", "<!-- comment -->"
+  };
+
+  private static void element(StringBuilder xml, Random random, int depth) {
+    String name = NAMES[random.nextInt(NAMES.length)];
+    xml.append('<').append(name);
+    if (random.nextInt(4) == 0) {
+      xml.append(" id=\"").append(TEXTS[random.nextInt(12)]).append('"');
+    }
+    if (name.contains(":")) {
+      xml.append(" xmlns:x=\"urn:x\"");
+    } else if (random.nextInt(6) == 0) {
+      xml.append(" xmlns=\"urn:").append(random.nextInt(2)).append('"');
+    }
+    xml.append('>');
+    int children = depth < 3 ? random.nextInt(4) : 0;
+    for (int i = 0; i < children; i++) {
+      if (random.nextBoolean()) {
+        xml.append(TEXTS[random.nextInt(TEXTS.length)]);
+      }
+      element(xml, random, depth + 1);
+    }
+    if (random.nextBoolean()) {
+      xml.append(TEXTS[random.nextInt(TEXTS.length)]);
+    }
+    xml.append("</").append(name).append('>');
+  }
+
+  private static String fixture(String name) throws IOException {
+    try (InputStream in = XMLJsonConverterTest.class.getClassLoader().getResourceAsStream(name)) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
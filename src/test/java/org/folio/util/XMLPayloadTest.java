@@ -0,0 +1,174 @@
+package org.folio.util;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+  Each fixture is a JSON description of a payload: objects are elements,
+  strings are elements holding that text. The golden XML alongside it is
+  what building the same tree as a DOM and serialising it with XMLUtil
+  produced.
+*/
+public class XMLPayloadTest {
+
+  @Test
+  public void writesANewOrderRequest() throws IOException {
+    assertMatchesGolden("payload/new-order-request");
+  }
+
+  @Test
+  public void writesSpecialCharacters() throws IOException {
+    assertMatchesGolden("payload/special-characters");
+  }
+
+  @Test
+  public void leavesOutEmptyValuesAndElements() {
+    XMLPayload item = XMLPayload.element("Item")
+      .add("uin", null)
+      .add("type", "")
+      .addIfNotEmpty(XMLPayload.element("titleLevel").add("title", null))
+      .addIfNotEmpty(XMLPayload.element("itemLevel").add("volume", "1"));
+    assertEquals(
+      "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><Item><itemLevel><volume>1</volume></itemLevel></Item>",
+      item.toXml());
+    assertTrue(XMLPayload.element("Item").add("uin", "").isEmpty());
+  }
+
+  @Test
+  public void writesGeneratedPayloadsAsTheDomDid() {
+    Random random = new Random(14);
+    for (int i = 0; i < 500; i++) {
+      JsonObject tree = new JsonObject().put("NewOrderRequest", randomElement(random, 0));
+      assertEquals(tree.encode(), domXml(tree), payload(tree).toXml());
+    }
+  }
+
+  @Test
+  public void writesFromManyThreadsAtOnce() throws Exception {
+    JsonObject tree = new JsonObject(fixture("payload/new-order-request.json"));
+    String expected = domXml(tree);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<String>> written = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        written.add(executor.submit(() -> payload(tree).toXml()));
+      }
+      for (Future<String> xml : written) {
+        assertEquals(expected, xml.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void assertMatchesGolden(String name) throws IOException {
+    JsonObject tree = new JsonObject(fixture(name + ".json"));
+    String golden = fixture(name + ".xml").trim();
+    assertEquals("golden file is stale", golden, domXml(tree));
+    assertEquals(golden, payload(tree).toXml());
+  }
+
+  private static XMLPayload payload(JsonObject tree) {
+    Map.Entry<String, Object> root = tree.iterator().next();
+    return payload(root.getKey(), (JsonObject) root.getValue());
+  }
+
+  private static XMLPayload payload(String name, JsonObject json) {
+    XMLPayload element = XMLPayload.element(name);
+    for (Map.Entry<String, Object> child : json) {
+      if (child.getValue() instanceof JsonObject) {
+        element.add(payload(child.getKey(), (JsonObject) child.getValue()));
+      } else {
+        element.add(child.getKey(), (String) child.getValue());
+      }
+    }
+    return element;
+  }
+
+  // How BLDSSOrderRequest built its payload before XMLPayload
+  private static String domXml(JsonObject tree) {
+    Document doc = XMLUtil.newDocument();
+    Map.Entry<String, Object> root = tree.iterator().next();
+    doc.appendChild(domElement(doc, root.getKey(), (JsonObject) root.getValue()));
+    return XMLUtil.docAsString(doc, false);
+  }
+
+  private static Element domElement(Document doc, String name, JsonObject json) {
+    Element element = doc.createElement(name);
+    for (Map.Entry<String, Object> child : json) {
+      if (child.getValue() instanceof JsonObject) {
+        element.appendChild(domElement(doc, child.getKey(), (JsonObject) child.getValue()));
+      } else {
+        String value = (String) child.getValue();
+        if (value != null && value.length() > 0) {
+          Element text = doc.createElement(child.getKey());
+          text.appendChild(doc.createTextNode(value));
+          element.appendChild(text);
+        }
+      }
+    }
+    return element;
+  }
+
+  private static final String[] NAMES = { "title", "author", "ISBN", "Service", "itemLevel", "year" };
+
+  private static JsonObject randomElement(Random random, int depth) {
+    JsonObject json = new JsonObject();
+    int children = random.nextInt(5);
+    for (int i = 0; i < children; i++) {
+      String name = NAMES[random.nextInt(NAMES.length)] + i;
+      if (depth < 3 && random.nextInt(3) == 0) {
+        json.put(name, randomElement(random, depth + 1));
+      } else {
+        json.put(name, randomText(random));
+      }
+    }
+    return json;
+  }
+
+  // Mostly printable text, with markup, whitespace, control and
+  // supplementary characters thrown in
+  private static String randomText(Random random) {
+    StringBuilder text = new StringBuilder();
+    int length = random.nextInt(12);
+    for (int i = 0; i < length; i++) {
+      int kind = random.nextInt(10);
+      if (kind < 5) {
+        text.append((char) (0x20 + random.nextInt(0x5F)));
+      } else if (kind == 5) {
+        text.append("<>&\"'\r\n\t".charAt(random.nextInt(8)));
+      } else if (kind == 6) {
+        text.append((char) (0x7F + random.nextInt(0x21)));
+      } else if (kind == 7) {
+        text.append((char) (0xA0 + random.nextInt(0x100)));
+      } else if (kind == 8) {
+        text.append((char) (0x3040 + random.nextInt(0x100)));
+      } else {
+        text.appendCodePoint(0x1F300 + random.nextInt(0x100));
+      }
+    }
+    return text.toString();
+  }
+
+  private static String fixture(String name) throws IOException {
+    try (InputStream in = XMLPayloadTest.class.getClassLoader().getResourceAsStream(name)) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}